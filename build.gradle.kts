@@ -58,6 +58,7 @@ dependencies {
 	implementation("org.apache.kafka:kafka-clients")
 	implementation("net.logstash.logback:logstash-logback-encoder:8.1")
 	implementation("org.json:json:20250517")
+	implementation("com.github.ben-manes.caffeine:caffeine")
 	runtimeOnly("org.postgresql:postgresql:42.5.1")
 	testImplementation("org.awaitility:awaitility:4.2.2")
 	testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -74,4 +75,21 @@ dependencies {
 
 tasks.withType<Test> {
 	useJUnitPlatform()
+}
+
+tasks.test {
+	useJUnitPlatform {
+		excludeTags("benchmark")
+	}
+}
+
+tasks.register<Test>("benchmark") {
+	description = "Runs the throughput benchmarks tagged with 'benchmark'."
+	group = "verification"
+	testClassesDirs = sourceSets.test.get().output.classesDirs
+	classpath = sourceSets.test.get().runtimeClasspath
+	useJUnitPlatform {
+		includeTags("benchmark")
+	}
+	outputs.upToDateWhen { false }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Collects single customer lookups issued by concurrent threads and resolves them together with one
+ * {@link CustomerService#getCustomersData} call. A batch is dispatched when {@code maxBatchSize} lookups are
+ * waiting or {@code maxWait} after its first lookup, whichever comes first, and loads on its own virtual thread
+ * so the next batch can be collected meanwhile. Lookups of many customers at once already are a batch and go
+ * straight to the delegate. Batch sizes and the time a lookup waited for its batch are published as histograms.
+ * Lookups still waiting when the service is closed, or whose batch could not be dispatched, fail instead of hanging.
+ */
+@Slf4j
+public class BatchingCustomerService implements CustomerService, AutoCloseable {
+
+    private final CustomerService delegate;
+
+    private final int maxBatchSize;
+
+    private final long maxWaitNanos;
+
+    private final BlockingQueue<PendingLookup> pendingLookups = new LinkedBlockingQueue<>();
+
+    private final ExecutorService loaders;
+
+    private final Thread collector;
+
+    private final DistributionSummary batchSize;
+
+    private final Timer batchWait;
+
+    private volatile boolean closed;
+
+    public BatchingCustomerService(CustomerService delegate, MeterRegistry meterRegistry, int maxBatchSize,
+                                   Duration maxWait) {
+        this(delegate, meterRegistry, maxBatchSize, maxWait, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    BatchingCustomerService(CustomerService delegate, MeterRegistry meterRegistry, int maxBatchSize,
+                            Duration maxWait, ExecutorService loaders) {
+        this.delegate = delegate;
+        this.loaders = loaders;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.batchSize = DistributionSummary.builder("payment.notifications.customer.batch.size")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchWait = Timer.builder("payment.notifications.customer.batch.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.collector = Thread.ofVirtual().name("customer-batch-collector").start(this::collectLoop);
+    }
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        if (closed) {
+            throw new IllegalStateException("Customer batching is closed");
+        }
+        PendingLookup lookup = new PendingLookup(customerId, new CompletableFuture<>(), System.nanoTime());
+        pendingLookups.add(lookup);
+        try {
+            return lookup.future().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        return delegate.getCustomersData(customerIds);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        collector.interrupt();
+        loaders.shutdown();
+        List<PendingLookup> remaining = new ArrayList<>();
+        pendingLookups.drainTo(remaining);
+        fail(remaining, new IllegalStateException("Customer batching is closed"));
+    }
+
+    private void collectLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<PendingLookup> batch = new ArrayList<>();
+                batch.add(pendingLookups.take());
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingLookup lookup = remaining > 0 ? pendingLookups.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (lookup == null) {
+                        break;
+                    }
+                    batch.add(lookup);
+                }
+                pendingLookups.drainTo(batch, maxBatchSize - batch.size());
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void dispatch(List<PendingLookup> batch) {
+        try {
+            loaders.execute(() -> load(batch));
+        } catch (RejectedExecutionException e) {
+            log.warn("Customer batch lookup rejected",
+                    kv("batch_size", batch.size()),
+                    kv("exception", e.getMessage()));
+            fail(batch, e);
+        }
+    }
+
+    private static void fail(List<PendingLookup> batch, RuntimeException exception) {
+        batch.forEach(lookup -> lookup.future().completeExceptionally(exception));
+    }
+
+    private void load(List<PendingLookup> batch) {
+        long dispatchedAt = System.nanoTime();
+        Set<Long> customerIds = new LinkedHashSet<>();
+        for (PendingLookup lookup : batch) {
+            customerIds.add(lookup.customerId());
+            batchWait.record(dispatchedAt - lookup.enqueuedNanos(), TimeUnit.NANOSECONDS);
+        }
+        batchSize.record(customerIds.size());
+
+        try {
+            Map<Long, CustomerDto> customers = delegate.getCustomersData(customerIds);
+            for (PendingLookup lookup : batch) {
+                CustomerDto customer = customers.get(lookup.customerId());
+                if (customer != null) {
+                    lookup.future().complete(customer);
+                } else {
+                    lookup.future().completeExceptionally(new CustomerNotFoundException(lookup.customerId()));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Customer batch lookup failed",
+                    kv("batch_size", customerIds.size()),
+                    kv("exception", e.getMessage()));
+            fail(batch, e);
+        }
+    }
+
+    private record PendingLookup(Long customerId, CompletableFuture<CustomerDto> future, long enqueuedNanos) {
+    }
+}
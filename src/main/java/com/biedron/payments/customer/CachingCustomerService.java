@@ -0,0 +1,70 @@
+package com.biedron.payments.customer;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineStatsCounter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Caches customers in front of another {@link CustomerService}. An entry older than {@code refreshAfter} is
+ * still returned while it is reloaded in the background (stale-while-revalidate), so only a cold or expired
+ * customer waits for the database; a failed reload keeps serving the old entry until {@code ttl}.
+ * Unknown customers are not cached. Hits, misses, loads and load latency are published as {@code cache.*}
+ * meters tagged {@code cache=customers}.
+ */
+@Slf4j
+public class CachingCustomerService implements CustomerService {
+
+    static final String CACHE_NAME = "customers";
+
+    private final LoadingCache<Long, CustomerDto> customers;
+
+    public CachingCustomerService(CustomerService delegate, MeterRegistry meterRegistry, long maximumSize,
+                                  Duration ttl, Duration refreshAfter, Ticker ticker, Executor refreshExecutor) {
+        CaffeineStatsCounter statsCounter = new CaffeineStatsCounter(meterRegistry, CACHE_NAME);
+        this.customers = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .ticker(ticker)
+                .executor(refreshExecutor)
+                .recordStats(() -> statsCounter)
+                .build(new CustomerLoader(delegate));
+        statsCounter.registerSizeMetric(customers);
+    }
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        return customers.get(customerId);
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        return customers.getAll(customerIds);
+    }
+
+    private record CustomerLoader(CustomerService delegate) implements CacheLoader<Long, CustomerDto> {
+
+        @Override
+        public CustomerDto load(Long customerId) {
+            return delegate.getCustomerData(customerId);
+        }
+
+        @Override
+        public Map<Long, CustomerDto> loadAll(Set<? extends Long> customerIds) {
+            log.debug("Loading customers missing in cache", kv("customers_count", customerIds.size()));
+            return delegate.getCustomersData(Set.copyOf(customerIds));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Bloom filter of the ids in the customers table: {@link #mightExist(long)} false means the customer certainly
+ * did not exist at the last refresh, true means it probably exists (false positive rate {@code false-positive-rate}
+ * while the table stays below {@code expected-customers}). Built from all ids at startup, afterwards ids of rows
+ * changed since the previous refresh are added every {@code refresh-interval-ms}. Deleted customers stay in the
+ * filter, they only cost a database lookup.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.application.app.customer-bloom-filter.enabled", havingValue = "true")
+public class CustomerIdBloomFilter {
+
+    private static final int PAGE_SIZE = 50_000;
+
+    private static final Duration REFRESH_OVERLAP = Duration.ofSeconds(5);
+
+    private final CustomerRepository customerRepository;
+
+    private final AtomicLongArray bits;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    private volatile Instant refreshedAt = Instant.EPOCH;
+
+    public CustomerIdBloomFilter(
+            CustomerRepository customerRepository,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.customer-bloom-filter.expected-customers:10000000}") long expectedCustomers,
+            @Value("${spring.application.app.customer-bloom-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.customerRepository = customerRepository;
+        long optimalBits = (long) Math.ceil(-expectedCustomers * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedCustomers * Math.log(2)));
+        meterRegistry.gauge("payment.notifications.customer.bloom.filter.age.seconds", this,
+                filter -> Duration.between(filter.refreshedAt, Instant.now()).toSeconds());
+    }
+
+    @PostConstruct
+    public void build() {
+        Instant buildStart = Instant.now();
+        long lastId = Long.MIN_VALUE;
+        long added = 0;
+        List<Long> page;
+        do {
+            page = customerRepository.findIdsAfter(lastId, PageRequest.ofSize(PAGE_SIZE));
+            page.forEach(this::add);
+            added += page.size();
+            if (!page.isEmpty()) {
+                lastId = page.getLast();
+            }
+        } while (page.size() == PAGE_SIZE);
+        refreshedAt = buildStart;
+
+        log.info("Built customer id bloom filter",
+                kv("customers_count", added),
+                kv("bits", bitCount),
+                kv("hashes", hashCount),
+                kv("duration_ms", Duration.between(buildStart, Instant.now()).toMillis()));
+    }
+
+    @Scheduled(
+            initialDelayString = "${spring.application.app.customer-bloom-filter.refresh-interval-ms:5000}",
+            fixedDelayString = "${spring.application.app.customer-bloom-filter.refresh-interval-ms:5000}")
+    public void refresh() {
+        Instant refreshStart = Instant.now();
+        customerRepository.findIdsUpdatedAfter(refreshedAt.minus(REFRESH_OVERLAP)).forEach(this::add);
+        refreshedAt = refreshStart;
+    }
+
+    public void add(long customerId) {
+        long hash1 = mix(customerId);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            long mask = 1L << bit;
+            bits.accumulateAndGet((int) (bit >>> 6), mask, (current, added) -> current | added);
+        }
+    }
+
+    public boolean mightExist(long customerId) {
+        long hash1 = mix(customerId);
+        long hash2 = mix(hash1) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long mix(long value) {
+        long hash = value * 0x9E37_79B9_7F4A_7C15L;
+        hash ^= hash >>> 32;
+        hash *= 0xBF58_476D_1CE4_E5B9L;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -1,10 +1,20 @@
 package com.biedron.payments.customer;
 
+import lombok.Getter;
+
+@Getter
 public class CustomerNotFoundException extends RuntimeException {
 
+    private final Long customerId;
+
     public CustomerNotFoundException(String message) {
         super(message);
+        this.customerId = null;
     }
 
-}
+    public CustomerNotFoundException(Long customerId) {
+        super("Customer not found: " + customerId);
+        this.customerId = customerId;
+    }
 
+}
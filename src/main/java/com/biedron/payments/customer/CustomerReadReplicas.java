@@ -0,0 +1,208 @@
+package com.biedron.payments.customer;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Read-only PostgreSQL streaming replicas of the customers database. {@link #acquire()} picks the usable replica
+ * with the fewest outstanding reads, rotating between equally loaded ones, so a slow replica gets fewer reads and
+ * each added replica adds throughput. The replay lag of every replica is measured every {@code lag-interval-ms};
+ * a replica that cannot be queried or lags more than {@code max-lag-ms} is not used until the next measurement.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.application.app.customer-read-replicas.enabled", havingValue = "true")
+public class CustomerReadReplicas {
+
+    // a standby that replayed everything it received is current even if the primary had no recent commits,
+    // a server that is not a standby (both lsn null) is never behind
+    private static final String SELECT_LAG_MS = """
+            SELECT CASE WHEN pg_last_wal_receive_lsn() IS NOT DISTINCT FROM pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END""";
+
+    private final List<Replica> replicas;
+
+    private final Duration maxLag;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Autowired
+    public CustomerReadReplicas(
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.customer-read-replicas.urls}") List<String> urls,
+            @Value("${spring.application.app.customer-read-replicas.username:${spring.datasource.username:}}") String username,
+            @Value("${spring.application.app.customer-read-replicas.password:${spring.datasource.password:}}") String password,
+            @Value("${spring.application.app.customer-read-replicas.pool-size:10}") int poolSize,
+            @Value("${spring.application.app.customer-read-replicas.max-lag-ms:5000}") long maxLagMs) {
+        this(createDataSources(urls, username, password, poolSize), meterRegistry, Duration.ofMillis(maxLagMs));
+    }
+
+    CustomerReadReplicas(Map<String, DataSource> dataSources, MeterRegistry meterRegistry, Duration maxLag) {
+        this.replicas = dataSources.entrySet().stream()
+                .map(entry -> new Replica(entry.getKey(), entry.getValue()))
+                .toList();
+        this.maxLag = maxLag;
+        for (Replica replica : replicas) {
+            Tags tags = Tags.of("replica", replica.name);
+            meterRegistry.gauge("payment.notifications.customer.read.replica.lag.ms", tags, replica,
+                    measured -> measured.lag.toMillis());
+            meterRegistry.gauge("payment.notifications.customer.read.replica.outstanding", tags, replica.outstanding);
+            meterRegistry.gauge("payment.notifications.customer.read.replica.usable", tags, replica,
+                    measured -> measured.usable ? 1 : 0);
+        }
+    }
+
+    /**
+     * The usable replica with the fewest outstanding reads, counted as outstanding until {@link Replica#close()},
+     * or null if no replica is usable.
+     */
+    public Replica acquire() {
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(1, replicas.size()));
+        Replica selected = null;
+        int selectedOutstanding = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            int outstanding = replica.outstanding.get();
+            if (replica.usable && outstanding < selectedOutstanding) {
+                selected = replica;
+                selectedOutstanding = outstanding;
+            }
+        }
+        if (selected != null) {
+            selected.outstanding.incrementAndGet();
+        }
+        return selected;
+    }
+
+    @Scheduled(
+            initialDelayString = "${spring.application.app.customer-read-replicas.lag-interval-ms:1000}",
+            fixedDelayString = "${spring.application.app.customer-read-replicas.lag-interval-ms:1000}")
+    public void measureLag() {
+        for (Replica replica : replicas) {
+            boolean wasUsable = replica.usable;
+            try {
+                Double lagMs = replica.jdbcTemplate.queryForObject(SELECT_LAG_MS, Double.class);
+                Duration lag = Duration.ofMillis(lagMs == null ? 0 : lagMs.longValue());
+                replica.measured(lag, lag.compareTo(maxLag) <= 0);
+            } catch (DataAccessException e) {
+                replica.measured(replica.lag, false);
+                log.warn("Could not measure customer read replica lag",
+                        kv("replica", replica.name),
+                        kv("exception", e.getMessage()));
+            }
+            if (wasUsable != replica.usable) {
+                log.info(replica.usable ? "Customer read replica usable again" : "Customer read replica not usable",
+                        kv("replica", replica.name),
+                        kv("lag_ms", replica.lag.toMillis()));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    List<Replica> replicas() {
+        return replicas;
+    }
+
+    private static Map<String, DataSource> createDataSources(List<String> urls, String username, String password,
+                                                             int poolSize) {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("customer-read-replica-" + dataSources.size());
+            config.setJdbcUrl(url.trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setMaximumPoolSize(poolSize);
+            config.setReadOnly(true);
+            // a replica that is down at startup is skipped until its lag can be measured
+            config.setInitializationFailTimeout(-1);
+            dataSources.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        return dataSources;
+    }
+
+    public static class Replica implements AutoCloseable {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private final JdbcTemplate jdbcTemplate;
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private volatile Duration lag = Duration.ZERO;
+
+        // usable only once the lag was measured
+        private volatile boolean usable;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public JdbcTemplate jdbcTemplate() {
+            return jdbcTemplate;
+        }
+
+        /**
+         * Replay lag at the last measurement.
+         */
+        public Duration lag() {
+            return lag;
+        }
+
+        int outstanding() {
+            return outstanding.get();
+        }
+
+        void measured(Duration lag, boolean usable) {
+            this.lag = lag;
+            this.usable = usable;
+        }
+
+        @Override
+        public void close() {
+            outstanding.decrementAndGet();
+        }
+    }
+}
@@ -1,14 +1,31 @@
 package com.biedron.payments.customer;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
-}
 
+    /**
+     * One statement for any number of ids, unlike {@code findAllById} whose {@code IN} list changes with the count.
+     */
+    @Query(value = "SELECT * FROM customers WHERE id = ANY(:ids)", nativeQuery = true)
+    List<Customer> findAllByIdAny(@Param("ids") Long[] ids);
+
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<Customer> findByUpdatedAtAfterOrderByUpdatedAtAscIdAsc(Instant updatedAt, Pageable pageable);
+
+    @Query("SELECT c.id FROM Customer c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT c.id FROM Customer c WHERE c.updatedAt > :since")
+    List<Long> findIdsUpdatedAfter(@Param("since") Instant since);
+}
@@ -1,7 +1,14 @@
 package com.biedron.payments.customer;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface CustomerService {
 
     CustomerDto getCustomerData(Long customerId);
-}
 
+    /**
+     * Resolves many customers at once. Customers that do not exist are absent from the returned map.
+     */
+    Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds);
+}
@@ -0,0 +1,155 @@
+package com.biedron.payments.customer;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Assembles the {@link CustomerService} used by the enrichment: the JPA or JDBC database lookup, routed to the
+ * read replicas when configured, behind the local replica when enabled, wrapped in the enabled decorators.
+ * Decorators owning threads are closed when the context shuts down. The {@link CustomerWarmUp} preloads into the
+ * cache itself, so its lookups are neither tracked as hot nor filtered by the negative cache.
+ */
+@Configuration
+public class CustomerServiceConfig {
+
+    @Value("${spring.application.app.customer-read-replicas.freshness-margin-ms:1000}")
+    private long readReplicasFreshnessMarginMs;
+
+    @Value("${spring.application.app.customer-batching.enabled:false}")
+    private boolean batchingEnabled;
+
+    @Value("${spring.application.app.customer-batching.max-batch-size:128}")
+    private int batchingMaxBatchSize;
+
+    @Value("${spring.application.app.customer-batching.max-wait-micros:1000}")
+    private long batchingMaxWaitMicros;
+
+    @Value("${spring.application.app.customer-single-flight.enabled:false}")
+    private boolean singleFlightEnabled;
+
+    @Value("${spring.application.app.customer-cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${spring.application.app.customer-cache.maximum-size:100000}")
+    private long cacheMaximumSize;
+
+    @Value("${spring.application.app.customer-cache.ttl-ms:3600000}")
+    private long cacheTtlMs;
+
+    @Value("${spring.application.app.customer-cache.refresh-after-ms:300000}")
+    private long cacheRefreshAfterMs;
+
+    @Value("${spring.application.app.customer-negative-cache.enabled:false}")
+    private boolean negativeCacheEnabled;
+
+    @Value("${spring.application.app.customer-negative-cache.maximum-size:100000}")
+    private long negativeCacheMaximumSize;
+
+    @Value("${spring.application.app.customer-negative-cache.ttl-ms:30000}")
+    private long negativeCacheTtlMs;
+
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+
+    private CachingCustomerService cachingCustomerService;
+
+    @Bean
+    @Primary
+    public CustomerService customerService(DatabaseCustomerService databaseCustomerService,
+                                           ObjectProvider<JdbcCustomerService> jdbcCustomerService,
+                                           ObjectProvider<MappedCustomerReplica> mappedCustomerReplica,
+                                           ObjectProvider<CustomerReadReplicas> customerReadReplicas,
+                                           ObjectProvider<CustomerIdBloomFilter> customerIdBloomFilter,
+                                           ObjectProvider<HotCustomerTracker> hotCustomerTracker,
+                                           MeterRegistry meterRegistry) {
+        CustomerService customerService = Objects.requireNonNullElse(jdbcCustomerService.getIfAvailable(),
+                databaseCustomerService);
+        CustomerReadReplicas readReplicas = customerReadReplicas.getIfAvailable();
+        if (readReplicas != null) {
+            customerService = new ReadReplicaCustomerService(readReplicas, customerService, meterRegistry,
+                    Duration.ofMillis(readReplicasFreshnessMarginMs));
+        }
+        MappedCustomerReplica replica = mappedCustomerReplica.getIfAvailable();
+        if (replica != null) {
+            customerService = new MappedReplicaCustomerService(replica, customerService, meterRegistry);
+        }
+        if (batchingEnabled) {
+            BatchingCustomerService batchingCustomerService = new BatchingCustomerService(customerService,
+                    meterRegistry, batchingMaxBatchSize, Duration.ofNanos(batchingMaxWaitMicros * 1000));
+            closeables.add(batchingCustomerService);
+            customerService = batchingCustomerService;
+        }
+        if (singleFlightEnabled) {
+            customerService = new SingleFlightCustomerService(customerService, meterRegistry);
+        }
+        if (cacheEnabled) {
+            ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            closeables.add(refreshExecutor);
+            cachingCustomerService = new CachingCustomerService(customerService, meterRegistry, cacheMaximumSize,
+                    Duration.ofMillis(cacheTtlMs), Duration.ofMillis(cacheRefreshAfterMs), Ticker.systemTicker(),
+                    refreshExecutor);
+            customerService = cachingCustomerService;
+        }
+        CustomerIdBloomFilter bloomFilter = customerIdBloomFilter.getIfAvailable();
+        if (negativeCacheEnabled || bloomFilter != null) {
+            customerService = new NegativeCachingCustomerService(customerService, meterRegistry,
+                    negativeCacheEnabled ? negativeCacheMaximumSize : 0, Duration.ofMillis(negativeCacheTtlMs),
+                    bloomFilter != null ? bloomFilter::mightExist : customerId -> true, Ticker.systemTicker());
+        }
+        HotCustomerTracker tracker = hotCustomerTracker.getIfAvailable();
+        if (tracker != null) {
+            customerService = new HotCustomerTrackingCustomerService(customerService, tracker);
+        }
+        return customerService;
+    }
+
+    /**
+     * Closes the outermost decorator first, so nothing is dispatched to an inner one already closed.
+     */
+    @PreDestroy
+    public void close() throws Exception {
+        for (AutoCloseable closeable : closeables.reversed()) {
+            closeable.close();
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.application.app.customer-warm-up.enabled", havingValue = "true")
+    public HotCustomerTracker hotCustomerTracker(@Value("${spring.application.app.customer-warm-up.top-k:10000}") int topK) {
+        return new HotCustomerTracker(topK);
+    }
+
+    /**
+     * Takes the assembled {@code customerService} only so the cache exists before the warm-up is built.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.application.app.customer-warm-up.enabled", havingValue = "true")
+    public CustomerWarmUp customerWarmUp(
+            CustomerService customerService,
+            HotCustomerTracker hotCustomerTracker,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.customer-warm-up.directory:/var/lib/payment-notifications}") Path directory,
+            @Value("${spring.application.app.customer-warm-up.top-k:10000}") int topK,
+            @Value("${spring.application.app.customer-warm-up.preload-batch-size:1000}") int preloadBatchSize) {
+        if (cachingCustomerService == null) {
+            throw new IllegalStateException("spring.application.app.customer-warm-up.enabled requires "
+                    + "spring.application.app.customer-cache.enabled, there is no cache to preload");
+        }
+        return new CustomerWarmUp(cachingCustomerService, hotCustomerTracker, meterRegistry, directory, topK,
+                preloadBatchSize);
+    }
+}
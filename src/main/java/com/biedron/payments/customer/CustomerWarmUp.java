@@ -0,0 +1,157 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Keeps a snapshot of the most looked-up customer ids ({@link HotCustomerTracker}) in {@code hot-customers.txt}
+ * in {@code directory}, written every {@code snapshot-interval-ms} and on shutdown, and preloads those customers
+ * into the {@link CachingCustomerService} on startup, past the tracker so the preload does not count as lookups. It starts before the Kafka listener containers and readiness
+ * only reports UP once the context started, so no event is consumed with a cold cache. Ids of the previous
+ * snapshot fill up a snapshot taken shortly after a restart.
+ */
+@Slf4j
+public class CustomerWarmUp implements SmartLifecycle {
+
+    static final String SNAPSHOT_FILE = "hot-customers.txt";
+
+    // Kafka listener containers start in phase Integer.MAX_VALUE - 100
+    private static final int PHASE = Integer.MAX_VALUE - 1000;
+
+    private final CustomerService customerService;
+
+    private final HotCustomerTracker hotCustomerTracker;
+
+    private final Path snapshot;
+
+    private final int topK;
+
+    private final int preloadBatchSize;
+
+    private final Timer preloadDuration;
+
+    private final AtomicLong preloadedCustomers = new AtomicLong();
+
+    private final AtomicLong preloadCoveragePercent = new AtomicLong();
+
+    private List<Long> previousSnapshot = List.of();
+
+    private volatile boolean running;
+
+    public CustomerWarmUp(
+            CustomerService customerService,
+            HotCustomerTracker hotCustomerTracker,
+            MeterRegistry meterRegistry,
+            Path directory,
+            int topK,
+            int preloadBatchSize) {
+        this.customerService = customerService;
+        this.hotCustomerTracker = hotCustomerTracker;
+        this.snapshot = directory.resolve(SNAPSHOT_FILE);
+        this.topK = topK;
+        this.preloadBatchSize = preloadBatchSize;
+        this.preloadDuration = meterRegistry.timer("payment.notifications.customer.warmup.duration");
+        meterRegistry.gauge("payment.notifications.customer.warmup.customers", preloadedCustomers);
+        meterRegistry.gauge("payment.notifications.customer.warmup.coverage.percent", preloadCoveragePercent);
+    }
+
+    @Override
+    public void start() {
+        previousSnapshot = readSnapshot();
+        preloadDuration.record(() -> preload(previousSnapshot));
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        writeSnapshot();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @Scheduled(
+            initialDelayString = "${spring.application.app.customer-warm-up.snapshot-interval-ms:60000}",
+            fixedDelayString = "${spring.application.app.customer-warm-up.snapshot-interval-ms:60000}")
+    public void writeSnapshot() {
+        Set<Long> hotCustomers = new LinkedHashSet<>(hotCustomerTracker.top());
+        for (Long customerId : previousSnapshot) {
+            if (hotCustomers.size() >= topK) {
+                break;
+            }
+            hotCustomers.add(customerId);
+        }
+        if (hotCustomers.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(snapshot.getParent());
+            Path temporary = Files.createTempFile(snapshot.getParent(), SNAPSHOT_FILE, ".tmp");
+            Files.write(temporary, hotCustomers.stream().limit(topK).map(String::valueOf).toList());
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write hot customers snapshot",
+                    kv("path", snapshot),
+                    kv("exception", e.getMessage()));
+        }
+    }
+
+    private void preload(List<Long> customerIds) {
+        long loaded = 0;
+        for (int from = 0; from < customerIds.size(); from += preloadBatchSize) {
+            List<Long> batch = customerIds.subList(from, Math.min(customerIds.size(), from + preloadBatchSize));
+            try {
+                loaded += customerService.getCustomersData(batch).size();
+            } catch (RuntimeException e) {
+                log.warn("Could not preload customers, continuing with a cold cache",
+                        kv("exception", e.getMessage()));
+                break;
+            }
+        }
+        preloadedCustomers.set(loaded);
+        preloadCoveragePercent.set(customerIds.isEmpty() ? 0 : loaded * 100 / customerIds.size());
+        log.info("Preloaded hot customers",
+                kv("snapshot_size", customerIds.size()),
+                kv("customers_count", loaded));
+    }
+
+    private List<Long> readSnapshot() {
+        if (!Files.exists(snapshot)) {
+            return List.of();
+        }
+        try (var lines = Files.lines(snapshot)) {
+            return lines.filter(line -> !line.isBlank())
+                    .map(Long::valueOf)
+                    .limit(topK)
+                    .toList();
+        } catch (IOException | UncheckedIOException | NumberFormatException e) {
+            log.warn("Could not read hot customers snapshot",
+                    kv("path", snapshot),
+                    kv("exception", e.getMessage()));
+            return List.of();
+        }
+    }
+}
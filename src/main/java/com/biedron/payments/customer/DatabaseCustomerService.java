@@ -5,6 +5,11 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
@@ -21,7 +26,7 @@ public class DatabaseCustomerService implements CustomerService {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> {
                     log.error("Customer not found", kv("customer_id", customerId));
-                    return new CustomerNotFoundException("Customer not found: " + customerId);
+                    return new CustomerNotFoundException(customerId);
                 });
 
         log.info("Successfully fetched customer data from database",
@@ -29,6 +34,25 @@ public class DatabaseCustomerService implements CustomerService {
                 kv("customer_email", customer.getEmail()),
                 kv("customer_name", customer.getName()));
 
+        return toCustomerDto(customer);
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        log.info("Fetching customers data from database", kv("customers_count", customerIds.size()));
+
+        Map<Long, CustomerDto> customers = customerRepository.findAllByIdAny(customerIds.toArray(Long[]::new)).stream()
+                .map(this::toCustomerDto)
+                .collect(Collectors.toMap(CustomerDto::getCustomerId, Function.identity()));
+
+        log.info("Successfully fetched customers data from database",
+                kv("customers_count", customerIds.size()),
+                kv("found_count", customers.size()));
+
+        return customers;
+    }
+
+    private CustomerDto toCustomerDto(Customer customer) {
         return CustomerDto.builder()
                 .customerId(customer.getId())
                 .customerEmail(customer.getEmail())
@@ -36,4 +60,3 @@ public class DatabaseCustomerService implements CustomerService {
                 .build();
     }
 }
-
@@ -0,0 +1,82 @@
+package com.biedron.payments.customer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate most looked-up customers using the Space-Saving algorithm: at most {@code capacity} ids are counted,
+ * and a new id replaces the one with the lowest count, inheriting that count. Every id looked up more often than
+ * {@code 1 / capacity} of all lookups is guaranteed to be kept. A lookup that finds the tracker busy is not counted,
+ * so under contention the counts become a sample instead of slowing the lookup down.
+ */
+public class HotCustomerTracker {
+
+    private final int capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<Long, long[]> counts = new HashMap<>();
+
+    private final TreeMap<Long, Set<Long>> idsByCount = new TreeMap<>();
+
+    public HotCustomerTracker(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void record(Long customerId) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            long[] count = counts.get(customerId);
+            if (count != null) {
+                move(customerId, count[0], count[0] + 1);
+                count[0]++;
+            } else if (counts.size() < capacity) {
+                counts.put(customerId, new long[]{1});
+                idsByCount.computeIfAbsent(1L, key -> new LinkedHashSet<>()).add(customerId);
+            } else {
+                Map.Entry<Long, Set<Long>> lowest = idsByCount.firstEntry();
+                Long evicted = lowest.getValue().iterator().next();
+                counts.remove(evicted);
+                move(evicted, lowest.getKey(), -1);
+                long inherited = lowest.getKey() + 1;
+                counts.put(customerId, new long[]{inherited});
+                idsByCount.computeIfAbsent(inherited, key -> new LinkedHashSet<>()).add(customerId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tracked ids, most looked-up first.
+     */
+    public List<Long> top() {
+        lock.lock();
+        try {
+            List<Long> top = new ArrayList<>(counts.size());
+            idsByCount.descendingMap().values().forEach(top::addAll);
+            return top;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void move(Long customerId, long from, long to) {
+        Set<Long> ids = idsByCount.get(from);
+        ids.remove(customerId);
+        if (ids.isEmpty()) {
+            idsByCount.remove(from);
+        }
+        if (to > 0) {
+            idsByCount.computeIfAbsent(to, key -> new LinkedHashSet<>()).add(customerId);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.biedron.payments.customer;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Feeds every looked-up customer id to the {@link HotCustomerTracker} before delegating.
+ */
+@RequiredArgsConstructor
+public class HotCustomerTrackingCustomerService implements CustomerService {
+
+    private final CustomerService delegate;
+
+    private final HotCustomerTracker hotCustomerTracker;
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        hotCustomerTracker.record(customerId);
+        return delegate.getCustomerData(customerId);
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        customerIds.forEach(hotCustomerTracker::record);
+        return delegate.getCustomersData(customerIds);
+    }
+}
@@ -0,0 +1,60 @@
+package com.biedron.payments.customer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Read-only customer lookup selecting just the three columns the enrichment needs straight into
+ * {@link CustomerDto}, without an entity, persistence context or dirty-checking snapshot. Both statements have a
+ * fixed text regardless of the number of ids, so the PostgreSQL driver keeps them prepared on the server once
+ * they were used {@code prepareThreshold} times on a connection.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(name = "spring.application.app.customer-lookup", havingValue = "jdbc")
+public class JdbcCustomerService implements CustomerService {
+
+    private static final String SELECT_CUSTOMER = "SELECT id, email, name FROM customers WHERE id = ?";
+
+    private static final String SELECT_CUSTOMERS = "SELECT id, email, name FROM customers WHERE id = ANY(?)";
+
+    private static final RowMapper<CustomerDto> CUSTOMER_ROW_MAPPER = (resultSet, rowNumber) -> CustomerDto.builder()
+            .customerId(resultSet.getLong(1))
+            .customerEmail(resultSet.getString(2))
+            .customerName(resultSet.getString(3))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        List<CustomerDto> customers = jdbcTemplate.query(SELECT_CUSTOMER, CUSTOMER_ROW_MAPPER, customerId);
+        if (customers.isEmpty()) {
+            log.error("Customer not found", kv("customer_id", customerId));
+            throw new CustomerNotFoundException(customerId);
+        }
+        return customers.getFirst();
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        log.debug("Fetching customers data from database", kv("customers_count", customerIds.size()));
+
+        return jdbcTemplate.query(SELECT_CUSTOMERS, CUSTOMER_ROW_MAPPER, (Object) customerIds.toArray(Long[]::new))
+                .stream()
+                .collect(Collectors.toMap(CustomerDto::getCustomerId, Function.identity()));
+    }
+}
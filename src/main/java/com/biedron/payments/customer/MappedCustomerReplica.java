@@ -0,0 +1,151 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Local replica of the customers table in a {@link MappedCustomerStore}. The table is bulk-loaded on the first
+ * start only, a restart reopens the mapped files and catches up from the stored watermark. Changes are pulled
+ * every {@code poll-interval-ms} by {@code updated_at}, re-reading {@code poll-overlap-ms} before the watermark
+ * so rows committed late with an older timestamp are not missed. Lookups go through
+ * {@link MappedReplicaCustomerService}, which reads customers missing in the replica from the database.
+ * Deleted rows are not seen by the poll, so a deleted customer stays in the replica until the files are rebuilt
+ * (by removing them or changing the sizing); customers are expected to be deactivated rather than deleted.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.application.app.customer-replica.enabled", havingValue = "true")
+public class MappedCustomerReplica {
+
+    private final CustomerRepository customerRepository;
+
+    private final MappedCustomerStore store;
+
+    private final int pageSize;
+
+    private final Duration pollOverlap;
+
+    private boolean fullReported;
+
+    public MappedCustomerReplica(
+            CustomerRepository customerRepository,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.customer-replica.directory:/var/lib/payment-notifications/customers}") Path directory,
+            @Value("${spring.application.app.customer-replica.max-customers:50000000}") long maxCustomers,
+            @Value("${spring.application.app.customer-replica.data-capacity-bytes:8589934592}") long dataCapacityBytes,
+            @Value("${spring.application.app.customer-replica.page-size:10000}") int pageSize,
+            @Value("${spring.application.app.customer-replica.poll-overlap-ms:5000}") long pollOverlapMs) throws IOException {
+        this.customerRepository = customerRepository;
+        this.store = MappedCustomerStore.open(directory, maxCustomers, dataCapacityBytes);
+        this.pageSize = pageSize;
+        this.pollOverlap = Duration.ofMillis(pollOverlapMs);
+        meterRegistry.gauge("payment.notifications.customer.replica.size", store, MappedCustomerStore::size);
+        meterRegistry.gauge("payment.notifications.customer.replica.watermark.age.seconds", store,
+                replicaStore -> replicaStore.watermark() == Long.MIN_VALUE ? 0
+                        : Duration.between(toInstant(replicaStore.watermark()), Instant.now()).toSeconds());
+    }
+
+    @PostConstruct
+    public void load() {
+        if (store.reopened()) {
+            log.info("Reopened customer replica",
+                    kv("customers_count", store.size()),
+                    kv("watermark", toInstant(store.watermark())));
+        } else {
+            bulkLoad();
+        }
+        poll();
+    }
+
+    @Scheduled(
+            initialDelayString = "${spring.application.app.customer-replica.poll-interval-ms:5000}",
+            fixedDelayString = "${spring.application.app.customer-replica.poll-interval-ms:5000}")
+    public synchronized void poll() {
+        Instant since = toInstant(store.watermark()).minus(pollOverlap);
+        long watermark = store.watermark();
+        int applied = 0;
+        List<Customer> page;
+        int pageNumber = 0;
+        do {
+            page = customerRepository.findByUpdatedAtAfterOrderByUpdatedAtAscIdAsc(since, PageRequest.of(pageNumber++, pageSize));
+            for (Customer customer : page) {
+                store(customer);
+                watermark = Math.max(watermark, toMicros(customer.getUpdatedAt()));
+            }
+            applied += page.size();
+        } while (page.size() == pageSize);
+
+        store.watermark(watermark);
+        if (applied > 0) {
+            store.force();
+            log.debug("Applied customer changes to replica",
+                    kv("changes_count", applied),
+                    kv("watermark", toInstant(watermark)));
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * The stored customer, null when the replica does not have it.
+     */
+    public CustomerDto get(Long customerId) {
+        return store.get(customerId);
+    }
+
+    private synchronized void bulkLoad() {
+        log.info("Bulk loading customer replica");
+        Instant loadStart = Instant.now();
+        long lastId = Long.MIN_VALUE;
+        List<Customer> page;
+        do {
+            page = customerRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.ofSize(pageSize));
+            for (Customer customer : page) {
+                store(customer);
+                lastId = customer.getId();
+            }
+        } while (page.size() == pageSize);
+
+        // rows changed while loading have a newer updated_at and are picked up by the first poll
+        store.watermark(toMicros(loadStart));
+        store.force();
+        log.info("Bulk loaded customer replica",
+                kv("customers_count", store.size()),
+                kv("duration_ms", Duration.between(loadStart, Instant.now()).toMillis()));
+    }
+
+    private void store(Customer customer) {
+        if (!store.put(customer.getId(), customer.getEmail(), customer.getName()) && !fullReported) {
+            fullReported = true;
+            log.warn("Customer replica is full, new and updated customers that do not fit are read from the database",
+                    kv("customers_count", store.size()));
+        }
+    }
+
+    private static long toMicros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static Instant toInstant(long micros) {
+        return micros == Long.MIN_VALUE ? Instant.EPOCH : Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,257 @@
+package com.biedron.payments.customer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Customers kept outside the heap in two memory-mapped files, so they survive a restart and a lookup does not
+ * allocate anything until the found record is decoded.
+ * <ul>
+ *     <li>{@code customers.dat} - a header followed by append-only records {@code id, email length, name length,
+ *     email, name} (UTF-8), each padded to a multiple of 8 bytes so every record and its id start 8-byte aligned.
+ *     An update appends a new record, the old one stays as garbage until the files are rebuilt.</li>
+ *     <li>{@code customers.idx} - an open-addressing hash table of {@code (id, record position)} slots with linear
+ *     probing, sized for {@code maxCustomers} at a load factor of at most 0.5.</li>
+ * </ul>
+ * One writer and any number of readers: a slot's position is published with release semantics after its record
+ * and id are written, and readers read it with acquire semantics first. There is no removal, but when an update
+ * does not fit into the data file any more the slot is redirected to {@link #UNAVAILABLE}, so the customer reads
+ * as absent instead of stale, and the next {@link #open} rebuilds the files to compact the replaced records away.
+ */
+class MappedCustomerStore implements Closeable {
+
+    static final String DATA_FILE = "customers.dat";
+
+    static final String INDEX_FILE = "customers.idx";
+
+    private static final long MAGIC = 0x4355_5354_0000_0001L;
+
+    private static final long MAGIC_POSITION = 0;
+
+    private static final long SLOTS_POSITION = 8;
+
+    private static final long WRITE_POSITION_POSITION = 16;
+
+    private static final long WATERMARK_POSITION = 24;
+
+    private static final long COUNT_POSITION = 32;
+
+    private static final long HEADER_SIZE = 64;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    private static final int RECORD_ALIGNMENT = 8;
+
+    // slot position of a customer whose current record could not be stored, never a valid record position
+    private static final long UNAVAILABLE = -1;
+
+    private final MappedFile data;
+
+    private final MappedFile index;
+
+    private final long mask;
+
+    private final long maxCount;
+
+    private final boolean reopened;
+
+    private MappedCustomerStore(MappedFile data, MappedFile index, long slots, boolean reopened) {
+        this.data = data;
+        this.index = index;
+        this.mask = slots - 1;
+        this.maxCount = slots / 2;
+        this.reopened = reopened;
+    }
+
+    /**
+     * Reopens the files in {@code directory} when they were written with the same sizing, otherwise starts empty.
+     */
+    static MappedCustomerStore open(Path directory, long maxCustomers, long dataCapacityBytes) throws IOException {
+        long slots = Long.highestOneBit(Math.max(16, maxCustomers * 2 - 1)) << 1;
+        Path dataPath = directory.resolve(DATA_FILE);
+        Path indexPath = directory.resolve(INDEX_FILE);
+        Files.createDirectories(directory);
+
+        if (Files.exists(dataPath) && Files.exists(indexPath)
+                && Files.size(dataPath) == dataCapacityBytes && Files.size(indexPath) == slots * SLOT_SIZE) {
+            MappedFile data = new MappedFile(dataPath, dataCapacityBytes);
+            if (data.getLong(MAGIC_POSITION) == MAGIC && data.getLong(SLOTS_POSITION) == slots) {
+                return new MappedCustomerStore(data, new MappedFile(indexPath, slots * SLOT_SIZE), slots, true);
+            }
+            data.close();
+        }
+
+        Files.deleteIfExists(dataPath);
+        Files.deleteIfExists(indexPath);
+        MappedFile data = new MappedFile(dataPath, dataCapacityBytes);
+        MappedFile index = new MappedFile(indexPath, slots * SLOT_SIZE);
+        data.putLong(SLOTS_POSITION, slots);
+        data.putLong(WRITE_POSITION_POSITION, HEADER_SIZE);
+        data.putLong(WATERMARK_POSITION, Long.MIN_VALUE);
+        data.putLong(COUNT_POSITION, 0);
+        data.putLong(MAGIC_POSITION, MAGIC);
+        return new MappedCustomerStore(data, index, slots, false);
+    }
+
+    boolean reopened() {
+        return reopened;
+    }
+
+    long size() {
+        return data.getLong(COUNT_POSITION);
+    }
+
+    /**
+     * Epoch microseconds of the newest {@code updated_at} applied, {@link Long#MIN_VALUE} when nothing was loaded yet.
+     */
+    long watermark() {
+        return data.getLong(WATERMARK_POSITION);
+    }
+
+    synchronized void watermark(long watermark) {
+        data.putLong(WATERMARK_POSITION, watermark);
+    }
+
+    /**
+     * Position of the customer's record, 0 when absent or unavailable.
+     */
+    long find(long customerId) {
+        long recordPosition = lookup(customerId);
+        return recordPosition == UNAVAILABLE ? 0 : recordPosition;
+    }
+
+    private long lookup(long customerId) {
+        long slot = hash(customerId) & mask;
+        while (true) {
+            long slotPosition = slot * SLOT_SIZE;
+            long recordPosition = index.getLongAcquire(slotPosition + 8);
+            if (recordPosition == 0) {
+                return 0;
+            }
+            if (index.getLong(slotPosition) == customerId) {
+                return recordPosition;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    CustomerDto get(long customerId) {
+        long recordPosition = find(customerId);
+        if (recordPosition == 0) {
+            return null;
+        }
+        byte[] email = new byte[data.getUnsignedShort(recordPosition + 8)];
+        byte[] name = new byte[data.getUnsignedShort(recordPosition + 10)];
+        data.getBytes(recordPosition + RECORD_HEADER_SIZE, email);
+        data.getBytes(recordPosition + RECORD_HEADER_SIZE + email.length, name);
+        return CustomerDto.builder()
+                .customerId(customerId)
+                .customerEmail(new String(email, StandardCharsets.UTF_8))
+                .customerName(new String(name, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * Inserts or replaces a customer. Returns false when the data file or the index is full; a customer whose update
+     * did not fit is no longer found, so it is read from the database instead of served stale.
+     */
+    synchronized boolean put(long customerId, String email, String name) {
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        long existing = lookup(customerId);
+        if (existing > 0 && sameRecord(existing, emailBytes, nameBytes)) {
+            return true;
+        }
+        if (existing == 0 && size() >= maxCount) {
+            return false;
+        }
+
+        int recordSize = RECORD_HEADER_SIZE + emailBytes.length + nameBytes.length;
+        // files written before records were padded may have an unaligned write position
+        long recordPosition = align(data.getLong(WRITE_POSITION_POSITION));
+        if (MappedFile.remainingInChunk(recordPosition) < recordSize) {
+            recordPosition += MappedFile.remainingInChunk(recordPosition);
+        }
+        if (recordPosition + recordSize > data.size()) {
+            if (existing > 0) {
+                // replaced records are garbage only a new load reclaims, so the next open rebuilds the files
+                publish(customerId, UNAVAILABLE, false);
+                invalidate();
+            }
+            return false;
+        }
+        data.putLong(recordPosition, customerId);
+        data.putUnsignedShort(recordPosition + 8, emailBytes.length);
+        data.putUnsignedShort(recordPosition + 10, nameBytes.length);
+        data.putBytes(recordPosition + RECORD_HEADER_SIZE, emailBytes);
+        data.putBytes(recordPosition + RECORD_HEADER_SIZE + emailBytes.length, nameBytes);
+        data.putLong(WRITE_POSITION_POSITION, align(recordPosition + recordSize));
+
+        publish(customerId, recordPosition, existing == 0);
+        return true;
+    }
+
+    private void invalidate() {
+        data.putLong(MAGIC_POSITION, 0);
+        data.force();
+    }
+
+    void force() {
+        data.force();
+        index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        data.close();
+        index.close();
+    }
+
+    private void publish(long customerId, long recordPosition, boolean newCustomer) {
+        long slot = hash(customerId) & mask;
+        while (true) {
+            long slotPosition = slot * SLOT_SIZE;
+            long current = index.getLong(slotPosition + 8);
+            if (current == 0) {
+                index.putLong(slotPosition, customerId);
+                index.putLongRelease(slotPosition + 8, recordPosition);
+                break;
+            }
+            if (index.getLong(slotPosition) == customerId) {
+                index.putLongRelease(slotPosition + 8, recordPosition);
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (newCustomer) {
+            data.putLong(COUNT_POSITION, size() + 1);
+        }
+    }
+
+    private boolean sameRecord(long recordPosition, byte[] email, byte[] name) {
+        if (data.getUnsignedShort(recordPosition + 8) != email.length
+                || data.getUnsignedShort(recordPosition + 10) != name.length) {
+            return false;
+        }
+        byte[] stored = new byte[email.length + name.length];
+        data.getBytes(recordPosition + RECORD_HEADER_SIZE, stored);
+        return Arrays.equals(stored, 0, email.length, email, 0, email.length)
+                && Arrays.equals(stored, email.length, stored.length, name, 0, name.length);
+    }
+
+    private static long align(long position) {
+        return (position + RECORD_ALIGNMENT - 1) & -RECORD_ALIGNMENT;
+    }
+
+    private static long hash(long customerId) {
+        long hash = customerId * 0x9E37_79B9_7F4A_7C15L;
+        return hash ^ (hash >>> 32);
+    }
+}
@@ -0,0 +1,101 @@
+package com.biedron.payments.customer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * File mapped into memory in chunks of {@link #CHUNK_SIZE}, since one {@link MappedByteBuffer} is limited to 2 GiB.
+ * Values must not span two chunks; callers keep longs 8-byte aligned, which the acquire and release accessors
+ * require, and start records that would not fit the rest of a chunk at the next one.
+ */
+class MappedFile implements Closeable {
+
+    static final int CHUNK_SIZE = 1 << 30;
+
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] chunks;
+
+    private final long size;
+
+    MappedFile(Path path, long size) throws IOException {
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+        this.size = size;
+        this.chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i * CHUNK_SIZE;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(CHUNK_SIZE, size - start));
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    long getLong(long position) {
+        return (long) LONG.get(chunk(position), offset(position));
+    }
+
+    long getLongAcquire(long position) {
+        return (long) LONG.getAcquire(chunk(position), offset(position));
+    }
+
+    void putLong(long position, long value) {
+        LONG.set(chunk(position), offset(position), value);
+    }
+
+    void putLongRelease(long position, long value) {
+        LONG.setRelease(chunk(position), offset(position), value);
+    }
+
+    int getUnsignedShort(long position) {
+        return chunk(position).getChar(offset(position));
+    }
+
+    void putUnsignedShort(long position, int value) {
+        chunk(position).putChar(offset(position), (char) value);
+    }
+
+    void getBytes(long position, byte[] destination) {
+        chunk(position).get(offset(position), destination);
+    }
+
+    void putBytes(long position, byte[] source) {
+        chunk(position).put(offset(position), source);
+    }
+
+    static long remainingInChunk(long position) {
+        return CHUNK_SIZE - position % CHUNK_SIZE;
+    }
+
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private MappedByteBuffer chunk(long position) {
+        return chunks[(int) (position / CHUNK_SIZE)];
+    }
+
+    private static int offset(long position) {
+        return (int) (position % CHUNK_SIZE);
+    }
+}
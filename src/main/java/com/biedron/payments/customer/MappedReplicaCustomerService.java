@@ -0,0 +1,61 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads customers from the {@link MappedCustomerReplica}. Customers missing in the replica (created since the
+ * last poll, or not stored because it is full) are read from the {@code fallback} service, the database lookup
+ * the replica was put in front of, including its read replica routing. Misses are counted as
+ * {@code payment.notifications.customer.replica.misses}.
+ */
+public class MappedReplicaCustomerService implements CustomerService {
+
+    private final MappedCustomerReplica replica;
+
+    private final CustomerService fallback;
+
+    private final Counter misses;
+
+    public MappedReplicaCustomerService(MappedCustomerReplica replica, CustomerService fallback,
+                                        MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.fallback = fallback;
+        this.misses = meterRegistry.counter("payment.notifications.customer.replica.misses");
+    }
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        CustomerDto customer = replica.get(customerId);
+        if (customer != null) {
+            return customer;
+        }
+        misses.increment();
+        return fallback.getCustomerData(customerId);
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        Map<Long, CustomerDto> customers = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long customerId : customerIds) {
+            CustomerDto customer = replica.get(customerId);
+            if (customer != null) {
+                customers.put(customerId, customer);
+            } else {
+                missing.add(customerId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            misses.increment(missing.size());
+            customers.putAll(fallback.getCustomersData(missing));
+        }
+        return customers;
+    }
+}
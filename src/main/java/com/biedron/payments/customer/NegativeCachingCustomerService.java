@@ -0,0 +1,98 @@
+package com.biedron.payments.customer;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Rejects lookups of unknown customers without querying the delegate: ids the delegate reported missing are
+ * remembered for {@code ttl} (at most {@code maximumSize} of them), and ids for which {@code mightExist} is false
+ * (e.g. {@link CustomerIdBloomFilter#mightExist}) are rejected right away. Rejections are counted as
+ * {@code payment.notifications.customer.unknown.rejected} tagged with the {@code reason}.
+ */
+@Slf4j
+public class NegativeCachingCustomerService implements CustomerService {
+
+    private final CustomerService delegate;
+
+    private final Cache<Long, Boolean> missingCustomers;
+
+    private final LongPredicate mightExist;
+
+    private final Counter negativeCacheRejections;
+
+    private final Counter filterRejections;
+
+    public NegativeCachingCustomerService(CustomerService delegate, MeterRegistry meterRegistry, long maximumSize,
+                                          Duration ttl, LongPredicate mightExist, Ticker ticker) {
+        this.delegate = delegate;
+        this.missingCustomers = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .build();
+        this.mightExist = mightExist;
+        this.negativeCacheRejections = meterRegistry.counter("payment.notifications.customer.unknown.rejected",
+                "reason", "negative-cache");
+        this.filterRejections = meterRegistry.counter("payment.notifications.customer.unknown.rejected",
+                "reason", "bloom-filter");
+    }
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        if (isKnownMissing(customerId)) {
+            log.debug("Rejected lookup of unknown customer", kv("customer_id", customerId));
+            throw new CustomerNotFoundException(customerId);
+        }
+        try {
+            return delegate.getCustomerData(customerId);
+        } catch (CustomerNotFoundException e) {
+            missingCustomers.put(customerId, Boolean.TRUE);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        List<Long> candidates = new ArrayList<>(customerIds.size());
+        for (Long customerId : customerIds) {
+            if (!isKnownMissing(customerId)) {
+                candidates.add(customerId);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, CustomerDto> customers = delegate.getCustomersData(candidates);
+        for (Long customerId : candidates) {
+            if (!customers.containsKey(customerId)) {
+                missingCustomers.put(customerId, Boolean.TRUE);
+            }
+        }
+        return customers;
+    }
+
+    private boolean isKnownMissing(Long customerId) {
+        if (!mightExist.test(customerId)) {
+            filterRejections.increment();
+            return true;
+        }
+        if (missingCustomers.getIfPresent(customerId) != null) {
+            negativeCacheRejections.increment();
+            return true;
+        }
+        return false;
+    }
+}
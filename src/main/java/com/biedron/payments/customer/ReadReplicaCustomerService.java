@@ -0,0 +1,156 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Reads customers from the {@link CustomerReadReplicas} instead of the primary, the {@code primary} service.
+ * The primary is read instead when no replica is usable or the replica query fails, and for customers the
+ * replica does not know (possibly created after its replay position) or changed within its last measured lag
+ * plus {@code freshnessMargin}, whose replica copy may predate a change still being replayed. Like the lag, that
+ * window is measured against the replica's clock, read with the rows, not the application's. Reads are counted
+ * as {@code payment.notifications.customer.read.replica.reads} tagged with the {@code target} and, for the
+ * primary, the {@code reason}.
+ */
+@Slf4j
+public class ReadReplicaCustomerService implements CustomerService {
+
+    // LOCALTIMESTAMP has the type of updated_at, so both convert to an Instant the same way
+    private static final String SELECT_CUSTOMER =
+            "SELECT id, email, name, updated_at, LOCALTIMESTAMP FROM customers WHERE id = ?";
+
+    private static final String SELECT_CUSTOMERS =
+            "SELECT id, email, name, updated_at, LOCALTIMESTAMP FROM customers WHERE id = ANY(?)";
+
+    private static final RowMapper<ReplicaCustomer> CUSTOMER_ROW_MAPPER = (resultSet, rowNumber) -> new ReplicaCustomer(
+            CustomerDto.builder()
+                    .customerId(resultSet.getLong(1))
+                    .customerEmail(resultSet.getString(2))
+                    .customerName(resultSet.getString(3))
+                    .build(),
+            resultSet.getTimestamp(4).toInstant(),
+            resultSet.getTimestamp(5).toInstant());
+
+    private final CustomerReadReplicas readReplicas;
+
+    private final CustomerService primary;
+
+    private final Duration freshnessMargin;
+
+    private final Counter replicaReads;
+
+    private final Counter unavailableReads;
+
+    private final Counter failedReads;
+
+    private final Counter missingReads;
+
+    private final Counter recentReads;
+
+    public ReadReplicaCustomerService(CustomerReadReplicas readReplicas, CustomerService primary,
+                                      MeterRegistry meterRegistry, Duration freshnessMargin) {
+        this.readReplicas = readReplicas;
+        this.primary = primary;
+        this.freshnessMargin = freshnessMargin;
+        String name = "payment.notifications.customer.read.replica.reads";
+        this.replicaReads = meterRegistry.counter(name, "target", "replica", "reason", "none");
+        this.unavailableReads = meterRegistry.counter(name, "target", "primary", "reason", "unavailable");
+        this.failedReads = meterRegistry.counter(name, "target", "primary", "reason", "error");
+        this.missingReads = meterRegistry.counter(name, "target", "primary", "reason", "missing");
+        this.recentReads = meterRegistry.counter(name, "target", "primary", "reason", "recent");
+    }
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        try (CustomerReadReplicas.Replica replica = readReplicas.acquire()) {
+            if (replica == null) {
+                unavailableReads.increment();
+                return primary.getCustomerData(customerId);
+            }
+            List<ReplicaCustomer> customers = query(replica, SELECT_CUSTOMER, customerId);
+            if (customers == null) {
+                failedReads.increment();
+            } else if (customers.isEmpty()) {
+                missingReads.increment();
+            } else if (isRecent(customers.getFirst(), replica)) {
+                recentReads.increment();
+            } else {
+                replicaReads.increment();
+                return customers.getFirst().customer();
+            }
+        }
+        return primary.getCustomerData(customerId);
+    }
+
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        Map<Long, CustomerDto> customers = new HashMap<>();
+        Set<Long> primaryIds = new LinkedHashSet<>();
+        try (CustomerReadReplicas.Replica replica = readReplicas.acquire()) {
+            if (replica == null) {
+                unavailableReads.increment(customerIds.size());
+                return primary.getCustomersData(customerIds);
+            }
+            List<ReplicaCustomer> replicaCustomers = query(replica, SELECT_CUSTOMERS,
+                    (Object) customerIds.toArray(Long[]::new));
+            if (replicaCustomers == null) {
+                failedReads.increment(customerIds.size());
+                return primary.getCustomersData(customerIds);
+            }
+            for (ReplicaCustomer replicaCustomer : replicaCustomers) {
+                if (isRecent(replicaCustomer, replica)) {
+                    recentReads.increment();
+                    primaryIds.add(replicaCustomer.customer().getCustomerId());
+                } else {
+                    replicaReads.increment();
+                    customers.put(replicaCustomer.customer().getCustomerId(), replicaCustomer.customer());
+                }
+            }
+        }
+        for (Long customerId : customerIds) {
+            if (!customers.containsKey(customerId) && primaryIds.add(customerId)) {
+                missingReads.increment();
+            }
+        }
+        if (!primaryIds.isEmpty()) {
+            customers.putAll(primary.getCustomersData(new ArrayList<>(primaryIds)));
+        }
+        return customers;
+    }
+
+    private List<ReplicaCustomer> query(CustomerReadReplicas.Replica replica, String sql, Object argument) {
+        try {
+            return replica.jdbcTemplate().query(sql, CUSTOMER_ROW_MAPPER, argument);
+        } catch (DataAccessException e) {
+            log.warn("Could not read customers from read replica, reading primary",
+                    kv("replica", replica.name()),
+                    kv("exception", e.getMessage()));
+            return null;
+        }
+    }
+
+    private boolean isRecent(ReplicaCustomer replicaCustomer, CustomerReadReplicas.Replica replica) {
+        return replicaCustomer.updatedAt().isAfter(replicaCustomer.readAt().minus(replica.lag()).minus(freshnessMargin));
+    }
+
+    /**
+     * {@code readAt} is the replica's clock at the time of the query.
+     */
+    private record ReplicaCustomer(CustomerDto customer, Instant updatedAt, Instant readAt) {
+    }
+}
@@ -0,0 +1,119 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Coalesces concurrent lookups of the same customer into one call of the delegate: the first caller loads,
+ * callers arriving while that load is in flight wait for it and get the same customer or the same exception.
+ * Nothing is kept once the load finished. Issued and coalesced loads are counted as
+ * {@code payment.notifications.customer.loads} tagged {@code result}.
+ */
+public class SingleFlightCustomerService implements CustomerService {
+
+    private final CustomerService delegate;
+
+    private final ConcurrentMap<Long, CompletableFuture<CustomerDto>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter issued;
+
+    private final Counter coalesced;
+
+    public SingleFlightCustomerService(CustomerService delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.issued = meterRegistry.counter("payment.notifications.customer.loads", "result", "issued");
+        this.coalesced = meterRegistry.counter("payment.notifications.customer.loads", "result", "coalesced");
+    }
+
+    @Override
+    public CustomerDto getCustomerData(Long customerId) {
+        CompletableFuture<CustomerDto> flight = new CompletableFuture<>();
+        CompletableFuture<CustomerDto> existing = inFlight.putIfAbsent(customerId, flight);
+        if (existing != null) {
+            coalesced.increment();
+            CustomerDto customer = await(existing);
+            if (customer == null) {
+                throw new CustomerNotFoundException(customerId);
+            }
+            return customer;
+        }
+
+        issued.increment();
+        try {
+            CustomerDto customer = delegate.getCustomerData(customerId);
+            flight.complete(customer);
+            return customer;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(customerId, flight);
+        }
+    }
+
+    /**
+     * Loads the customers nobody else is loading with one call of the delegate and waits for the rest.
+     */
+    @Override
+    public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+        Map<Long, CompletableFuture<CustomerDto>> led = new HashMap<>();
+        Map<Long, CompletableFuture<CustomerDto>> joined = new HashMap<>();
+        for (Long customerId : new LinkedHashSet<>(customerIds)) {
+            CompletableFuture<CustomerDto> flight = new CompletableFuture<>();
+            CompletableFuture<CustomerDto> existing = inFlight.putIfAbsent(customerId, flight);
+            if (existing == null) {
+                led.put(customerId, flight);
+            } else {
+                joined.put(customerId, existing);
+            }
+        }
+
+        Map<Long, CustomerDto> customers = new HashMap<>();
+        if (!led.isEmpty()) {
+            issued.increment(led.size());
+            try {
+                Map<Long, CustomerDto> loaded = delegate.getCustomersData(led.keySet());
+                led.forEach((customerId, flight) -> flight.complete(loaded.get(customerId)));
+                customers.putAll(loaded);
+            } catch (RuntimeException e) {
+                led.values().forEach(flight -> flight.completeExceptionally(e));
+                throw e;
+            } finally {
+                led.forEach(inFlight::remove);
+            }
+        }
+
+        coalesced.increment(joined.size());
+        joined.forEach((customerId, flight) -> {
+            try {
+                CustomerDto customer = await(flight);
+                if (customer != null) {
+                    customers.put(customerId, customer);
+                }
+            } catch (CustomerNotFoundException e) {
+                // absent customers are left out of batch results
+            }
+        });
+        return customers;
+    }
+
+    private static CustomerDto await(CompletableFuture<CustomerDto> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.biedron.payments.enrichedevents;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.RecordInterceptor;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time between an enriched event being enqueued by the producer and being handed to the listener,
+ * using only the {@link EnrichedPaymentEventHeaders#ENQUEUED_AT} header.
+ */
+public class EnqueueLatencyRecordInterceptor<K, V> implements RecordInterceptor<K, V> {
+
+    private final Timer enqueueLatency;
+
+    private final Clock clock;
+
+    public EnqueueLatencyRecordInterceptor(MeterRegistry meterRegistry, Clock clock) {
+        this.enqueueLatency = Timer.builder("payment.notifications.enriched.enqueue.latency")
+                .description("Time from producing an enriched event until its listener receives it")
+                .register(meterRegistry);
+        this.clock = clock;
+    }
+
+    @Override
+    public ConsumerRecord<K, V> intercept(ConsumerRecord<K, V> record, Consumer<K, V> consumer) {
+        Long enqueuedAt = EnrichedPaymentEventHeaders.enqueuedAt(record.headers());
+        if (enqueuedAt != null) {
+            enqueueLatency.record(Math.max(0, clock.millis() - enqueuedAt), TimeUnit.MILLISECONDS);
+        }
+        return record;
+    }
+}
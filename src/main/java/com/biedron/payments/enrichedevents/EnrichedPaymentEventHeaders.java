@@ -0,0 +1,95 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.paymentevents.PaymentEventView;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentStatus;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Routing metadata stamped on every enriched record, so listeners, filters and metrics can work
+ * without deserializing the value. Numbers are written as fixed-size big-endian values, the payment
+ * status as its protobuf enum number and strings as UTF-8.
+ */
+public final class EnrichedPaymentEventHeaders {
+
+    public static final String MERCHANT_ID = "merchant_id";
+    public static final String PAYMENT_ID = "payment_id";
+    public static final String PAYMENT_STATUS = "payment_status";
+    public static final String IDEMPOTENCY_KEY = "idempotency_key";
+    public static final String ENQUEUED_AT = "enqueued_at";
+
+    private EnrichedPaymentEventHeaders() {
+    }
+
+    public static List<Header> of(EnrichedPaymentEvent enrichedPaymentEvent, long enqueuedAtMillis) {
+        return of(enrichedPaymentEvent.getMerchantId(),
+                enrichedPaymentEvent.getPaymentId(),
+                enrichedPaymentEvent.getPaymentData().getPaymentStatusValue(),
+                enrichedPaymentEvent.getIdempotencyKey(),
+                enqueuedAtMillis);
+    }
+
+    public static List<Header> of(PaymentEventView view, long enqueuedAtMillis) {
+        return of(view.merchantId(), view.paymentId(), view.paymentStatusValue(), view.idempotencyKey(), enqueuedAtMillis);
+    }
+
+    private static List<Header> of(long merchantId, String paymentId, int paymentStatus, String idempotencyKey,
+                                   long enqueuedAtMillis) {
+        return List.of(
+                new RecordHeader(MERCHANT_ID, longBytes(merchantId)),
+                new RecordHeader(PAYMENT_ID, paymentId.getBytes(StandardCharsets.UTF_8)),
+                new RecordHeader(PAYMENT_STATUS, intBytes(paymentStatus)),
+                new RecordHeader(IDEMPOTENCY_KEY, idempotencyKey.getBytes(StandardCharsets.UTF_8)),
+                new RecordHeader(ENQUEUED_AT, longBytes(enqueuedAtMillis)));
+    }
+
+    public static Long merchantId(Headers headers) {
+        byte[] value = lastValue(headers, MERCHANT_ID, Long.BYTES);
+        return value == null ? null : ByteBuffer.wrap(value).getLong();
+    }
+
+    public static String paymentId(Headers headers) {
+        return stringValue(headers, PAYMENT_ID);
+    }
+
+    public static PaymentStatus paymentStatus(Headers headers) {
+        byte[] value = lastValue(headers, PAYMENT_STATUS, Integer.BYTES);
+        return value == null ? null : PaymentStatus.forNumber(ByteBuffer.wrap(value).getInt());
+    }
+
+    public static String idempotencyKey(Headers headers) {
+        return stringValue(headers, IDEMPOTENCY_KEY);
+    }
+
+    public static Long enqueuedAt(Headers headers) {
+        byte[] value = lastValue(headers, ENQUEUED_AT, Long.BYTES);
+        return value == null ? null : ByteBuffer.wrap(value).getLong();
+    }
+
+    private static String stringValue(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] lastValue(Headers headers, String key, int expectedLength) {
+        Header header = headers.lastHeader(key);
+        if (header == null || header.value() == null || header.value().length != expectedLength) {
+            return null;
+        }
+        return header.value();
+    }
+
+    private static byte[] longBytes(long value) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+    }
+
+    private static byte[] intBytes(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+    }
+}
@@ -24,7 +24,11 @@ public class EnrichedPaymentEventsConsumer {
     @KafkaListener(
             topics = "${spring.application.app.topics.enriched-payment-events}",
             groupId = "${KAFKA_ENRICHED_CONSUMER_GROUP}",
-            containerFactory = "enrichedPaymentEventsKafkaListenerContainerFactory"
+            containerFactory = "enrichedPaymentEventsKafkaListenerContainerFactory",
+            // in the fused pipeline mode events are delivered in-process, the topic is only written for audit;
+            // the in-memory transport does not use the topic at all
+            autoStartup = "#{'${spring.application.app.pipeline.mode:kafka}' != 'fused'"
+                    + " and '${spring.application.app.transport.mode:kafka}' != 'in-memory'}"
     )
     public void consume(EnrichedPaymentEvent enrichedPaymentEvent) {
         log.info("Received EnrichedPaymentEvent from Kafka",
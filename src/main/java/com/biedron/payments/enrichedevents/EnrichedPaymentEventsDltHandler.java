@@ -0,0 +1,38 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Receives enriched events whose webhook delivery failed on every retry topic.
+ */
+@Slf4j
+@Component("enrichedPaymentEventsDltHandler")
+@ConditionalOnProperty(name = "spring.application.app.webhook.retry-topics.enabled", havingValue = "true")
+public class EnrichedPaymentEventsDltHandler {
+
+    private final Counter deadLettered;
+
+    public EnrichedPaymentEventsDltHandler(MeterRegistry meterRegistry) {
+        this.deadLettered = meterRegistry.counter("payment.notifications.webhook.dead.lettered");
+    }
+
+    public void handle(EnrichedPaymentEvent enrichedPaymentEvent,
+                       @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+                       @Header(name = KafkaHeaders.EXCEPTION_MESSAGE, required = false) String exceptionMessage) {
+        deadLettered.increment();
+        log.error("Webhook delivery exhausted all retry topics",
+                kv("topic", topic),
+                kv("payment_id", enrichedPaymentEvent.getPaymentId()),
+                kv("merchant_id", enrichedPaymentEvent.getMerchantId()),
+                kv("exception", exceptionMessage));
+    }
+}
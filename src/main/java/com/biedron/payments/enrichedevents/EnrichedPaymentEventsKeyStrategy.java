@@ -0,0 +1,22 @@
+package com.biedron.payments.enrichedevents;
+
+/**
+ * What enriched events are keyed, and therefore partitioned, by.
+ */
+public enum EnrichedPaymentEventsKeyStrategy {
+
+    /**
+     * Keeps the events of a customer in order on one partition.
+     */
+    CUSTOMER,
+
+    /**
+     * Keeps the events of a merchant on one partition, and so on one pod, which lets delivery batch,
+     * rate limit and reuse connections per merchant. Hot merchants can be spread with {@link MerchantAffinityPartitioner}.
+     */
+    MERCHANT;
+
+    public long keyOf(long customerId, long merchantId) {
+        return this == MERCHANT ? merchantId : customerId;
+    }
+}
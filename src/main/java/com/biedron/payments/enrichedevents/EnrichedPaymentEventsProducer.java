@@ -3,22 +3,31 @@ package com.biedron.payments.enrichedevents;
 import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
-public class EnrichedPaymentEventsProducer {
+public class EnrichedPaymentEventsProducer implements EnrichedPaymentEventsPublisher {
 
     @Value("${spring.application.app.topics.enriched-payment-events}")
     private String topic;
 
+    @Value("${spring.application.app.enriched-payment-events.partitioning.key:customer}")
+    private EnrichedPaymentEventsKeyStrategy keyStrategy = EnrichedPaymentEventsKeyStrategy.CUSTOMER;
+
     private final KafkaTemplate<Long, EnrichedPaymentEvent> kafkaTemplate;
 
+    @Override
     public void produce(EnrichedPaymentEvent enrichedPaymentEvent) {
         Long customerId = enrichedPaymentEvent.getCustomerId();
 
@@ -26,7 +35,44 @@ public class EnrichedPaymentEventsProducer {
                 kv("topic", topic),
                 kv("customer_id", customerId));
 
-        kafkaTemplate.send(topic, customerId, enrichedPaymentEvent);
+        send(enrichedPaymentEvent);
     }
-}
 
+    /**
+     * Sends the whole batch and blocks until every record is acknowledged, so the caller
+     * can safely let the source offsets be committed afterwards.
+     */
+    @Override
+    public void produceAll(List<EnrichedPaymentEvent> enrichedPaymentEvents) {
+        log.info("Sending enrichedPaymentEvents batch to topic",
+                kv("topic", topic),
+                kv("batch_size", enrichedPaymentEvents.size()));
+
+        CompletableFuture<?>[] sends = enrichedPaymentEvents.stream()
+                .map(this::send)
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture.allOf(sends).join();
+    }
+
+    /**
+     * {@link #produceAll} for callers outside a listener container transaction, like the replay: a transactional
+     * template rejects sends without a transaction, so the batch is then sent in a local one.
+     */
+    public void produceAllInLocalTransaction(List<EnrichedPaymentEvent> enrichedPaymentEvents) {
+        if (!kafkaTemplate.isTransactional() || kafkaTemplate.inTransaction()) {
+            produceAll(enrichedPaymentEvents);
+            return;
+        }
+        kafkaTemplate.executeInTransaction(operations -> {
+            produceAll(enrichedPaymentEvents);
+            return null;
+        });
+    }
+
+    public CompletableFuture<SendResult<Long, EnrichedPaymentEvent>> send(EnrichedPaymentEvent enrichedPaymentEvent) {
+        long key = keyStrategy.keyOf(enrichedPaymentEvent.getCustomerId(), enrichedPaymentEvent.getMerchantId());
+        var headers = EnrichedPaymentEventHeaders.of(enrichedPaymentEvent, System.currentTimeMillis());
+        return kafkaTemplate.send(new ProducerRecord<>(topic, null, null, key, enrichedPaymentEvent, headers));
+    }
+}
@@ -0,0 +1,15 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+
+import java.util.List;
+
+/**
+ * Hands enriched events over to the delivery stage.
+ */
+public interface EnrichedPaymentEventsPublisher {
+
+    void produce(EnrichedPaymentEvent enrichedPaymentEvent);
+
+    void produceAll(List<EnrichedPaymentEvent> enrichedPaymentEvents);
+}
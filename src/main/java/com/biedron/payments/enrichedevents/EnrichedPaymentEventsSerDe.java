@@ -1,13 +1,20 @@
 package com.biedron.payments.enrichedevents;
 
 import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.biedron.payments.shared.ProtobufParseMetrics;
+import com.google.protobuf.CodedInputStream;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serializer;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
@@ -16,14 +23,64 @@ import static net.logstash.logback.argument.StructuredArguments.kv;
 @Component
 public class EnrichedPaymentEventsSerDe implements Deserializer<EnrichedPaymentEvent>, Serializer<EnrichedPaymentEvent>, Serde<EnrichedPaymentEvent> {
 
+    /**
+     * Consumer config key; when true an invalid message throws instead of being returned as null,
+     * so an ErrorHandlingDeserializer can hand it to the dead-letter recoverer.
+     */
+    public static final String FAIL_ON_INVALID_CONFIG = "payment.notifications.serde.fail-on-invalid";
+
+    private final ProtobufParseMetrics parseMetrics;
+
+    private boolean failOnInvalid;
+
+    public EnrichedPaymentEventsSerDe() {
+        this(Metrics.globalRegistry);
+    }
+
+    public EnrichedPaymentEventsSerDe(MeterRegistry meterRegistry) {
+        this.parseMetrics = new ProtobufParseMetrics(meterRegistry, "EnrichedPaymentEvent");
+    }
+
     @Override
     public EnrichedPaymentEvent deserialize(String topic, byte[] message) {
+        if (message == null) {
+            return null;
+        }
+        return parse(topic, CodedInputStream.newInstance(message), message.length);
+    }
+
+    @Override
+    public EnrichedPaymentEvent deserialize(String topic, Headers headers, byte[] message) {
+        return deserialize(topic, message);
+    }
+
+    /**
+     * Parses straight from the consumer fetch buffer, without copying the record into an intermediate array.
+     */
+    @Override
+    public EnrichedPaymentEvent deserialize(String topic, Headers headers, ByteBuffer message) {
+        if (message == null) {
+            return null;
+        }
+        return parse(topic, CodedInputStream.newInstance(message), message.remaining());
+    }
+
+    private EnrichedPaymentEvent parse(String topic, CodedInputStream input, int size) {
+        long start = System.nanoTime();
         try {
-            return EnrichedPaymentEvent.parseFrom(message);
-        } catch (InvalidProtocolBufferException e) {
+            EnrichedPaymentEvent enrichedPaymentEvent = EnrichedPaymentEvent.parseFrom(input);
+            parseMetrics.recordParsed(topic, size, System.nanoTime() - start);
+            return enrichedPaymentEvent;
+        } catch (IOException e) {
+            // a stream over an in-memory buffer only fails with InvalidProtocolBufferException
+            parseMetrics.recordFailure(topic);
+            if (failOnInvalid) {
+                throw new SerializationException("Invalid EnrichedPaymentEvent message on topic " + topic, e);
+            }
             log.error("Error deserializing EnrichedPaymentEvent message",
-                    kv("exception", e.getMessage()),
-                    kv("stacktrace", e.getStackTrace()));
+                    kv("topic", topic),
+                    kv("size_bytes", size),
+                    kv("exception", e.getMessage()));
             return null;
         }
     }
@@ -36,6 +93,7 @@ public class EnrichedPaymentEventsSerDe implements Deserializer<EnrichedPaymentE
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
         Deserializer.super.configure(configs, isKey);
+        failOnInvalid = Boolean.parseBoolean(String.valueOf(configs.get(FAIL_ON_INVALID_CONFIG)));
     }
 
     @Override
@@ -53,4 +111,3 @@ public class EnrichedPaymentEventsSerDe implements Deserializer<EnrichedPaymentE
         return this;
     }
 }
-
@@ -0,0 +1,198 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.paymentevents.PaymentEventsListenerMode;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Fused pipeline mode: enriched events go straight to the webhook stage of the same process through a
+ * bounded queue instead of a round trip over the enriched events topic. Every worker drains its own queue
+ * and events are routed to a queue by customer id, so the webhooks of one customer are still called in order.
+ * A full queue blocks the payment events listener. The enriched topic is still written asynchronously for
+ * audit unless disabled. Events still in the queue when the process dies are not redelivered. Deliveries
+ * that fail for good are published to the enriched topic's dead-letter topic when dead-lettering is enabled,
+ * and otherwise counted as {@code payment.notifications.fused.dropped}. Cannot be combined with the in-memory
+ * transport, nor with the listener modes that write enriched events without going through a publisher.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "spring.application.app.pipeline.mode", havingValue = "fused")
+public class FusedEnrichedPaymentEventsPublisher implements EnrichedPaymentEventsPublisher {
+
+    private static final Set<PaymentEventsListenerMode> SUPPORTED_LISTENER_MODES = EnumSet.of(
+            PaymentEventsListenerMode.RECORD, PaymentEventsListenerMode.BATCH, PaymentEventsListenerMode.KEY_ORDERED);
+
+    private final EnrichedPaymentEventsConsumer enrichedPaymentEventsConsumer;
+
+    private final EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    private final BackOff backOff;
+
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private final String enrichedPaymentEventsTopic;
+
+    private final Counter dropped;
+
+    private final List<BlockingQueue<EnrichedPaymentEvent>> queues;
+
+    private final boolean auditEnabled;
+
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public FusedEnrichedPaymentEventsPublisher(
+            EnrichedPaymentEventsConsumer enrichedPaymentEventsConsumer,
+            EnrichedPaymentEventsProducer enrichedPaymentEventsProducer,
+            BackOff backOff,
+            ObjectProvider<DeadLetterPublishingRecoverer> deadLetterPublishingRecoverer,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.transport.mode:kafka}") String transportMode,
+            @Value("${spring.application.app.payment-events.listener-mode:record}") PaymentEventsListenerMode listenerMode,
+            @Value("${spring.application.app.topics.enriched-payment-events}") String enrichedPaymentEventsTopic,
+            @Value("${spring.application.app.pipeline.fused.queue-capacity:10000}") int queueCapacity,
+            @Value("${spring.application.app.pipeline.fused.workers:64}") int workers,
+            @Value("${spring.application.app.pipeline.fused.audit-enabled:true}") boolean auditEnabled) {
+        if ("in-memory".equals(transportMode)) {
+            throw new IllegalStateException("Pipeline mode fused cannot be combined with transport mode in-memory");
+        }
+        if (!SUPPORTED_LISTENER_MODES.contains(listenerMode)) {
+            // the pipelined and splice listeners send to the enriched topic themselves, no webhook would be called
+            throw new IllegalStateException("Pipeline mode fused cannot be combined with payment-events listener-mode "
+                    + listenerMode.name().toLowerCase().replace('_', '-'));
+        }
+        this.enrichedPaymentEventsConsumer = enrichedPaymentEventsConsumer;
+        this.enrichedPaymentEventsProducer = enrichedPaymentEventsProducer;
+        this.backOff = backOff;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer.getIfAvailable();
+        this.enrichedPaymentEventsTopic = enrichedPaymentEventsTopic;
+        this.dropped = meterRegistry.counter("payment.notifications.fused.dropped");
+        this.queues = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            queues.add(new ArrayBlockingQueue<>(Math.max(1, queueCapacity / workers)));
+        }
+        this.auditEnabled = auditEnabled;
+        meterRegistry.gauge("payment.notifications.fused.queue.depth", queues, FusedEnrichedPaymentEventsPublisher::depth);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 0; i < queues.size(); i++) {
+            BlockingQueue<EnrichedPaymentEvent> queue = queues.get(i);
+            workerThreads.add(Thread.ofVirtual().name("fused-webhook-worker-" + i).start(() -> deliverLoop(queue)));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workerThreads.forEach(Thread::interrupt);
+        double queueDepth = depth(queues);
+        if (queueDepth > 0) {
+            log.warn("Fused pipeline stopped with undelivered events", kv("queue_depth", (long) queueDepth));
+        }
+    }
+
+    @Override
+    public void produce(EnrichedPaymentEvent enrichedPaymentEvent) {
+        if (auditEnabled) {
+            enrichedPaymentEventsProducer.produce(enrichedPaymentEvent);
+        }
+        try {
+            queueOf(enrichedPaymentEvent.getCustomerId()).put(enrichedPaymentEvent);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing over EnrichedPaymentEvent", e);
+        }
+    }
+
+    @Override
+    public void produceAll(List<EnrichedPaymentEvent> enrichedPaymentEvents) {
+        enrichedPaymentEvents.forEach(this::produce);
+    }
+
+    private BlockingQueue<EnrichedPaymentEvent> queueOf(long customerId) {
+        return queues.get(Math.floorMod(Long.hashCode(customerId), queues.size()));
+    }
+
+    private static double depth(Collection<BlockingQueue<EnrichedPaymentEvent>> queues) {
+        return queues.stream().mapToInt(Collection::size).sum();
+    }
+
+    private void deliverLoop(BlockingQueue<EnrichedPaymentEvent> queue) {
+        while (running) {
+            try {
+                deliver(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void deliver(EnrichedPaymentEvent enrichedPaymentEvent) throws InterruptedException {
+        BackOffExecution backOffExecution = backOff.start();
+        while (true) {
+            try {
+                enrichedPaymentEventsConsumer.consume(enrichedPaymentEvent);
+                return;
+            } catch (RuntimeException e) {
+                long nextBackOff = backOffExecution.nextBackOff();
+                if (nextBackOff == BackOffExecution.STOP) {
+                    recover(enrichedPaymentEvent, e);
+                    return;
+                }
+                Thread.sleep(nextBackOff);
+            }
+        }
+    }
+
+    /**
+     * Dead-letters the event as if it had been consumed from the enriched topic, which it never was in this mode,
+     * so partition and offset are unknown.
+     */
+    private void recover(EnrichedPaymentEvent enrichedPaymentEvent, RuntimeException exception) {
+        if (deadLetterPublishingRecoverer != null) {
+            try {
+                deadLetterPublishingRecoverer.accept(new ConsumerRecord<>(enrichedPaymentEventsTopic, -1, -1L,
+                        enrichedPaymentEvent.getCustomerId(), enrichedPaymentEvent), exception);
+                return;
+            } catch (RuntimeException e) {
+                log.error("Dead-lettering EnrichedPaymentEvent failed",
+                        kv("payment_id", enrichedPaymentEvent.getPaymentId()),
+                        kv("exception", e.getMessage()));
+            }
+        }
+        dropped.increment();
+        log.error("Retries exhausted for EnrichedPaymentEvent, dropping",
+                kv("payment_id", enrichedPaymentEvent.getPaymentId()),
+                kv("merchant_id", enrichedPaymentEvent.getMerchantId()),
+                kv("exception", exception.getMessage()));
+    }
+}
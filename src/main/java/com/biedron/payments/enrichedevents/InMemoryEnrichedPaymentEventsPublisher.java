@@ -0,0 +1,57 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.shared.InMemoryTopic;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOff;
+
+import java.util.List;
+
+/**
+ * In-memory transport of the enriched events topic: events are handed to {@link EnrichedPaymentEventsConsumer}
+ * through an {@link InMemoryTopic} instead of Kafka, and the enriched topic is not written at all.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(name = "spring.application.app.transport.mode", havingValue = "in-memory")
+public class InMemoryEnrichedPaymentEventsPublisher implements EnrichedPaymentEventsPublisher {
+
+    private final InMemoryTopic<EnrichedPaymentEvent> topic;
+
+    public InMemoryEnrichedPaymentEventsPublisher(
+            EnrichedPaymentEventsConsumer enrichedPaymentEventsConsumer,
+            BackOff backOff,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.topics.enriched-payment-events}") String topicName,
+            @Value("${spring.application.app.transport.in-memory.capacity:65536}") int capacity,
+            @Value("${spring.application.app.transport.in-memory.enriched-payment-events-dispatchers:64}") int dispatchers) {
+        this.topic = new InMemoryTopic<>(topicName, capacity, dispatchers, enrichedPaymentEventsConsumer::consume,
+                backOff, meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        topic.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        topic.stop();
+    }
+
+    @Override
+    public void produce(EnrichedPaymentEvent enrichedPaymentEvent) {
+        topic.send(enrichedPaymentEvent);
+    }
+
+    @Override
+    public void produceAll(List<EnrichedPaymentEvent> enrichedPaymentEvents) {
+        enrichedPaymentEvents.forEach(topic::send);
+    }
+}
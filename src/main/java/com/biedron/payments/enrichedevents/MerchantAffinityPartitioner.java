@@ -0,0 +1,80 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.paymentevents.PaymentEventView;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Partitions merchant keyed records of the enriched events topic like the default partitioner, except for
+ * configured hot merchants: their records are spread by customer over {@code hot-merchant-spread} consecutive
+ * partitions starting at the merchant's own one, so a hot merchant stays on a bounded set of consumers while
+ * each customer keeps its order. Records of any other topic are partitioned by key hash.
+ */
+public class MerchantAffinityPartitioner implements Partitioner {
+
+    public static final String TOPIC_CONFIG = "payment.notifications.partitioner.topic";
+
+    public static final String HOT_MERCHANTS_CONFIG = "payment.notifications.partitioner.hot-merchants";
+
+    public static final String HOT_MERCHANT_SPREAD_CONFIG = "payment.notifications.partitioner.hot-merchant-spread";
+
+    private String topic;
+
+    private Set<Long> hotMerchants = Set.of();
+
+    private int hotMerchantSpread = 1;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        topic = (String) configs.get(TOPIC_CONFIG);
+        Object hotMerchantsConfig = configs.get(HOT_MERCHANTS_CONFIG);
+        if (hotMerchantsConfig != null && !hotMerchantsConfig.toString().isBlank()) {
+            hotMerchants = Arrays.stream(hotMerchantsConfig.toString().split(","))
+                    .map(String::trim)
+                    .map(Long::valueOf)
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+        Object spreadConfig = configs.get(HOT_MERCHANT_SPREAD_CONFIG);
+        if (spreadConfig != null) {
+            hotMerchantSpread = Math.max(1, Integer.parseInt(spreadConfig.toString()));
+        }
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        int numPartitions = cluster.partitionsForTopic(topic).size();
+        if (keyBytes == null) {
+            return ThreadLocalRandom.current().nextInt(numPartitions);
+        }
+        int partition = Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+        if (!topic.equals(this.topic) || !(key instanceof Long merchantId) || !hotMerchants.contains(merchantId)) {
+            return partition;
+        }
+        int spread = Math.min(hotMerchantSpread, numPartitions);
+        return (partition + Math.floorMod(Long.hashCode(customerIdOf(value, valueBytes)), spread)) % numPartitions;
+    }
+
+    static long customerIdOf(Object value, byte[] valueBytes) {
+        if (value instanceof EnrichedPaymentEvent enrichedPaymentEvent) {
+            return enrichedPaymentEvent.getCustomerId();
+        }
+        try {
+            return valueBytes == null ? 0 : PaymentEventView.parse(valueBytes).customerId();
+        } catch (InvalidProtocolBufferException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,212 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.shared.PartitionDrainer;
+import com.biedron.payments.shared.PartitionInFlightTracker;
+import com.biedron.payments.shared.PartitionStateRegistry;
+import com.biedron.payments.shared.PausedPartitions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Keeps about {@code window-size} enriched event sends in flight per source partition. Once the window of a
+ * partition is full the partition is paused on its listener container, so the listener thread never blocks,
+ * and it resumes when half of the window drained; records already fetched are still sent. The callback that
+ * acknowledges the source record runs only after every enriched event derived from it has been acknowledged
+ * by the broker. Sends failing with a Kafka {@link RetriableException} are retried with a capped exponential
+ * backoff up to {@code retry-max-attempts} times. Any other failure, or the last retriable one, is published to
+ * the enriched topic's dead-letter topic, so dead-lettering has to be enabled. If publishing there fails too the
+ * source record is never acknowledged, so a source offset is never committed for an enriched event that was
+ * neither written nor dead-lettered.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "pipelined")
+public class PipelinedEnrichedPaymentEventsPublisher implements PartitionDrainer {
+
+    private static final String PAUSE_OWNER = "pipelined-window";
+
+    private final EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    private final PartitionStateRegistry partitionStateRegistry;
+
+    private final PausedPartitions pausedPartitions;
+
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private final PartitionInFlightTracker inFlightTracker = new PartitionInFlightTracker();
+
+    // dead-lettering waits for its own send, which must not happen on the producer thread completing the failed one
+    private final Executor deadLetterExecutor = task -> Thread.ofVirtual().name("enriched-dead-letter").start(task);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Counter sendFailures;
+
+    private final Counter deadLettered;
+
+    private final int windowSize;
+
+    private final long retryInitialDelayMs;
+
+    private final long retryMaxDelayMs;
+
+    private final int retryMaxAttempts;
+
+    private final String enrichedPaymentEventsTopic;
+
+    public PipelinedEnrichedPaymentEventsPublisher(
+            EnrichedPaymentEventsProducer enrichedPaymentEventsProducer,
+            PartitionStateRegistry partitionStateRegistry,
+            PausedPartitions pausedPartitions,
+            ObjectProvider<DeadLetterPublishingRecoverer> deadLetterPublishingRecoverer,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.topics.enriched-payment-events}") String enrichedPaymentEventsTopic,
+            @Value("${spring.application.app.payment-events.pipelined.window-size:256}") int windowSize,
+            @Value("${spring.application.app.payment-events.pipelined.retry-initial-delay-ms:100}") long retryInitialDelayMs,
+            @Value("${spring.application.app.payment-events.pipelined.retry-max-delay-ms:30000}") long retryMaxDelayMs,
+            @Value("${spring.application.app.payment-events.pipelined.retry-max-attempts:10}") int retryMaxAttempts) {
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer.getIfAvailable();
+        if (this.deadLetterPublishingRecoverer == null) {
+            // without it every failed send would leave its source offset uncommitted, stalling the partition for good
+            throw new IllegalStateException("Payment-events listener-mode pipelined requires dead-letter.enabled");
+        }
+        this.enrichedPaymentEventsProducer = enrichedPaymentEventsProducer;
+        this.partitionStateRegistry = partitionStateRegistry;
+        this.pausedPartitions = pausedPartitions;
+        this.enrichedPaymentEventsTopic = enrichedPaymentEventsTopic;
+        this.windowSize = windowSize;
+        this.retryInitialDelayMs = retryInitialDelayMs;
+        this.retryMaxDelayMs = retryMaxDelayMs;
+        this.retryMaxAttempts = retryMaxAttempts;
+        this.sendFailures = meterRegistry.counter("payment.notifications.enriched.send.failures");
+        this.deadLettered = meterRegistry.counter("payment.notifications.enriched.send.dead.lettered");
+        meterRegistry.gauge("payment.notifications.enriched.sends.in.flight", inFlight);
+    }
+
+    /**
+     * Returns a future completed once every send was acknowledged or dead-lettered and {@code onAcknowledged} ran,
+     * or completed exceptionally, without running {@code onAcknowledged}, if a send could not be dead-lettered.
+     * Never blocks, a full window pauses the source partition instead.
+     */
+    public CompletableFuture<Void> publish(TopicPartition source, List<EnrichedPaymentEvent> enrichedPaymentEvents,
+                                           Runnable onAcknowledged) {
+        AtomicInteger window = partitionStateRegistry.get(source, PAUSE_OWNER, AtomicInteger::new);
+        inFlightTracker.begin(source);
+
+        CompletableFuture<?>[] sends = new CompletableFuture[enrichedPaymentEvents.size()];
+        for (int i = 0; i < sends.length; i++) {
+            if (window.incrementAndGet() >= windowSize && pausedPartitions.pause(PAUSE_OWNER, source)) {
+                log.warn("Send window full, pausing partition",
+                        kv("topic", source.topic()),
+                        kv("partition", source.partition()),
+                        kv("window_size", windowSize));
+            }
+            inFlight.incrementAndGet();
+            sends[i] = sendUntilAcknowledged(enrichedPaymentEvents.get(i), 1)
+                    .whenComplete((result, error) -> {
+                        inFlight.decrementAndGet();
+                        if (window.decrementAndGet() <= windowSize / 2) {
+                            pausedPartitions.resume(PAUSE_OWNER, source);
+                        }
+                    });
+        }
+
+        return CompletableFuture.allOf(sends)
+                .thenRun(onAcknowledged)
+                .whenComplete((result, error) -> inFlightTracker.end(source));
+    }
+
+    @Override
+    public boolean drain(Collection<TopicPartition> partitions, Duration timeout) throws InterruptedException {
+        return inFlightTracker.awaitIdle(partitions, timeout);
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private CompletableFuture<Void> sendUntilAcknowledged(EnrichedPaymentEvent enrichedPaymentEvent, int attempt) {
+        CompletableFuture<?> send;
+        try {
+            send = enrichedPaymentEventsProducer.send(enrichedPaymentEvent);
+        } catch (RuntimeException e) {
+            send = CompletableFuture.failedFuture(e);
+        }
+        return send.<Void>thenApply(sendResult -> null)
+                .exceptionallyCompose(failure -> {
+                    Throwable error = failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure;
+                    sendFailures.increment();
+                    if (!isRetriable(error) || attempt >= retryMaxAttempts) {
+                        return CompletableFuture.runAsync(() -> deadLetter(enrichedPaymentEvent, error, attempt),
+                                deadLetterExecutor);
+                    }
+                    long delay = retryDelay(attempt);
+                    log.warn("Sending EnrichedPaymentEvent failed, retrying",
+                            kv("payment_id", enrichedPaymentEvent.getPaymentId()),
+                            kv("attempt", attempt),
+                            kv("retry_in_ms", delay),
+                            kv("exception", error.getMessage()));
+                    return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+                            .thenCompose(ignored -> sendUntilAcknowledged(enrichedPaymentEvent, attempt + 1));
+                });
+    }
+
+    /**
+     * Publishes the event to the enriched topic's dead-letter topic as if it had been consumed from the enriched
+     * topic, so partition and offset are unknown, and rethrows if publishing fails.
+     */
+    private void deadLetter(EnrichedPaymentEvent enrichedPaymentEvent, Throwable error, int attempt) {
+        Exception exception = error instanceof Exception e ? e : new IllegalStateException(error);
+        try {
+            deadLetterPublishingRecoverer.accept(new ConsumerRecord<>(enrichedPaymentEventsTopic, -1, -1L,
+                    enrichedPaymentEvent.getCustomerId(), enrichedPaymentEvent), exception);
+        } catch (RuntimeException e) {
+            log.error("Dead-lettering EnrichedPaymentEvent failed, not acknowledging the source record",
+                    kv("payment_id", enrichedPaymentEvent.getPaymentId()),
+                    kv("attempt", attempt),
+                    kv("exception", e.getMessage()));
+            throw e;
+        }
+        deadLettered.increment();
+        log.error("Sending EnrichedPaymentEvent failed, dead-lettered",
+                kv("payment_id", enrichedPaymentEvent.getPaymentId()),
+                kv("attempt", attempt),
+                kv("exception", error.getMessage()));
+    }
+
+    private static boolean isRetriable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long retryDelay(int attempt) {
+        long delay = retryInitialDelayMs << Math.min(attempt - 1, 20);
+        return Math.min(delay, retryMaxDelayMs);
+    }
+}
@@ -0,0 +1,45 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.paymentevents.PaymentEventView;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Publishes already encoded EnrichedPaymentEvent records, as produced by the splice fast path.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "splice")
+public class SplicedEnrichedPaymentEventsProducer {
+
+    @Value("${spring.application.app.topics.enriched-payment-events}")
+    private String topic;
+
+    @Value("${spring.application.app.enriched-payment-events.partitioning.key:customer}")
+    private EnrichedPaymentEventsKeyStrategy keyStrategy = EnrichedPaymentEventsKeyStrategy.CUSTOMER;
+
+    private final KafkaTemplate<Long, byte[]> rawKafkaTemplate;
+
+    public SplicedEnrichedPaymentEventsProducer(@Qualifier("rawKafkaTemplate") KafkaTemplate<Long, byte[]> rawKafkaTemplate) {
+        this.rawKafkaTemplate = rawKafkaTemplate;
+    }
+
+    public void produce(PaymentEventView paymentEventView, byte[] enrichedPaymentEvent) {
+        long customerId = paymentEventView.customerId();
+
+        log.info("Sending spliced enrichedPaymentEvent to topic",
+                kv("topic", topic),
+                kv("customer_id", customerId));
+
+        var headers = EnrichedPaymentEventHeaders.of(paymentEventView, System.currentTimeMillis());
+        long key = keyStrategy.keyOf(customerId, paymentEventView.merchantId());
+        rawKafkaTemplate.send(new ProducerRecord<>(topic, null, null, key, enrichedPaymentEvent, headers));
+    }
+}
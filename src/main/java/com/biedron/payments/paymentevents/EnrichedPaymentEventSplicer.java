@@ -0,0 +1,73 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.customer.CustomerDto;
+import com.biedron.payments.customer.CustomerService;
+import com.biedron.payments.schema.v1.Customer;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.protobuf.CodedOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+
+/**
+ * Builds the enriched record without decoding and re-encoding the payment event.
+ * EnrichedPaymentEvent shares fields 1-5 with PaymentEvent and only adds {@code Customer customer = 6},
+ * so appending an encoded field 6 to the original PaymentEvent bytes yields a valid EnrichedPaymentEvent,
+ * byte for byte identical to the builder path when the source was serialized in field order.
+ * Encoded customer fields are cached per customer id.
+ */
+@Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "splice")
+public class EnrichedPaymentEventSplicer {
+
+    private final CustomerService customerService;
+
+    private final Cache<Long, byte[]> encodedCustomerFields;
+
+    public EnrichedPaymentEventSplicer(
+            CustomerService customerService,
+            @Value("${spring.application.app.payment-events.splice.customer-cache-size:100000}") long customerCacheSize,
+            @Value("${spring.application.app.payment-events.splice.customer-cache-ttl-ms:60000}") long customerCacheTtlMs) {
+        this.customerService = customerService;
+        this.encodedCustomerFields = Caffeine.newBuilder()
+                .maximumSize(customerCacheSize)
+                .expireAfterWrite(Duration.ofMillis(customerCacheTtlMs))
+                .build();
+    }
+
+    public byte[] splice(PaymentEventView paymentEventView) {
+        byte[] paymentEvent = paymentEventView.bytes();
+        byte[] customerField = encodedCustomerFields.get(paymentEventView.customerId(), this::encodeCustomerField);
+
+        byte[] enrichedPaymentEvent = new byte[paymentEvent.length + customerField.length];
+        System.arraycopy(paymentEvent, 0, enrichedPaymentEvent, 0, paymentEvent.length);
+        System.arraycopy(customerField, 0, enrichedPaymentEvent, paymentEvent.length, customerField.length);
+        return enrichedPaymentEvent;
+    }
+
+    private byte[] encodeCustomerField(Long customerId) {
+        CustomerDto customerDto = customerService.getCustomerData(customerId);
+        Customer customer = Customer.newBuilder()
+                .setId(customerDto.getCustomerId())
+                .setEmail(customerDto.getCustomerEmail())
+                .setName(customerDto.getCustomerName())
+                .build();
+
+        int fieldSize = CodedOutputStream.computeMessageSize(EnrichedPaymentEvent.CUSTOMER_FIELD_NUMBER, customer);
+        byte[] customerField = new byte[fieldSize];
+        try {
+            CodedOutputStream output = CodedOutputStream.newInstance(customerField);
+            output.writeMessage(EnrichedPaymentEvent.CUSTOMER_FIELD_NUMBER, customer);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return customerField;
+    }
+}
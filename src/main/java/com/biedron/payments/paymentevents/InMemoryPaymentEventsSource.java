@@ -0,0 +1,83 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.shared.InMemoryTopic;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOff;
+
+/**
+ * In-memory transport of the payment events topic for single node runs and benchmarks without a broker.
+ * Events passed to {@link #send(PaymentEvent)} reach {@link PaymentEventsConsumer} exactly like records
+ * of the Kafka listener, which is not started in this mode. Requires the {@code record} listener mode.
+ */
+@Service
+@ConditionalOnProperty(name = "spring.application.app.transport.mode", havingValue = "in-memory")
+public class InMemoryPaymentEventsSource {
+
+    private final InMemoryTopic<PaymentEvent> topic;
+
+    @Autowired
+    public InMemoryPaymentEventsSource(
+            ObjectProvider<PaymentEventsConsumer> paymentEventsConsumer,
+            @Value("${spring.application.app.payment-events.listener-mode:record}") PaymentEventsListenerMode listenerMode,
+            BackOff backOff,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.topics.payment-events}") String topicName,
+            @Value("${spring.application.app.transport.in-memory.capacity:65536}") int capacity,
+            @Value("${spring.application.app.transport.in-memory.payment-events-dispatchers:1}") int dispatchers) {
+        this(recordConsumer(paymentEventsConsumer, listenerMode), backOff, meterRegistry, topicName, capacity, dispatchers);
+    }
+
+    public InMemoryPaymentEventsSource(
+            PaymentEventsConsumer paymentEventsConsumer,
+            BackOff backOff,
+            MeterRegistry meterRegistry,
+            String topicName,
+            int capacity,
+            int dispatchers) {
+        this.topic = new InMemoryTopic<>(topicName, capacity, dispatchers, paymentEventsConsumer::consume,
+                backOff, meterRegistry);
+    }
+
+    /**
+     * Only the record listener mode has a {@link PaymentEventsConsumer}, fail with the actual cause instead of
+     * a missing bean.
+     */
+    private static PaymentEventsConsumer recordConsumer(ObjectProvider<PaymentEventsConsumer> paymentEventsConsumer,
+                                                        PaymentEventsListenerMode listenerMode) {
+        if (listenerMode != PaymentEventsListenerMode.RECORD) {
+            throw new IllegalStateException("Transport mode in-memory requires payment-events listener-mode record, not "
+                    + listenerMode.name().toLowerCase().replace('_', '-'));
+        }
+        return paymentEventsConsumer.getObject();
+    }
+
+    @PostConstruct
+    public void start() {
+        topic.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        topic.stop();
+    }
+
+    public void send(PaymentEvent paymentEvent) {
+        topic.send(paymentEvent);
+    }
+
+    public int depth() {
+        return topic.depth();
+    }
+
+    public long dropped() {
+        return topic.dropped();
+    }
+}
@@ -0,0 +1,60 @@
+package com.biedron.payments.paymentevents;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Runs tasks concurrently while keeping tasks that share a key strictly sequential.
+ * Each key holds the tail of its own chain of futures; a new task for the key is
+ * appended to that tail, tasks for other keys run in parallel on the executor.
+ * {@link #submit} never blocks, so a listener thread calling it keeps polling;
+ * callers bound the tasks in flight by pausing their source partitions instead.
+ */
+@Slf4j
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService executor;
+
+    private final Map<Object, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public void submit(Object key, Runnable task) {
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) ->
+                (tail == null ? COMPLETED : tail).thenRunAsync(guarded(key, task), executor));
+
+        next.whenComplete((ignored, error) -> tails.remove(key, next));
+    }
+
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private static Runnable guarded(Object key, Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // a failed task must not break the chain of the following tasks for the same key
+                log.error("Unhandled error in key ordered task",
+                        kv("ordering_key", key),
+                        kv("exception", e.getMessage()));
+            }
+        };
+    }
+}
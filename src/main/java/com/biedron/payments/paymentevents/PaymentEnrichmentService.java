@@ -1,6 +1,7 @@
 package com.biedron.payments.paymentevents;
 
 import com.biedron.payments.customer.CustomerDto;
+import com.biedron.payments.customer.CustomerNotFoundException;
 import com.biedron.payments.customer.CustomerService;
 import com.biedron.payments.schema.v1.Customer;
 import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
@@ -9,6 +10,11 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
@@ -25,13 +31,49 @@ public class PaymentEnrichmentService {
 
         CustomerDto customerDto = customerService.getCustomerData(paymentEvent.getCustomerId());
 
+        EnrichedPaymentEvent enrichedPaymentEvent = toEnrichedPaymentEvent(paymentEvent, customerDto);
+
+        log.debug("Successfully enriched payment event",
+                kv("payment_id", paymentEvent.getPaymentId()),
+                kv("customer_id", customerDto.getCustomerId()),
+                kv("customer_email", customerDto.getCustomerEmail()));
+
+        return enrichedPaymentEvent;
+    }
+
+    public List<EnrichedPaymentEvent> enrichAll(List<PaymentEvent> paymentEvents) {
+        Set<Long> customerIds = paymentEvents.stream()
+                .map(PaymentEvent::getCustomerId)
+                .collect(Collectors.toSet());
+
+        log.debug("Enriching payment events batch with customer data",
+                kv("batch_size", paymentEvents.size()),
+                kv("customers_count", customerIds.size()));
+
+        Map<Long, CustomerDto> customers = customerService.getCustomersData(customerIds);
+
+        return paymentEvents.stream()
+                .map(paymentEvent -> {
+                    CustomerDto customerDto = customers.get(paymentEvent.getCustomerId());
+                    if (customerDto == null) {
+                        log.error("Customer not found",
+                                kv("payment_id", paymentEvent.getPaymentId()),
+                                kv("customer_id", paymentEvent.getCustomerId()));
+                        throw new CustomerNotFoundException(paymentEvent.getCustomerId());
+                    }
+                    return toEnrichedPaymentEvent(paymentEvent, customerDto);
+                })
+                .toList();
+    }
+
+    private EnrichedPaymentEvent toEnrichedPaymentEvent(PaymentEvent paymentEvent, CustomerDto customerDto) {
         Customer customer = Customer.newBuilder()
                 .setId(customerDto.getCustomerId())
                 .setEmail(customerDto.getCustomerEmail())
                 .setName(customerDto.getCustomerName())
                 .build();
 
-        EnrichedPaymentEvent enrichedPaymentEvent = EnrichedPaymentEvent.newBuilder()
+        return EnrichedPaymentEvent.newBuilder()
                 .setPaymentId(paymentEvent.getPaymentId())
                 .setIdempotencyKey(paymentEvent.getIdempotencyKey())
                 .setCustomerId(paymentEvent.getCustomerId())
@@ -39,13 +81,5 @@ public class PaymentEnrichmentService {
                 .setPaymentData(paymentEvent.getPaymentData())
                 .setCustomer(customer)
                 .build();
-
-        log.debug("Successfully enriched payment event",
-                kv("payment_id", paymentEvent.getPaymentId()),
-                kv("customer_id", customerDto.getCustomerId()),
-                kv("customer_email", customerDto.getCustomerEmail()));
-
-        return enrichedPaymentEvent;
     }
 }
-
@@ -0,0 +1,155 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentData;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.schema.v1.PaymentStatus;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only view over the wire bytes of a PaymentEvent, or of an EnrichedPaymentEvent since both share fields 1-5.
+ * {@link #parse(byte[])} only walks the tags, keeping the two integer ids and {@code payment_data.payment_status}
+ * and remembering where the string fields are; strings are decoded on first access and the full message only
+ * when {@link #toPaymentEvent()} or {@link #toEnrichedPaymentEvent()} is called. Not thread safe.
+ */
+public final class PaymentEventView {
+
+    private final byte[] bytes;
+
+    private long customerId;
+
+    private long merchantId;
+
+    private int paymentStatusValue;
+
+    private int paymentIdOffset = -1;
+
+    private int paymentIdLength;
+
+    private int idempotencyKeyOffset = -1;
+
+    private int idempotencyKeyLength;
+
+    private String paymentId;
+
+    private String idempotencyKey;
+
+    private PaymentEvent paymentEvent;
+
+    private EnrichedPaymentEvent enrichedPaymentEvent;
+
+    private PaymentEventView(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static PaymentEventView parse(byte[] bytes) throws InvalidProtocolBufferException {
+        PaymentEventView view = new PaymentEventView(bytes);
+        try {
+            view.scan(CodedInputStream.newInstance(bytes));
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e);
+        }
+        return view;
+    }
+
+    public long customerId() {
+        return customerId;
+    }
+
+    public long merchantId() {
+        return merchantId;
+    }
+
+    public PaymentStatus paymentStatus() {
+        PaymentStatus paymentStatus = PaymentStatus.forNumber(paymentStatusValue);
+        return paymentStatus == null ? PaymentStatus.UNRECOGNIZED : paymentStatus;
+    }
+
+    public int paymentStatusValue() {
+        return paymentStatusValue;
+    }
+
+    public String paymentId() {
+        if (paymentId == null) {
+            paymentId = decode(paymentIdOffset, paymentIdLength);
+        }
+        return paymentId;
+    }
+
+    public String idempotencyKey() {
+        if (idempotencyKey == null) {
+            idempotencyKey = decode(idempotencyKeyOffset, idempotencyKeyLength);
+        }
+        return idempotencyKey;
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public PaymentEvent toPaymentEvent() throws InvalidProtocolBufferException {
+        if (paymentEvent == null) {
+            paymentEvent = PaymentEvent.parseFrom(bytes);
+        }
+        return paymentEvent;
+    }
+
+    public EnrichedPaymentEvent toEnrichedPaymentEvent() throws InvalidProtocolBufferException {
+        if (enrichedPaymentEvent == null) {
+            enrichedPaymentEvent = EnrichedPaymentEvent.parseFrom(bytes);
+        }
+        return enrichedPaymentEvent;
+    }
+
+    private void scan(CodedInputStream input) throws IOException {
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            int fieldNumber = WireFormat.getTagFieldNumber(tag);
+            int wireType = WireFormat.getTagWireType(tag);
+            if (fieldNumber == PaymentEvent.CUSTOMER_ID_FIELD_NUMBER && wireType == WireFormat.WIRETYPE_VARINT) {
+                customerId = input.readInt64();
+            } else if (fieldNumber == PaymentEvent.MERCHANT_ID_FIELD_NUMBER && wireType == WireFormat.WIRETYPE_VARINT) {
+                merchantId = input.readInt64();
+            } else if (fieldNumber == PaymentEvent.PAYMENT_ID_FIELD_NUMBER && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                paymentIdLength = input.readRawVarint32();
+                paymentIdOffset = input.getTotalBytesRead();
+                input.skipRawBytes(paymentIdLength);
+                paymentId = null;
+            } else if (fieldNumber == PaymentEvent.IDEMPOTENCY_KEY_FIELD_NUMBER && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                idempotencyKeyLength = input.readRawVarint32();
+                idempotencyKeyOffset = input.getTotalBytesRead();
+                input.skipRawBytes(idempotencyKeyLength);
+                idempotencyKey = null;
+            } else if (fieldNumber == PaymentEvent.PAYMENT_DATA_FIELD_NUMBER && wireType == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                int oldLimit = input.pushLimit(input.readRawVarint32());
+                scanPaymentData(input);
+                input.popLimit(oldLimit);
+            } else if (!input.skipField(tag)) {
+                return;
+            }
+        }
+    }
+
+    private void scanPaymentData(CodedInputStream input) throws IOException {
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == PaymentData.PAYMENT_STATUS_FIELD_NUMBER
+                    && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_VARINT) {
+                paymentStatusValue = input.readEnum();
+            } else if (!input.skipField(tag)) {
+                return;
+            }
+        }
+    }
+
+    private String decode(int offset, int length) {
+        return offset < 0 ? "" : new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.customer.CustomerNotFoundException;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsPublisher;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Objects;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "batch")
+public class PaymentEventsBatchConsumer {
+
+    private static final LogAccessor LOG_ACCESSOR = new LogAccessor(PaymentEventsBatchConsumer.class);
+
+    private final PaymentEnrichmentService paymentEnrichmentService;
+
+    private final EnrichedPaymentEventsPublisher enrichedPaymentEventsPublisher;
+
+    @KafkaListener(
+            topics = "${spring.application.app.topics.payment-events}",
+            groupId = "${KAFKA_PAYMENT_CONSUMER_GROUP}",
+            containerFactory = "paymentEventsKafkaListenerContainerFactory"
+    )
+    public void consume(List<ConsumerRecord<Long, PaymentEvent>> records) {
+        int undeserializableIndex = indexOfDeserializationFailure(records);
+        List<ConsumerRecord<Long, PaymentEvent>> deserialized = undeserializableIndex < 0
+                ? records
+                : records.subList(0, undeserializableIndex);
+
+        try {
+            process(deserialized);
+        } catch (CustomerNotFoundException e) {
+            // commit the records before the failing one, the error handler retries or dead-letters from there
+            int failedIndex = indexOfCustomer(deserialized, e.getCustomerId());
+            if (failedIndex < 0) {
+                throw e;
+            }
+            process(deserialized.subList(0, failedIndex));
+            throw new BatchListenerFailedException(e.getMessage(), e, failedIndex);
+        }
+
+        if (undeserializableIndex >= 0) {
+            ConsumerRecord<Long, PaymentEvent> record = records.get(undeserializableIndex);
+            DeserializationException cause = SerializationUtils.getExceptionFromHeader(
+                    record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+            throw new BatchListenerFailedException("Failed to deserialize PaymentEvent", cause, undeserializableIndex);
+        }
+    }
+
+    private void process(List<ConsumerRecord<Long, PaymentEvent>> records) {
+        List<PaymentEvent> paymentEvents = records.stream()
+                .map(ConsumerRecord::value)
+                .filter(Objects::nonNull)
+                .toList();
+
+        log.info("Received PaymentEvent batch from Kafka topic",
+                kv("batch_size", records.size()),
+                kv("skipped_count", records.size() - paymentEvents.size()));
+
+        if (paymentEvents.isEmpty()) {
+            return;
+        }
+
+        List<EnrichedPaymentEvent> enrichedPaymentEvents = paymentEnrichmentService.enrichAll(paymentEvents);
+
+        enrichedPaymentEventsPublisher.produceAll(enrichedPaymentEvents);
+    }
+
+    private static int indexOfDeserializationFailure(List<ConsumerRecord<Long, PaymentEvent>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<Long, PaymentEvent> record = records.get(i);
+            if (record.value() == null
+                    && record.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOfCustomer(List<ConsumerRecord<Long, PaymentEvent>> records, Long customerId) {
+        for (int i = 0; i < records.size(); i++) {
+            PaymentEvent paymentEvent = records.get(i).value();
+            if (paymentEvent != null && customerId != null && paymentEvent.getCustomerId() == customerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,10 +1,11 @@
 package com.biedron.payments.paymentevents;
 
-import com.biedron.payments.enrichedevents.EnrichedPaymentEventsProducer;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsPublisher;
 import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
 import com.biedron.payments.schema.v1.PaymentEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
@@ -13,16 +14,19 @@ import static net.logstash.logback.argument.StructuredArguments.kv;
 @Slf4j
 @RequiredArgsConstructor
 @Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "record", matchIfMissing = true)
 public class PaymentEventsConsumer {
 
     private final PaymentEnrichmentService paymentEnrichmentService;
 
-    private final EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+    private final EnrichedPaymentEventsPublisher enrichedPaymentEventsPublisher;
 
     @KafkaListener(
             topics = "${spring.application.app.topics.payment-events}",
             groupId = "${KAFKA_PAYMENT_CONSUMER_GROUP}",
-            containerFactory = "paymentEventsKafkaListenerContainerFactory"
+            containerFactory = "paymentEventsKafkaListenerContainerFactory",
+            // with the in-memory transport events arrive through InMemoryPaymentEventsSource
+            autoStartup = "#{'${spring.application.app.transport.mode:kafka}' != 'in-memory'}"
     )
     public void consume(PaymentEvent paymentEvent) {
         log.info("Received PaymentEvent from Kafka topic",
@@ -36,7 +40,7 @@ public class PaymentEventsConsumer {
 
         EnrichedPaymentEvent enrichedPaymentEvent = paymentEnrichmentService.enrich(paymentEvent);
 
-        enrichedPaymentEventsProducer.produce(enrichedPaymentEvent);
+        enrichedPaymentEventsPublisher.produce(enrichedPaymentEvent);
     }
 }
 
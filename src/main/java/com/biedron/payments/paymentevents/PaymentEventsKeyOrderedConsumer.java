@@ -0,0 +1,214 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsPublisher;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.shared.AdmissionController;
+import com.biedron.payments.shared.DeadLetterCategory;
+import com.biedron.payments.shared.PartitionDrainer;
+import com.biedron.payments.shared.PartitionInFlightTracker;
+import com.biedron.payments.shared.PausedPartitions;
+import com.google.protobuf.InvalidProtocolBufferException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Dispatches payment events to virtual threads, keeping order per customer (or per payment)
+ * instead of per partition. Offsets are acknowledged out of order as events complete and the
+ * container (async acks) commits only the contiguous completed prefix of each partition.
+ * Once {@code max-in-flight} events are dispatched, the partitions that submit more are paused
+ * until half of them completed, so the listener thread never blocks. Events that fail for good
+ * are handed to the dead-letter recoverer like in the other listener modes, and acknowledged
+ * only once dead-lettered.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "key-ordered")
+public class PaymentEventsKeyOrderedConsumer implements PartitionDrainer {
+
+    private static final String PAUSE_OWNER = "key-ordered";
+
+    enum OrderingKey {
+        CUSTOMER,
+        PAYMENT
+    }
+
+    private final PaymentEnrichmentService paymentEnrichmentService;
+
+    private final EnrichedPaymentEventsPublisher enrichedPaymentEventsPublisher;
+
+    private final BackOff backOff;
+
+    private final OrderingKey orderingKey;
+
+    private final KeyOrderedExecutor keyOrderedExecutor;
+
+    private final AdmissionController admissionController;
+
+    private final DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private final PausedPartitions pausedPartitions;
+
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final PartitionInFlightTracker inFlightTracker = new PartitionInFlightTracker();
+
+    public PaymentEventsKeyOrderedConsumer(
+            PaymentEnrichmentService paymentEnrichmentService,
+            EnrichedPaymentEventsPublisher enrichedPaymentEventsPublisher,
+            BackOff backOff,
+            AdmissionController admissionController,
+            ObjectProvider<DeadLetterPublishingRecoverer> deadLetterPublishingRecoverer,
+            PausedPartitions pausedPartitions,
+            @Value("${spring.application.app.payment-events.key-ordered.ordering-key:customer}") OrderingKey orderingKey,
+            @Value("${spring.application.app.payment-events.key-ordered.max-in-flight:1000}") int maxInFlight) {
+        this.paymentEnrichmentService = paymentEnrichmentService;
+        this.enrichedPaymentEventsPublisher = enrichedPaymentEventsPublisher;
+        this.backOff = backOff;
+        this.admissionController = admissionController;
+        this.deadLetterPublishingRecoverer = deadLetterPublishingRecoverer.getIfAvailable();
+        this.pausedPartitions = pausedPartitions;
+        this.orderingKey = orderingKey;
+        this.maxInFlight = maxInFlight;
+        this.keyOrderedExecutor = new KeyOrderedExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @KafkaListener(
+            topics = "${spring.application.app.topics.payment-events}",
+            groupId = "${KAFKA_PAYMENT_CONSUMER_GROUP}",
+            containerFactory = "paymentEventsKafkaListenerContainerFactory"
+    )
+    public void consume(ConsumerRecord<Long, PaymentEvent> record, Acknowledgment acknowledgment) {
+        PaymentEvent paymentEvent = record.value();
+        if (paymentEvent == null) {
+            if (recover(record, new InvalidProtocolBufferException("PaymentEvent could not be parsed"))) {
+                acknowledgment.acknowledge();
+            }
+            return;
+        }
+
+        log.info("Received PaymentEvent from Kafka topic",
+                kv("payment_id", paymentEvent.getPaymentId()),
+                kv("customer_id", paymentEvent.getCustomerId()),
+                kv("merchant_id", paymentEvent.getMerchantId()),
+                kv("partition", record.partition()),
+                kv("offset", record.offset()));
+
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        long bytes = Math.max(0, record.serializedValueSize());
+        inFlightTracker.begin(partition);
+        admissionController.admit(partition, bytes);
+        if (inFlight.incrementAndGet() >= maxInFlight && pausedPartitions.pause(PAUSE_OWNER, partition)) {
+            log.warn("Key ordered executor full, pausing partition",
+                    kv("topic", partition.topic()),
+                    kv("partition", partition.partition()),
+                    kv("in_flight", maxInFlight));
+        }
+        keyOrderedExecutor.submit(orderingKeyOf(paymentEvent), () -> {
+            try {
+                if (process(record)) {
+                    acknowledgment.acknowledge();
+                }
+            } finally {
+                admissionController.release(bytes);
+                inFlightTracker.end(partition);
+                if (inFlight.decrementAndGet() <= maxInFlight / 2) {
+                    pausedPartitions.resumeAll(PAUSE_OWNER);
+                }
+            }
+        });
+    }
+
+    @Override
+    public boolean drain(Collection<TopicPartition> partitions, Duration timeout) throws InterruptedException {
+        return inFlightTracker.awaitIdle(partitions, timeout);
+    }
+
+    @PreDestroy
+    public void close() {
+        keyOrderedExecutor.close();
+    }
+
+    private Object orderingKeyOf(PaymentEvent paymentEvent) {
+        return orderingKey == OrderingKey.PAYMENT ? paymentEvent.getPaymentId() : paymentEvent.getCustomerId();
+    }
+
+    /**
+     * Returns false when interrupted or when dead-lettering failed, so the offset stays unacknowledged and
+     * is redelivered.
+     */
+    private boolean process(ConsumerRecord<Long, PaymentEvent> record) {
+        PaymentEvent paymentEvent = record.value();
+        BackOffExecution backOffExecution = backOff.start();
+        while (true) {
+            try {
+                EnrichedPaymentEvent enrichedPaymentEvent = paymentEnrichmentService.enrich(paymentEvent);
+                enrichedPaymentEventsPublisher.produce(enrichedPaymentEvent);
+                return true;
+            } catch (RuntimeException e) {
+                // never retried when dead-lettering, like the container error handler of the other modes
+                boolean retryable = deadLetterPublishingRecoverer == null
+                        || DeadLetterCategory.classify(e) == DeadLetterCategory.RETRIES_EXHAUSTED;
+                long nextBackOff = retryable ? backOffExecution.nextBackOff() : BackOffExecution.STOP;
+                if (nextBackOff == BackOffExecution.STOP) {
+                    return recover(record, e);
+                }
+                log.warn("Processing PaymentEvent failed, retrying",
+                        kv("payment_id", paymentEvent.getPaymentId()),
+                        kv("customer_id", paymentEvent.getCustomerId()),
+                        kv("backoff_ms", nextBackOff),
+                        kv("exception", e.getMessage()));
+                try {
+                    Thread.sleep(nextBackOff);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Publishes the record to its dead-letter topic and returns whether its offset may be acknowledged. Without
+     * dead-lettering the record is skipped, as the default error handler of the other modes does.
+     */
+    private boolean recover(ConsumerRecord<Long, PaymentEvent> record, Exception exception) {
+        if (deadLetterPublishingRecoverer == null) {
+            log.error("Retries exhausted for PaymentEvent, skipping",
+                    kv("partition", record.partition()),
+                    kv("offset", record.offset()),
+                    kv("exception", exception.getMessage()));
+            return true;
+        }
+        try {
+            deadLetterPublishingRecoverer.accept(record, exception);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Dead-lettering PaymentEvent failed, leaving it unacknowledged",
+                    kv("partition", record.partition()),
+                    kv("offset", record.offset()),
+                    kv("exception", e.getMessage()));
+            return false;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.biedron.payments.paymentevents;
+
+/**
+ * How records from the payment events topic are handed to the listener,
+ * selected with {@code spring.application.app.payment-events.listener-mode}.
+ */
+public enum PaymentEventsListenerMode {
+
+    /** One PaymentEvent per listener invocation, handled by {@link PaymentEventsConsumer}. */
+    RECORD,
+
+    /** A whole poll batch per listener invocation, handled by {@link PaymentEventsBatchConsumer}. */
+    BATCH,
+
+    /**
+     * Records are dispatched to virtual threads with ordering kept per customer (or payment) id,
+     * handled by {@link PaymentEventsKeyOrderedConsumer}.
+     */
+    KEY_ORDERED,
+
+    /**
+     * Enriched events are sent without waiting and a source offset is committed only once every
+     * enriched event derived from it is acknowledged, handled by {@link PaymentEventsPipelinedConsumer}.
+     */
+    PIPELINED,
+
+    /**
+     * Raw PaymentEvent bytes are turned into EnrichedPaymentEvent bytes by appending the encoded customer,
+     * without decoding the payment, handled by {@link PaymentEventsSpliceConsumer}.
+     */
+    SPLICE
+}
@@ -0,0 +1,64 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.enrichedevents.PipelinedEnrichedPaymentEventsPublisher;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.shared.AdmissionController;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "pipelined")
+public class PaymentEventsPipelinedConsumer {
+
+    private final PaymentEnrichmentService paymentEnrichmentService;
+
+    private final PipelinedEnrichedPaymentEventsPublisher pipelinedEnrichedPaymentEventsPublisher;
+
+    private final AdmissionController admissionController;
+
+    @KafkaListener(
+            topics = "${spring.application.app.topics.payment-events}",
+            groupId = "${KAFKA_PAYMENT_CONSUMER_GROUP}",
+            containerFactory = "paymentEventsKafkaListenerContainerFactory"
+    )
+    public void consume(ConsumerRecord<Long, PaymentEvent> record, Acknowledgment acknowledgment) {
+        PaymentEvent paymentEvent = record.value();
+        if (paymentEvent == null) {
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        log.info("Received PaymentEvent from Kafka topic",
+                kv("payment_id", paymentEvent.getPaymentId()),
+                kv("customer_id", paymentEvent.getCustomerId()),
+                kv("merchant_id", paymentEvent.getMerchantId()),
+                kv("partition", record.partition()),
+                kv("offset", record.offset()));
+
+        EnrichedPaymentEvent enrichedPaymentEvent = paymentEnrichmentService.enrich(paymentEvent);
+
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        long bytes = Math.max(0, record.serializedValueSize());
+        admissionController.admit(partition, bytes);
+        try {
+            pipelinedEnrichedPaymentEventsPublisher.publish(partition, List.of(enrichedPaymentEvent), acknowledgment::acknowledge)
+                    .whenComplete((result, error) -> admissionController.release(bytes));
+        } catch (RuntimeException e) {
+            admissionController.release(bytes);
+            throw e;
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.biedron.payments.paymentevents;
 
 import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.shared.ProtobufParseMetrics;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serializer;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 import static net.logstash.logback.argument.StructuredArguments.kv;
@@ -16,14 +24,88 @@ import static net.logstash.logback.argument.StructuredArguments.kv;
 @Component
 public class PaymentEventsSerDe implements Deserializer<PaymentEvent>, Serializer<PaymentEvent>, Serde<PaymentEvent> {
 
+    /**
+     * Consumer config key; when true an invalid message throws instead of being returned as null,
+     * so an ErrorHandlingDeserializer can hand it to the dead-letter recoverer.
+     */
+    public static final String FAIL_ON_INVALID_CONFIG = "payment.notifications.serde.fail-on-invalid";
+
+    private final ProtobufParseMetrics parseMetrics;
+
+    private boolean failOnInvalid;
+
+    public PaymentEventsSerDe() {
+        this(Metrics.globalRegistry);
+    }
+
+    public PaymentEventsSerDe(MeterRegistry meterRegistry) {
+        this.parseMetrics = new ProtobufParseMetrics(meterRegistry, "PaymentEvent");
+    }
+
     @Override
     public PaymentEvent deserialize(String topic, byte[] message) {
+        if (message == null) {
+            return null;
+        }
+        return parse(topic, CodedInputStream.newInstance(message), message.length);
+    }
+
+    @Override
+    public PaymentEvent deserialize(String topic, Headers headers, byte[] message) {
+        return deserialize(topic, message);
+    }
+
+    /**
+     * Parses straight from the consumer fetch buffer, without copying the record into an intermediate array.
+     */
+    @Override
+    public PaymentEvent deserialize(String topic, Headers headers, ByteBuffer message) {
+        if (message == null) {
+            return null;
+        }
+        return parse(topic, CodedInputStream.newInstance(message), message.remaining());
+    }
+
+    /**
+     * Indexes only the routing fields of the message, see {@link PaymentEventView}. A missing or invalid message
+     * throws, so the listener error handler dead-letters it instead of the record being acknowledged unprocessed.
+     */
+    public PaymentEventView deserializeView(String topic, byte[] message) throws InvalidProtocolBufferException {
+        if (message == null) {
+            parseMetrics.recordFailure(topic);
+            throw new InvalidProtocolBufferException("Empty PaymentEvent message on topic " + topic);
+        }
+        long start = System.nanoTime();
         try {
-            return PaymentEvent.parseFrom(message);
+            PaymentEventView view = PaymentEventView.parse(message);
+            parseMetrics.recordParsed(topic, message.length, System.nanoTime() - start);
+            return view;
         } catch (InvalidProtocolBufferException e) {
+            parseMetrics.recordFailure(topic);
+            log.error("Error scanning PaymentEvent message",
+                    kv("topic", topic),
+                    kv("size_bytes", message.length),
+                    kv("exception", e.getMessage()));
+            throw e;
+        }
+    }
+
+    private PaymentEvent parse(String topic, CodedInputStream input, int size) {
+        long start = System.nanoTime();
+        try {
+            PaymentEvent paymentEvent = PaymentEvent.parseFrom(input);
+            parseMetrics.recordParsed(topic, size, System.nanoTime() - start);
+            return paymentEvent;
+        } catch (IOException e) {
+            // a stream over an in-memory buffer only fails with InvalidProtocolBufferException
+            parseMetrics.recordFailure(topic);
+            if (failOnInvalid) {
+                throw new SerializationException("Invalid PaymentEvent message on topic " + topic, e);
+            }
             log.error("Error deserializing PaymentEvent message",
-                    kv("exception", e.getMessage()),
-                    kv("stacktrace", e.getStackTrace()));
+                    kv("topic", topic),
+                    kv("size_bytes", size),
+                    kv("exception", e.getMessage()));
             return null;
         }
     }
@@ -36,6 +118,7 @@ public class PaymentEventsSerDe implements Deserializer<PaymentEvent>, Serialize
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
         Deserializer.super.configure(configs, isKey);
+        failOnInvalid = Boolean.parseBoolean(String.valueOf(configs.get(FAIL_ON_INVALID_CONFIG)));
     }
 
     @Override
@@ -53,4 +136,3 @@ public class PaymentEventsSerDe implements Deserializer<PaymentEvent>, Serialize
         return this;
     }
 }
-
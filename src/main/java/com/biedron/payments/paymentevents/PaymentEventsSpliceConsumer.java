@@ -0,0 +1,45 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.enrichedevents.SplicedEnrichedPaymentEventsProducer;
+import com.google.protobuf.InvalidProtocolBufferException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+@ConditionalOnProperty(name = "spring.application.app.payment-events.listener-mode", havingValue = "splice")
+public class PaymentEventsSpliceConsumer {
+
+    private final PaymentEventsSerDe paymentEventsSerDe;
+
+    private final EnrichedPaymentEventSplicer enrichedPaymentEventSplicer;
+
+    private final SplicedEnrichedPaymentEventsProducer splicedEnrichedPaymentEventsProducer;
+
+    @KafkaListener(
+            topics = "${spring.application.app.topics.payment-events}",
+            groupId = "${KAFKA_PAYMENT_CONSUMER_GROUP}",
+            containerFactory = "paymentEventsKafkaListenerContainerFactory"
+    )
+    public void consume(ConsumerRecord<Long, byte[]> record) throws InvalidProtocolBufferException {
+        // an invalid payload is not retried and goes to the dead-letter topic when dead-lettering is enabled
+        PaymentEventView paymentEventView = paymentEventsSerDe.deserializeView(record.topic(), record.value());
+
+        log.info("Received PaymentEvent from Kafka topic",
+                kv("payment_id", paymentEventView.paymentId()),
+                kv("customer_id", paymentEventView.customerId()),
+                kv("partition", record.partition()),
+                kv("offset", record.offset()));
+
+        byte[] enrichedPaymentEvent = enrichedPaymentEventSplicer.splice(paymentEventView);
+
+        splicedEnrichedPaymentEventsProducer.produce(paymentEventView, enrichedPaymentEvent);
+    }
+}
@@ -0,0 +1,54 @@
+package com.biedron.payments.replay;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Spaces the records of each merchant at least {@code 1 / permitsPerSecond} apart, without bursts.
+ * A rate of zero or less disables the limit.
+ */
+class MerchantRateLimiter {
+
+    private final long intervalNanos;
+
+    private final LongSupplier nanoTime;
+
+    private final Map<Long, AtomicLong> nextFreeSlots = new ConcurrentHashMap<>();
+
+    MerchantRateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+
+    MerchantRateLimiter(double permitsPerSecond, LongSupplier nanoTime) {
+        this.intervalNanos = permitsPerSecond <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.nanoTime = nanoTime;
+    }
+
+    void acquire(long merchantId) throws InterruptedException {
+        long waitNanos = reserve(merchantId);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves the next free slot of the merchant and returns how long the caller has to wait for it.
+     */
+    long reserve(long merchantId) {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        AtomicLong nextFreeSlot = nextFreeSlots.computeIfAbsent(merchantId, id -> new AtomicLong(Long.MIN_VALUE));
+        long now = nanoTime.getAsLong();
+        while (true) {
+            long free = nextFreeSlot.get();
+            long slot = Math.max(now, free);
+            if (nextFreeSlot.compareAndSet(free, slot + intervalNanos)) {
+                return slot - now;
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.biedron.payments.replay;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * {@code POST /actuator/replay/{payment-events|enriched-payment-events}} with {@code from} (and optionally {@code to})
+ * as ISO-8601 instants starts a replay, {@code GET /actuator/replay} reports its progress and ETA,
+ * {@code DELETE /actuator/replay} stops it after the current poll.
+ */
+@Component
+@Endpoint(id = "replay")
+@RequiredArgsConstructor
+public class ReplayEndpoint {
+
+    private final ReplayService replayService;
+
+    @ReadOperation
+    public ReplayProgress progress() {
+        return replayService.progress().orElse(null);
+    }
+
+    @WriteOperation
+    public ReplayProgress start(@Selector String target, String from, @Nullable String to) {
+        return replayService.start(ReplayTarget.fromPath(target), Instant.parse(from), to == null ? null : Instant.parse(to));
+    }
+
+    @DeleteOperation
+    public ReplayProgress cancel() {
+        return replayService.cancel().orElse(null);
+    }
+}
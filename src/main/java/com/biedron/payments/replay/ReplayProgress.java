@@ -0,0 +1,19 @@
+package com.biedron.payments.replay;
+
+import java.time.Instant;
+
+public record ReplayProgress(
+        ReplayTarget target,
+        ReplayState state,
+        Instant from,
+        Instant to,
+        long total,
+        long processed,
+        long failed,
+        double recordsPerSecond,
+        Long etaSeconds) {
+
+    public enum ReplayState {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+}
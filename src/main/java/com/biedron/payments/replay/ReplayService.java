@@ -0,0 +1,379 @@
+package com.biedron.payments.replay;
+
+import com.biedron.payments.customer.CustomerNotFoundException;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsConsumer;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsProducer;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsSerDe;
+import com.biedron.payments.paymentevents.PaymentEnrichmentService;
+import com.biedron.payments.paymentevents.PaymentEventsSerDe;
+import com.biedron.payments.replay.ReplayProgress.ReplayState;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Replays one topic between two timestamps with a dedicated consumer group, next to the live listeners.
+ * Partitions are sought with offsets-for-times and each one stops once its position reaches the first offset at or
+ * after {@code to} (or its last stable offset), read committed. Payment events are enriched in batches per merchant and produced to
+ * the enriched topic again, enriched events are delivered to the webhooks in parallel. Every record waits for its merchant's slot in
+ * {@link MerchantRateLimiter} on its own virtual thread, before taking one of the {@code parallelism} slots, so a replay cannot
+ * starve live traffic of a merchant and a throttled merchant does not hold up the others. One replay runs at a time.
+ */
+@Slf4j
+@Service
+public class ReplayService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final KafkaProperties kafkaProperties;
+
+    private final SslBundles sslBundles;
+
+    private final PaymentEnrichmentService paymentEnrichmentService;
+
+    private final EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    private final EnrichedPaymentEventsConsumer enrichedPaymentEventsConsumer;
+
+    @Value("${spring.application.app.topics.payment-events}")
+    private String paymentEventsTopic;
+
+    @Value("${spring.application.app.topics.enriched-payment-events}")
+    private String enrichedPaymentEventsTopic;
+
+    @Value("${spring.application.app.replay.group-id:payment-notifications-replay}")
+    private String groupId;
+
+    @Value("${spring.application.app.replay.parallelism:32}")
+    private int parallelism;
+
+    @Value("${spring.application.app.replay.merchant-rate-per-second:20}")
+    private double merchantRatePerSecond;
+
+    @Value("${spring.application.app.replay.max-poll-records:2000}")
+    private int maxPollRecords;
+
+    @Value("${spring.application.app.replay.fetch-min-bytes:1048576}")
+    private int fetchMinBytes;
+
+    @Value("${spring.application.app.replay.max-partition-fetch-bytes:8388608}")
+    private int maxPartitionFetchBytes;
+
+    private ReplayJob currentJob;
+
+    public ReplayService(
+            KafkaProperties kafkaProperties,
+            SslBundles sslBundles,
+            PaymentEnrichmentService paymentEnrichmentService,
+            EnrichedPaymentEventsProducer enrichedPaymentEventsProducer,
+            EnrichedPaymentEventsConsumer enrichedPaymentEventsConsumer) {
+        this.kafkaProperties = kafkaProperties;
+        this.sslBundles = sslBundles;
+        this.paymentEnrichmentService = paymentEnrichmentService;
+        this.enrichedPaymentEventsProducer = enrichedPaymentEventsProducer;
+        this.enrichedPaymentEventsConsumer = enrichedPaymentEventsConsumer;
+    }
+
+    public synchronized ReplayProgress start(ReplayTarget target, Instant from, Instant to) {
+        if (currentJob != null && currentJob.state == ReplayState.RUNNING) {
+            throw new IllegalStateException("A replay of " + currentJob.target + " is already running");
+        }
+        if (to != null && !to.isAfter(from)) {
+            throw new IllegalArgumentException("Replay end " + to + " is not after its start " + from);
+        }
+        currentJob = new ReplayJob(target, from, to);
+        Thread.ofVirtual().name("replay-" + target).start(currentJob::run);
+        return currentJob.progress();
+    }
+
+    public synchronized Optional<ReplayProgress> progress() {
+        return Optional.ofNullable(currentJob).map(ReplayJob::progress);
+    }
+
+    public synchronized Optional<ReplayProgress> cancel() {
+        if (currentJob != null) {
+            currentJob.cancelled = true;
+        }
+        return progress();
+    }
+
+    Consumer<Long, Object> createConsumer(ReplayTarget target) {
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties(sslBundles));
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // skips aborted records of the transactional enriched topic, end offsets become the last stable offsets
+        config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
+                target == ReplayTarget.PAYMENT_EVENTS ? PaymentEventsSerDe.class : EnrichedPaymentEventsSerDe.class);
+        // catch-up reads favour throughput over latency
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
+        config.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, maxPartitionFetchBytes);
+        return new DefaultKafkaConsumerFactory<Long, Object>(config).createConsumer();
+    }
+
+    private final class ReplayJob {
+
+        private final ReplayTarget target;
+
+        private final Instant from;
+
+        private final Instant to;
+
+        private final MerchantRateLimiter rateLimiter = new MerchantRateLimiter(merchantRatePerSecond);
+
+        private final AtomicLong processed = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private final long startedAtNanos = System.nanoTime();
+
+        private volatile long total;
+
+        private volatile ReplayState state = ReplayState.RUNNING;
+
+        private volatile boolean cancelled;
+
+        private ReplayJob(ReplayTarget target, Instant from, Instant to) {
+            this.target = target;
+            this.from = from;
+            this.to = to;
+        }
+
+        private void run() {
+            String topic = target == ReplayTarget.PAYMENT_EVENTS ? paymentEventsTopic : enrichedPaymentEventsTopic;
+            log.info("Replay started",
+                    kv("topic", topic),
+                    kv("from", from),
+                    kv("to", to));
+
+            try (Consumer<Long, Object> consumer = createConsumer(target);
+                 ExecutorService deliveryExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+                Map<TopicPartition, Long> endOffsets = seekToRange(consumer, topic);
+                Semaphore deliveries = new Semaphore(parallelism);
+
+                while (!cancelled && !endOffsets.isEmpty()) {
+                    ConsumerRecords<Long, Object> records = consumer.poll(POLL_TIMEOUT);
+                    for (TopicPartition partition : records.partitions()) {
+                        Long endOffset = endOffsets.get(partition);
+                        if (endOffset == null) {
+                            continue;
+                        }
+                        List<ConsumerRecord<Long, Object>> inRange = records.records(partition).stream()
+                                .filter(record -> record.offset() < endOffset)
+                                .toList();
+                        process(inRange, deliveryExecutor, deliveries);
+                    }
+                    // transaction markers are never returned as records, a partition ending with one only moves its position
+                    List<TopicPartition> finished = endOffsets.entrySet().stream()
+                            .filter(entry -> consumer.position(entry.getKey()) >= entry.getValue())
+                            .map(Map.Entry::getKey)
+                            .toList();
+                    finished.forEach(endOffsets::remove);
+                    consumer.pause(finished);
+                }
+                state = cancelled ? ReplayState.CANCELLED : ReplayState.COMPLETED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state = ReplayState.CANCELLED;
+            } catch (RuntimeException e) {
+                log.error("Replay failed",
+                        kv("topic", topic),
+                        kv("exception", e.getMessage()));
+                state = ReplayState.FAILED;
+            }
+
+            log.info("Replay finished",
+                    kv("topic", topic),
+                    kv("state", state),
+                    kv("processed", processed.get()),
+                    kv("failed", failed.get()));
+        }
+
+        /**
+         * Assigns every partition of the topic, seeks it to {@code from} and returns the offsets to stop at,
+         * leaving out partitions with nothing in range.
+         */
+        private Map<TopicPartition, Long> seekToRange(Consumer<Long, Object> consumer, String topic) {
+            List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                    .map(partitionInfo -> new TopicPartition(topic, partitionInfo.partition()))
+                    .toList();
+            consumer.assign(partitions);
+
+            Map<TopicPartition, Long> latestOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, Long> startOffsets = offsetsAt(consumer, partitions, from, latestOffsets);
+            Map<TopicPartition, Long> endOffsets = to == null ? latestOffsets : offsetsAt(consumer, partitions, to, latestOffsets);
+
+            Map<TopicPartition, Long> remaining = new HashMap<>();
+            long records = 0;
+            for (TopicPartition partition : partitions) {
+                long start = startOffsets.get(partition);
+                long end = endOffsets.get(partition);
+                if (start < end) {
+                    consumer.seek(partition, start);
+                    remaining.put(partition, end);
+                    records += end - start;
+                }
+            }
+            Set<TopicPartition> empty = new HashSet<>(partitions);
+            empty.removeAll(remaining.keySet());
+            consumer.pause(empty);
+            total = records;
+            return remaining;
+        }
+
+        private Map<TopicPartition, Long> offsetsAt(Consumer<Long, Object> consumer, List<TopicPartition> partitions,
+                                                    Instant timestamp, Map<TopicPartition, Long> latestOffsets) {
+            Map<TopicPartition, Long> timestamps = new HashMap<>();
+            partitions.forEach(partition -> timestamps.put(partition, timestamp.toEpochMilli()));
+
+            Map<TopicPartition, Long> offsets = new HashMap<>();
+            consumer.offsetsForTimes(timestamps).forEach((partition, offsetAndTimestamp) ->
+                    // no record at or after the timestamp yet
+                    offsets.put(partition, Optional.ofNullable(offsetAndTimestamp)
+                            .map(OffsetAndTimestamp::offset)
+                            .orElse(latestOffsets.get(partition))));
+            return offsets;
+        }
+
+        private void process(List<ConsumerRecord<Long, Object>> records, ExecutorService deliveryExecutor,
+                             Semaphore deliveries) throws InterruptedException {
+            if (target == ReplayTarget.PAYMENT_EVENTS) {
+                reenrich(records, deliveryExecutor, deliveries);
+            } else {
+                redeliver(records, deliveryExecutor, deliveries);
+            }
+        }
+
+        private void reenrich(List<ConsumerRecord<Long, Object>> records, ExecutorService deliveryExecutor,
+                              Semaphore deliveries) throws InterruptedException {
+            Map<Long, List<PaymentEvent>> paymentEventsByMerchant = new LinkedHashMap<>();
+            for (ConsumerRecord<Long, Object> record : records) {
+                if (record.value() instanceof PaymentEvent paymentEvent) {
+                    paymentEventsByMerchant.computeIfAbsent(paymentEvent.getMerchantId(), merchantId -> new ArrayList<>())
+                            .add(paymentEvent);
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+
+            List<Future<?>> pending = new ArrayList<>();
+            paymentEventsByMerchant.forEach((merchantId, paymentEvents) -> pending.add(deliveryExecutor.submit(() -> {
+                for (int i = 0; i < paymentEvents.size(); i++) {
+                    rateLimiter.acquire(merchantId);
+                }
+                deliveries.acquire();
+                try {
+                    reenrich(paymentEvents);
+                } finally {
+                    deliveries.release();
+                }
+                return null;
+            })));
+            awaitAll(pending);
+        }
+
+        private void reenrich(List<PaymentEvent> paymentEvents) {
+            try {
+                enrichedPaymentEventsProducer.produceAllInLocalTransaction(paymentEnrichmentService.enrichAll(paymentEvents));
+                processed.addAndGet(paymentEvents.size());
+            } catch (CustomerNotFoundException e) {
+                // fall back to one by one so a single unknown customer does not fail the whole batch
+                for (PaymentEvent paymentEvent : paymentEvents) {
+                    try {
+                        enrichedPaymentEventsProducer.produceAllInLocalTransaction(
+                                List.of(paymentEnrichmentService.enrich(paymentEvent)));
+                        processed.incrementAndGet();
+                    } catch (CustomerNotFoundException notFound) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        private void redeliver(List<ConsumerRecord<Long, Object>> records, ExecutorService deliveryExecutor,
+                               Semaphore deliveries) throws InterruptedException {
+            List<Future<?>> pending = new ArrayList<>();
+            for (ConsumerRecord<Long, Object> record : records) {
+                if (!(record.value() instanceof EnrichedPaymentEvent enrichedPaymentEvent)) {
+                    failed.incrementAndGet();
+                    continue;
+                }
+                pending.add(deliveryExecutor.submit(() -> {
+                    rateLimiter.acquire(enrichedPaymentEvent.getMerchantId());
+                    deliveries.acquire();
+                    try {
+                        enrichedPaymentEventsConsumer.consume(enrichedPaymentEvent);
+                        processed.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        failed.incrementAndGet();
+                        log.warn("Replayed webhook delivery failed",
+                                kv("payment_id", enrichedPaymentEvent.getPaymentId()),
+                                kv("exception", e.getMessage()));
+                    } finally {
+                        deliveries.release();
+                    }
+                    return null;
+                }));
+            }
+            awaitAll(pending);
+        }
+
+        /**
+         * Waits for the tasks of one poll, so the next poll only starts once it is handled, keeping the position
+         * meaningful for progress. Unexpected failures of re-enrichment fail the replay, as on the poll thread.
+         */
+        private void awaitAll(List<Future<?>> pending) throws InterruptedException {
+            for (Future<?> task : pending) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException runtimeException) {
+                        throw runtimeException;
+                    }
+                    failed.incrementAndGet();
+                }
+            }
+        }
+
+        private ReplayProgress progress() {
+            long done = processed.get() + failed.get();
+            double elapsedSeconds = (System.nanoTime() - startedAtNanos) / 1e9;
+            double rate = elapsedSeconds > 0 ? done / elapsedSeconds : 0;
+            Long eta = state == ReplayState.RUNNING && rate > 0 ? (long) Math.ceil(Math.max(0, total - done) / rate) : null;
+            return new ReplayProgress(target, state, from, to, total, processed.get(), failed.get(), rate, eta);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.biedron.payments.replay;
+
+import java.util.Locale;
+
+public enum ReplayTarget {
+
+    /**
+     * Re-enriches payment events and writes them to the enriched events topic again.
+     */
+    PAYMENT_EVENTS,
+
+    /**
+     * Re-delivers enriched events to the merchant webhooks.
+     */
+    ENRICHED_PAYMENT_EVENTS;
+
+    /**
+     * Parses the endpoint path form, e.g. {@code enriched-payment-events}.
+     */
+    public static ReplayTarget fromPath(String path) {
+        return valueOf(path.toUpperCase(Locale.ROOT).replace('-', '_'));
+    }
+}
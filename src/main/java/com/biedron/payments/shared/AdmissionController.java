@@ -0,0 +1,110 @@
+package com.biedron.payments.shared;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Pipeline wide budget of events and serialized bytes that have been handed to an asynchronous stage but not
+ * finished yet. When either budget is exceeded, the partition whose record went over it is paused on its listener
+ * container, and all partitions it paused are released once both budgets drained below {@code resume-ratio}.
+ * Pauses go through the shared {@link PausedPartitions}, so a partition also paused by another owner stays paused.
+ * Records already fetched are still processed, so the overshoot is bounded by one poll per paused partition.
+ * <p>
+ * Only the payment events listener modes that hand records to asynchronous work (key-ordered, pipelined) admit
+ * through it. The enriched events container calls the webhooks synchronously on its listener threads, so its
+ * in-flight work is already bounded by its concurrency and it is not paused here; the fused pipeline mode is
+ * bounded by its queue capacity instead.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private static final String PAUSE_OWNER = "admission";
+
+    private final boolean enabled;
+
+    private final long maxInFlightEvents;
+
+    private final long maxInFlightBytes;
+
+    private final double resumeRatio;
+
+    private final AtomicLong inFlightEvents = new AtomicLong();
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    private final PausedPartitions pausedPartitions;
+
+    public AdmissionController(
+            PausedPartitions pausedPartitions,
+            MeterRegistry meterRegistry,
+            @Value("${spring.application.app.backpressure.enabled:false}") boolean enabled,
+            @Value("${spring.application.app.backpressure.max-in-flight-events:10000}") long maxInFlightEvents,
+            @Value("${spring.application.app.backpressure.max-in-flight-bytes:67108864}") long maxInFlightBytes,
+            @Value("${spring.application.app.backpressure.resume-ratio:0.5}") double resumeRatio) {
+        this.pausedPartitions = pausedPartitions;
+        this.enabled = enabled;
+        this.maxInFlightEvents = maxInFlightEvents;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.resumeRatio = resumeRatio;
+        meterRegistry.gauge("payment.notifications.admission.in.flight.events", inFlightEvents);
+        meterRegistry.gauge("payment.notifications.admission.in.flight.bytes", inFlightBytes);
+        meterRegistry.gauge("payment.notifications.admission.paused.partitions", this, AdmissionController::pausedPartitions);
+    }
+
+    public void admit(TopicPartition partition, long bytes) {
+        long events = inFlightEvents.incrementAndGet();
+        long totalBytes = inFlightBytes.addAndGet(bytes);
+        if (enabled && (events > maxInFlightEvents || totalBytes > maxInFlightBytes)) {
+            pause(partition, events, totalBytes);
+        }
+    }
+
+    public void release(long bytes) {
+        long events = inFlightEvents.decrementAndGet();
+        long totalBytes = inFlightBytes.addAndGet(-bytes);
+        if (events <= maxInFlightEvents * resumeRatio && totalBytes <= maxInFlightBytes * resumeRatio) {
+            resumeAll(events, totalBytes);
+        }
+    }
+
+    public long inFlightEvents() {
+        return inFlightEvents.get();
+    }
+
+    public long inFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    public int pausedPartitions() {
+        return pausedPartitions.size(PAUSE_OWNER);
+    }
+
+    private void pause(TopicPartition partition, long events, long totalBytes) {
+        if (pausedPartitions.pause(PAUSE_OWNER, partition)) {
+            log.warn("Admission budget exceeded, pausing partition",
+                    kv("topic", partition.topic()),
+                    kv("partition", partition.partition()),
+                    kv("in_flight_events", events),
+                    kv("in_flight_bytes", totalBytes));
+        }
+    }
+
+    private void resumeAll(long events, long totalBytes) {
+        Set<TopicPartition> resumed = pausedPartitions.resumeAll(PAUSE_OWNER);
+        if (!resumed.isEmpty()) {
+            log.info("Admission budget drained, releasing paused partitions",
+                    kv("partitions", resumed.toString()),
+                    kv("in_flight_events", events),
+                    kv("in_flight_bytes", totalBytes));
+        }
+    }
+}
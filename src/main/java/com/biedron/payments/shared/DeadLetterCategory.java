@@ -0,0 +1,62 @@
+package com.biedron.payments.shared;
+
+import com.biedron.payments.customer.CustomerNotFoundException;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Why a record was sent to a dead-letter topic; written to the {@link #HEADER} header and used as a metric tag.
+ */
+public enum DeadLetterCategory {
+
+    /**
+     * The value could not be deserialized, the dead-letter record holds the original bytes.
+     */
+    DESERIALIZATION,
+
+    /**
+     * The payment references a customer that does not exist.
+     */
+    CUSTOMER_NOT_FOUND,
+
+    /**
+     * The message was deserialized but could not be converted for delivery.
+     */
+    INVALID_PAYLOAD,
+
+    /**
+     * A transient failure that did not recover within the retry backoff.
+     */
+    RETRIES_EXHAUSTED;
+
+    public static final String HEADER = "dlq_category";
+
+    public static DeadLetterCategory classify(Throwable exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException || cause instanceof SerializationException) {
+                return DESERIALIZATION;
+            }
+            if (cause instanceof CustomerNotFoundException) {
+                return CUSTOMER_NOT_FOUND;
+            }
+            if (cause instanceof InvalidProtocolBufferException) {
+                return INVALID_PAYLOAD;
+            }
+        }
+        return RETRIES_EXHAUSTED;
+    }
+
+    public Header toHeader() {
+        return new RecordHeader(HEADER, name().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String tag() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
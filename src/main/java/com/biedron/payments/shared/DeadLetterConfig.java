@@ -0,0 +1,83 @@
+package com.biedron.payments.shared;
+
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsSerDe;
+import com.biedron.payments.paymentevents.PaymentEventsSerDe;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Records that can never succeed (undeserializable bytes, unknown customers) skip the retry backoff and,
+ * like records whose retries are exhausted, are published to {@code <topic><topic-suffix>} with the original
+ * bytes. The original topic, partition, offset and exception are added as {@code kafka_dlt-*} headers by the
+ * recoverer, the {@link DeadLetterCategory} as {@link DeadLetterCategory#HEADER}.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.application.app.dead-letter.enabled", havingValue = "true")
+public class DeadLetterConfig {
+
+    @Value("${spring.application.app.dead-letter.topic-suffix:.dlq}")
+    private String topicSuffix;
+
+    @Bean("deadLetterKafkaTemplate")
+    public KafkaTemplate<Long, Object> deadLetterKafkaTemplate(
+            KafkaProperties kafkaProperties,
+            SslBundles sslBundles) {
+        var config = new HashMap<>(kafkaProperties.buildProducerProperties(sslBundles));
+        // raw bytes of undeserializable records, deserialized values of the others
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(PaymentEvent.class, new PaymentEventsSerDe());
+        serializers.put(EnrichedPaymentEvent.class, new EnrichedPaymentEventsSerDe());
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(config, new LongSerializer(),
+                new DelegatingByTypeSerializer(serializers)));
+    }
+
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterPublishingRecoverer(
+            @Qualifier("deadLetterKafkaTemplate") KafkaTemplate<Long, Object> deadLetterKafkaTemplate,
+            MeterRegistry meterRegistry) {
+        var recoverer = new DeadLetterPublishingRecoverer(deadLetterKafkaTemplate,
+                (record, exception) -> new TopicPartition(record.topic() + topicSuffix, -1));
+        // invoked once per dead-lettered record, so it also counts them
+        recoverer.setHeadersFunction((record, exception) -> {
+            DeadLetterCategory category = DeadLetterCategory.classify(exception);
+            meterRegistry.counter("payment.notifications.dead.letter",
+                    "topic", record.topic(),
+                    "category", category.tag()).increment();
+            log.warn("Sending record to dead-letter topic",
+                    kv("topic", record.topic()),
+                    kv("partition", record.partition()),
+                    kv("offset", record.offset()),
+                    kv("category", category.tag()),
+                    kv("exception", exception.getMessage()));
+            return new RecordHeaders(List.of(category.toHeader()));
+        });
+        return recoverer;
+    }
+}
@@ -0,0 +1,158 @@
+package com.biedron.payments.shared;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * {@code POST /actuator/deadletters/{topic}} copies the records of {@code <topic><topic-suffix>} back to the topic
+ * they failed on, byte for byte, and commits them for a dedicated consumer group so each record is replayed once.
+ * The partitions are assigned rather than subscribed, so there is no group join to wait for, and the replay stops
+ * at the end offsets it started with or after {@code maxRecords} records.
+ * Meant to be called after the cause (missing customer, fixed deserializer) has been resolved.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "deadletters")
+@ConditionalOnProperty(name = "spring.application.app.dead-letter.enabled", havingValue = "true")
+public class DeadLetterReplayEndpoint {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(2);
+
+    private final KafkaProperties kafkaProperties;
+
+    private final SslBundles sslBundles;
+
+    private final KafkaTemplate<Long, byte[]> rawKafkaTemplate;
+
+    @Value("${spring.application.app.dead-letter.topic-suffix:.dlq}")
+    private String topicSuffix;
+
+    @Value("${spring.application.app.dead-letter.replay-group:payment-notifications-dlq-replay}")
+    private String replayGroup;
+
+    public DeadLetterReplayEndpoint(
+            KafkaProperties kafkaProperties,
+            SslBundles sslBundles,
+            @Qualifier("rawKafkaTemplate") KafkaTemplate<Long, byte[]> rawKafkaTemplate) {
+        this.kafkaProperties = kafkaProperties;
+        this.sslBundles = sslBundles;
+        this.rawKafkaTemplate = rawKafkaTemplate;
+    }
+
+    @WriteOperation
+    public Map<String, Object> replay(@Selector String topic, @Nullable Integer maxRecords) {
+        String deadLetterTopic = topic + topicSuffix;
+        int limit = maxRecords == null ? Integer.MAX_VALUE : maxRecords;
+        int replayed = 0;
+
+        try (Consumer<Long, byte[]> consumer = createConsumer(limit)) {
+            Map<TopicPartition, Long> endOffsets = seekToUnreplayed(consumer, deadLetterTopic);
+            while (replayed < limit && !endOffsets.isEmpty()) {
+                ConsumerRecords<Long, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                List<CompletableFuture<?>> sends = new ArrayList<>();
+                Map<TopicPartition, OffsetAndMetadata> replayedOffsets = new HashMap<>();
+                for (TopicPartition partition : records.partitions()) {
+                    Long endOffset = endOffsets.get(partition);
+                    for (ConsumerRecord<Long, byte[]> record : records.records(partition)) {
+                        if (replayed >= limit || endOffset == null || record.offset() >= endOffset) {
+                            break;
+                        }
+                        sends.add(rawKafkaTemplate.send(toOriginal(topic, record)));
+                        replayedOffsets.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                        replayed++;
+                    }
+                }
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+                if (!replayedOffsets.isEmpty()) {
+                    consumer.commitSync(replayedOffsets);
+                }
+                endOffsets.keySet().removeIf(partition -> consumer.position(partition) >= endOffsets.get(partition));
+            }
+        }
+
+        log.info("Replayed dead-letter records",
+                kv("topic", deadLetterTopic),
+                kv("replayed", replayed));
+        return Map.of("topic", deadLetterTopic, "replayed", replayed);
+    }
+
+    /**
+     * Assigns every partition of the dead-letter topic, without joining the group, and seeks it to the offset the
+     * replay group committed (or its beginning). Returns the end offsets at the start of the replay, leaving out
+     * partitions with nothing left to replay, so records dead-lettered meanwhile wait for the next replay.
+     */
+    private Map<TopicPartition, Long> seekToUnreplayed(Consumer<Long, byte[]> consumer, String deadLetterTopic) {
+        List<TopicPartition> partitions = consumer.partitionsFor(deadLetterTopic).stream()
+                .map(partitionInfo -> new TopicPartition(deadLetterTopic, partitionInfo.partition()))
+                .toList();
+        consumer.assign(partitions);
+
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+        Map<TopicPartition, Long> beginningOffsets = consumer.beginningOffsets(partitions);
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        consumer.endOffsets(partitions).forEach((partition, endOffset) -> {
+            OffsetAndMetadata committedOffset = committed.get(partition);
+            long start = committedOffset == null ? beginningOffsets.get(partition)
+                    : Math.max(committedOffset.offset(), beginningOffsets.get(partition));
+            if (start < endOffset) {
+                consumer.seek(partition, start);
+                endOffsets.put(partition, endOffset);
+            }
+        });
+        return endOffsets;
+    }
+
+    Consumer<Long, byte[]> createConsumer(int limit) {
+        Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties(sslBundles));
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, replayGroup);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.max(1, Math.min(limit, 500)));
+        return new DefaultKafkaConsumerFactory<>(config, new LongDeserializer(), new ByteArrayDeserializer()).createConsumer();
+    }
+
+    private ProducerRecord<Long, byte[]> toOriginal(String topic, ConsumerRecord<Long, byte[]> record) {
+        Header originalTopic = record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        String target = originalTopic == null ? topic : new String(originalTopic.value(), StandardCharsets.UTF_8);
+
+        List<Header> headers = new ArrayList<>();
+        for (Header header : record.headers()) {
+            if (!header.key().startsWith("kafka_dlt-") && !header.key().equals(DeadLetterCategory.HEADER)) {
+                headers.add(header);
+            }
+        }
+        return new ProducerRecord<>(target, null, null, record.key(), record.value(), headers);
+    }
+}
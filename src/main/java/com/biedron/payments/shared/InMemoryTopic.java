@@ -0,0 +1,125 @@
+package com.biedron.payments.shared;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * In-process stand-in for a Kafka topic: a {@link RingBuffer} drained by {@code dispatchers} virtual threads
+ * which hand every event to the same handler the Kafka listener calls, retrying failures with the listener back off.
+ * With a single dispatcher events are handled in send order. Nothing is persisted, events still in the buffer
+ * when the process stops are lost. There is no dead-letter topic either: events whose retries ran out are dropped,
+ * logged and counted as {@code payment.notifications.transport.in.memory.dropped} per topic.
+ */
+@Slf4j
+public class InMemoryTopic<T> {
+
+    private final String name;
+
+    private final RingBuffer<T> ringBuffer;
+
+    private final Consumer<T> handler;
+
+    private final BackOff backOff;
+
+    private final int dispatchers;
+
+    private final Counter dropped;
+
+    private final List<Thread> dispatcherThreads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    public InMemoryTopic(String name, int capacity, int dispatchers, Consumer<T> handler, BackOff backOff,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.ringBuffer = new RingBuffer<>(capacity);
+        this.handler = handler;
+        this.backOff = backOff;
+        this.dispatchers = dispatchers;
+        meterRegistry.gauge("payment.notifications.transport.in.memory.depth", Tags.of("topic", name),
+                ringBuffer, RingBuffer::size);
+        this.dropped = meterRegistry.counter("payment.notifications.transport.in.memory.dropped", Tags.of("topic", name));
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < dispatchers; i++) {
+            dispatcherThreads.add(Thread.ofVirtual().name(name + "-dispatcher-" + i).start(this::dispatchLoop));
+        }
+    }
+
+    public void stop() {
+        running = false;
+        dispatcherThreads.forEach(Thread::interrupt);
+        if (ringBuffer.size() > 0) {
+            log.warn("In-memory topic stopped with undispatched events",
+                    kv("topic", name),
+                    kv("depth", ringBuffer.size()));
+        }
+    }
+
+    /**
+     * Blocks while the buffer is full.
+     */
+    public void send(T event) {
+        try {
+            ringBuffer.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending to in-memory topic " + name, e);
+        }
+    }
+
+    public int depth() {
+        return ringBuffer.size();
+    }
+
+    /**
+     * Events dropped since start because their retries ran out.
+     */
+    public long dropped() {
+        return (long) dropped.count();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                dispatch(ringBuffer.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch(T event) throws InterruptedException {
+        BackOffExecution backOffExecution = backOff.start();
+        while (true) {
+            try {
+                handler.accept(event);
+                return;
+            } catch (RuntimeException e) {
+                long nextBackOff = backOffExecution.nextBackOff();
+                if (nextBackOff == BackOffExecution.STOP) {
+                    dropped.increment();
+                    log.error("Retries exhausted for in-memory topic event, dropping",
+                            kv("topic", name),
+                            kv("dropped", (long) dropped.count()),
+                            kv("exception", e.getMessage()));
+                    return;
+                }
+                Thread.sleep(nextBackOff);
+            }
+        }
+    }
+}
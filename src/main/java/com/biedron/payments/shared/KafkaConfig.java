@@ -1,12 +1,23 @@
 package com.biedron.payments.shared;
 
+import com.biedron.payments.customer.CustomerNotFoundException;
+import com.biedron.payments.enrichedevents.EnqueueLatencyRecordInterceptor;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsKeyStrategy;
 import com.biedron.payments.enrichedevents.EnrichedPaymentEventsSerDe;
+import com.biedron.payments.enrichedevents.MerchantAffinityPartitioner;
+import com.biedron.payments.paymentevents.PaymentEventsListenerMode;
 import com.biedron.payments.paymentevents.PaymentEventsSerDe;
 import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.LongDeserializer;
 import org.apache.kafka.common.serialization.LongSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
@@ -15,10 +26,15 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
 import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 import org.springframework.util.backoff.BackOff;
 
+import java.time.Clock;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -31,6 +47,54 @@ public class KafkaConfig {
     @Value("${KAFKA_ENRICHED_CONSUMER_GROUP}")
     private String enrichedEventsConsumerGroup;
 
+    @Value("${spring.application.app.payment-events.listener-mode:record}")
+    private PaymentEventsListenerMode paymentEventsListenerMode;
+
+    @Value("${spring.application.app.payment-events.batch.max-poll-records:500}")
+    private int batchMaxPollRecords;
+
+    @Value("${spring.application.app.payment-events.concurrency:1}")
+    private int paymentEventsConcurrency;
+
+    @Value("${spring.application.app.enriched-payment-events.concurrency:1}")
+    private int enrichedPaymentEventsConcurrency;
+
+    @Value("${spring.application.app.transactions.enabled:false}")
+    private boolean transactionsEnabled;
+
+    @Value("${spring.application.app.transactions.transaction-id-prefix:payment-notifications-tx-}")
+    private String transactionIdPrefix;
+
+    @Value("${spring.application.app.transactions.commit-interval-ms:500}")
+    private int transactionCommitIntervalMs;
+
+    @Value("${spring.application.app.transactions.fetch-min-bytes:65536}")
+    private int transactionFetchMinBytes;
+
+    @Value("${spring.application.app.topics.enriched-payment-events}")
+    private String enrichedPaymentEventsTopic;
+
+    @Value("${spring.application.app.enriched-payment-events.partitioning.key:customer}")
+    private EnrichedPaymentEventsKeyStrategy enrichedPaymentEventsKeyStrategy;
+
+    @Value("${spring.application.app.enriched-payment-events.partitioning.hot-merchants:}")
+    private String hotMerchants;
+
+    @Value("${spring.application.app.enriched-payment-events.partitioning.hot-merchant-spread:4}")
+    private int hotMerchantSpread;
+
+    @Value("${spring.application.app.rebalance.cooperative:false}")
+    private boolean cooperativeRebalancing;
+
+    @Value("${spring.application.app.rebalance.static-membership.instance-id:}")
+    private String groupInstanceId;
+
+    @Value("${spring.application.app.rebalance.static-membership.session-timeout-ms:60000}")
+    private int staticMembershipSessionTimeoutMs;
+
+    @Value("${spring.application.app.dead-letter.enabled:false}")
+    private boolean deadLetterEnabled;
+
     @Value("${spring.application.app.rest.blocking.retry.maxAttempts}")
     private int retryMaxAttempts;
 
@@ -45,17 +109,52 @@ public class KafkaConfig {
             KafkaProperties kafkaProperties,
             SslBundles sslBundles) {
         Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties(sslBundles));
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, PaymentEventsSerDe.class);
+        if (paymentEventsListenerMode == PaymentEventsListenerMode.SPLICE) {
+            // the listener parses the raw bytes itself and throws InvalidProtocolBufferException on invalid ones
+            putValueDeserializer(config, ByteArrayDeserializer.class, null);
+        } else {
+            putValueDeserializer(config, PaymentEventsSerDe.class, PaymentEventsSerDe.FAIL_ON_INVALID_CONFIG);
+        }
         config.put(ConsumerConfig.GROUP_ID_CONFIG, paymentEventsConsumerGroup);
+        putRebalanceConfig(config);
+        if (paymentEventsListenerMode == PaymentEventsListenerMode.BATCH) {
+            config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        }
+        if (transactionsEnabled) {
+            // let the broker accumulate records for up to the commit interval, so each transaction covers a full batch
+            config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, transactionFetchMinBytes);
+            config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, transactionCommitIntervalMs);
+        }
         return new DefaultKafkaConsumerFactory<>(config);
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, byte[]> paymentEventsKafkaListenerContainerFactory(
-            @Qualifier("paymentEventsConsumerFactory") ConsumerFactory<String, byte[]> consumerFactory, BackOff backOff) {
+            @Qualifier("paymentEventsConsumerFactory") ConsumerFactory<String, byte[]> consumerFactory,
+            ProducerFactory<Long, EnrichedPaymentEvent> producerFactory,
+            BackOff backOff,
+            ObjectProvider<DeadLetterPublishingRecoverer> deadLetterPublishingRecoverer,
+            PartitionRebalanceListener partitionRebalanceListener) {
         var factory = new ConcurrentKafkaListenerContainerFactory<String, byte[]>();
         factory.setConsumerFactory(consumerFactory);
-        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        factory.getContainerProperties().setConsumerRebalanceListener(partitionRebalanceListener);
+        factory.setConcurrency(paymentEventsConcurrency);
+        factory.setBatchListener(paymentEventsListenerMode == PaymentEventsListenerMode.BATCH);
+        if (paymentEventsListenerMode == PaymentEventsListenerMode.KEY_ORDERED
+                || paymentEventsListenerMode == PaymentEventsListenerMode.PIPELINED) {
+            // records complete out of order, commits are deferred until the gaps are filled
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+            factory.getContainerProperties().setAsyncAcks(true);
+        }
+        if (transactionsEnabled) {
+            if (paymentEventsListenerMode != PaymentEventsListenerMode.BATCH) {
+                throw new IllegalStateException("Transactional mode requires payment-events listener-mode batch");
+            }
+            // one transaction per poll batch: the consumed offsets and every enriched event commit atomically;
+            // not registered as a bean so the JPA transaction manager stays the default one
+            factory.getContainerProperties().setKafkaAwareTransactionManager(new KafkaTransactionManager<>(producerFactory));
+        }
+        factory.setCommonErrorHandler(errorHandler(backOff, deadLetterPublishingRecoverer.getIfAvailable()));
         return factory;
     }
 
@@ -73,17 +172,27 @@ public class KafkaConfig {
             SslBundles sslBundles) {
         Map<String, Object> config = new HashMap<>(kafkaProperties.buildConsumerProperties(sslBundles));
         config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, LongDeserializer.class);
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, EnrichedPaymentEventsSerDe.class);
+        putValueDeserializer(config, EnrichedPaymentEventsSerDe.class, EnrichedPaymentEventsSerDe.FAIL_ON_INVALID_CONFIG);
         config.put(ConsumerConfig.GROUP_ID_CONFIG, enrichedEventsConsumerGroup);
+        putRebalanceConfig(config);
+        if (transactionsEnabled) {
+            config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        }
         return new DefaultKafkaConsumerFactory<>(config);
     }
 
     @Bean
     public ConcurrentKafkaListenerContainerFactory<Long, byte[]> enrichedPaymentEventsKafkaListenerContainerFactory(
-            @Qualifier("enrichedPaymentEventsConsumerFactory")  ConsumerFactory<Long, byte[]> consumerFactory, BackOff backOff) {
+            @Qualifier("enrichedPaymentEventsConsumerFactory")  ConsumerFactory<Long, byte[]> consumerFactory, BackOff backOff,
+            MeterRegistry meterRegistry,
+            ObjectProvider<DeadLetterPublishingRecoverer> deadLetterPublishingRecoverer,
+            PartitionRebalanceListener partitionRebalanceListener) {
         var factory = new ConcurrentKafkaListenerContainerFactory<Long, byte[]>();
         factory.setConsumerFactory(consumerFactory);
-        factory.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+        factory.getContainerProperties().setConsumerRebalanceListener(partitionRebalanceListener);
+        factory.setConcurrency(enrichedPaymentEventsConcurrency);
+        factory.setRecordInterceptor(new EnqueueLatencyRecordInterceptor<>(meterRegistry, Clock.systemUTC()));
+        factory.setCommonErrorHandler(errorHandler(backOff, deadLetterPublishingRecoverer.getIfAvailable()));
         return factory;
     }
 
@@ -95,13 +204,84 @@ public class KafkaConfig {
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
         // Enable idempotent producer for exactly-once semantics
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        putPartitioner(config);
 
-        return new DefaultKafkaProducerFactory<>(config);
+        var factory = new DefaultKafkaProducerFactory<Long, EnrichedPaymentEvent>(config);
+        if (transactionsEnabled) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        return factory;
     }
 
     @Bean
     public KafkaTemplate<Long, EnrichedPaymentEvent> kafkaTemplate(ProducerFactory<Long, EnrichedPaymentEvent> producerFactory) {
         return new KafkaTemplate<>(producerFactory);
     }
-}
 
+    @Bean("rawProducerFactory")
+    public ProducerFactory<Long, byte[]> rawProducerFactory(
+            KafkaProperties kafkaProperties,
+            SslBundles sslBundles) {
+        var config = new HashMap<>(kafkaProperties.buildProducerProperties(sslBundles));
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        putPartitioner(config);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean("rawKafkaTemplate")
+    public KafkaTemplate<Long, byte[]> rawKafkaTemplate(@Qualifier("rawProducerFactory") ProducerFactory<Long, byte[]> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    /**
+     * With dead-lettering enabled, deserialization failures are caught by an ErrorHandlingDeserializer
+     * instead of being returned as null, so they reach the error handler with the original bytes.
+     * {@code failOnInvalidConfig} is null for deserializers that never return null for invalid data.
+     */
+    private void putValueDeserializer(Map<String, Object> config, Class<?> serDe, String failOnInvalidConfig) {
+        if (deadLetterEnabled) {
+            config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+            config.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, serDe);
+            if (failOnInvalidConfig != null) {
+                config.put(failOnInvalidConfig, true);
+            }
+        } else {
+            config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, serDe);
+        }
+    }
+
+    /**
+     * Cooperative sticky assignment only revokes the partitions that move, static membership lets a restarted
+     * pod rejoin within the session timeout without any rebalance. Concurrent containers suffix the instance id per consumer.
+     */
+    private void putRebalanceConfig(Map<String, Object> config) {
+        if (cooperativeRebalancing) {
+            config.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
+        }
+        if (!groupInstanceId.isBlank()) {
+            config.put(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupInstanceId);
+            config.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, staticMembershipSessionTimeoutMs);
+        }
+    }
+
+    private void putPartitioner(Map<String, Object> config) {
+        if (enrichedPaymentEventsKeyStrategy == EnrichedPaymentEventsKeyStrategy.MERCHANT && !hotMerchants.isBlank()) {
+            config.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, MerchantAffinityPartitioner.class);
+            config.put(MerchantAffinityPartitioner.TOPIC_CONFIG, enrichedPaymentEventsTopic);
+            config.put(MerchantAffinityPartitioner.HOT_MERCHANTS_CONFIG, hotMerchants);
+            config.put(MerchantAffinityPartitioner.HOT_MERCHANT_SPREAD_CONFIG, hotMerchantSpread);
+        }
+    }
+
+    private DefaultErrorHandler errorHandler(BackOff backOff, DeadLetterPublishingRecoverer deadLetterPublishingRecoverer) {
+        if (deadLetterPublishingRecoverer == null) {
+            return new DefaultErrorHandler(backOff);
+        }
+        var errorHandler = new DefaultErrorHandler(deadLetterPublishingRecoverer, backOff);
+        // deserialization failures are not retried by default either
+        errorHandler.addNotRetryableExceptions(CustomerNotFoundException.class, InvalidProtocolBufferException.class);
+        return errorHandler;
+    }
+}
@@ -0,0 +1,244 @@
+package com.biedron.payments.shared;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Watches lag and processing rate of both consumer groups and adjusts the concurrency of the
+ * local listener containers between {@code min-concurrency} and the partition count.
+ * The group wide number of pods needed to drain the backlog within {@code target-drain-seconds}
+ * is published as the {@code payment.notifications.recommended.replicas} gauge for the external autoscaler.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spring.application.app.autoscaling.enabled", havingValue = "true")
+public class ListenerConcurrencyController {
+
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    private final AdminClient adminClient;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, String> topicsByGroup;
+
+    private final Map<String, GroupState> groupStates = new ConcurrentHashMap<>();
+
+    @Value("${spring.application.app.autoscaling.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value("${spring.application.app.autoscaling.max-concurrency-per-pod:8}")
+    private int maxConcurrencyPerPod;
+
+    @Value("${spring.application.app.autoscaling.target-drain-seconds:60}")
+    private long targetDrainSeconds;
+
+    @Value("${spring.application.app.autoscaling.cooldown-ms:120000}")
+    private long cooldownMs;
+
+    public ListenerConcurrencyController(
+            KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+            KafkaAdmin kafkaAdmin,
+            MeterRegistry meterRegistry,
+            @Value("${KAFKA_PAYMENT_CONSUMER_GROUP}") String paymentEventsConsumerGroup,
+            @Value("${KAFKA_ENRICHED_CONSUMER_GROUP}") String enrichedEventsConsumerGroup,
+            @Value("${spring.application.app.topics.payment-events}") String paymentEventsTopic,
+            @Value("${spring.application.app.topics.enriched-payment-events}") String enrichedPaymentEventsTopic) {
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+        this.adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+        this.meterRegistry = meterRegistry;
+        this.topicsByGroup = Map.of(
+                paymentEventsConsumerGroup, paymentEventsTopic,
+                enrichedEventsConsumerGroup, enrichedPaymentEventsTopic);
+    }
+
+    @Scheduled(fixedDelayString = "${spring.application.app.autoscaling.interval-ms:30000}")
+    public void evaluate() {
+        topicsByGroup.forEach((group, topic) -> {
+            try {
+                evaluate(group, topic);
+            } catch (ExecutionException | RuntimeException e) {
+                log.warn("Could not evaluate consumer group lag",
+                        kv("group", group),
+                        kv("topic", topic),
+                        kv("exception", e.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        adminClient.close(Duration.ofSeconds(5));
+    }
+
+    private void evaluate(String group, String topic) throws ExecutionException, InterruptedException {
+        GroupState state = groupStates.computeIfAbsent(group, this::registerGauges);
+
+        int partitions = adminClient.describeTopics(List.of(topic)).allTopicNames().get()
+                .get(topic).partitions().size();
+
+        Map<TopicPartition, OffsetAndMetadata> committed = adminClient.listConsumerGroupOffsets(group)
+                .partitionsToOffsetAndMetadata().get();
+        Map<TopicPartition, OffsetSpec> latest = committed.keySet().stream()
+                .filter(topicPartition -> topicPartition.topic().equals(topic))
+                .filter(topicPartition -> committed.get(topicPartition) != null)
+                .collect(Collectors.toMap(Function.identity(), topicPartition -> OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> endOffsets = adminClient.listOffsets(latest).all().get();
+
+        long lag = 0;
+        long committedTotal = 0;
+        for (var entry : endOffsets.entrySet()) {
+            long committedOffset = committed.get(entry.getKey()).offset();
+            lag += Math.max(0, entry.getValue().offset() - committedOffset);
+            committedTotal += committedOffset;
+        }
+        double recordsPerSecond = state.recordsPerSecond(committedTotal, System.nanoTime());
+
+        ConsumerGroupDescription description = adminClient.describeConsumerGroups(List.of(group))
+                .describedGroups().get(group).get();
+        int members = Math.max(1, description.members().size());
+        int pods = (int) Math.max(1, description.members().stream().map(MemberDescription::host).distinct().count());
+
+        int requiredConsumers = desiredConcurrency(lag, recordsPerSecond, members, minConcurrency, partitions,
+                Duration.ofSeconds(targetDrainSeconds));
+        int recommendedReplicas = recommendedReplicas(requiredConsumers, maxConcurrencyPerPod);
+        int localConcurrency = Math.max(minConcurrency,
+                Math.min(Math.min(maxConcurrencyPerPod, partitions), ceilDiv(requiredConsumers, pods)));
+
+        state.lag.set(lag);
+        state.concurrency.set(localConcurrency);
+        state.recommendedReplicas.set(recommendedReplicas);
+
+        log.info("Evaluated consumer group lag",
+                kv("group", group),
+                kv("lag", lag),
+                kv("records_per_second", recordsPerSecond),
+                kv("partitions", partitions),
+                kv("members", members),
+                kv("required_consumers", requiredConsumers),
+                kv("recommended_replicas", recommendedReplicas),
+                kv("local_concurrency", localConcurrency));
+
+        applyConcurrency(group, state, localConcurrency);
+    }
+
+    private void applyConcurrency(String group, GroupState state, int concurrency) {
+        long now = System.currentTimeMillis();
+        if (now - state.lastChangeMillis < cooldownMs) {
+            return;
+        }
+
+        kafkaListenerEndpointRegistry.getListenerContainers().stream()
+                .filter(container -> group.equals(container.getGroupId()))
+                .filter(ConcurrentMessageListenerContainer.class::isInstance)
+                .map(container -> (ConcurrentMessageListenerContainer<?, ?>) container)
+                .filter(container -> container.getConcurrency() != concurrency)
+                .forEach(container -> {
+                    log.info("Changing listener container concurrency",
+                            kv("group", group),
+                            kv("listener_id", container.getListenerId()),
+                            kv("from", container.getConcurrency()),
+                            kv("to", concurrency));
+                    state.lastChangeMillis = now;
+                    container.stop(() -> {
+                        container.setConcurrency(concurrency);
+                        container.start();
+                    });
+                });
+    }
+
+    private GroupState registerGauges(String group) {
+        GroupState state = new GroupState();
+        Tags tags = Tags.of("group", group);
+        meterRegistry.gauge("payment.notifications.consumer.lag", tags, state.lag);
+        meterRegistry.gauge("payment.notifications.consumer.concurrency", tags, state.concurrency);
+        meterRegistry.gauge("payment.notifications.recommended.replicas", tags, state.recommendedReplicas);
+        return state;
+    }
+
+    /**
+     * Number of consumers the group needs so the current lag drains within the target time,
+     * bounded by {@code min} and the partition count.
+     */
+    static int desiredConcurrency(long lag, double recordsPerSecond, int current, int min, int partitions, Duration targetDrainTime) {
+        int desired;
+        if (lag == 0) {
+            desired = current - 1;
+        } else if (recordsPerSecond <= 0) {
+            desired = current + 1;
+        } else {
+            double drainSeconds = lag / recordsPerSecond;
+            double targetSeconds = Math.max(1, targetDrainTime.toSeconds());
+            if (drainSeconds > targetSeconds) {
+                desired = (int) Math.ceil(current * drainSeconds / targetSeconds);
+            } else if (drainSeconds < targetSeconds / 4) {
+                desired = current - 1;
+            } else {
+                desired = current;
+            }
+        }
+        return Math.max(min, Math.min(partitions, desired));
+    }
+
+    static int recommendedReplicas(int requiredConsumers, int maxConcurrencyPerPod) {
+        return Math.max(1, ceilDiv(requiredConsumers, maxConcurrencyPerPod));
+    }
+
+    private static int ceilDiv(int dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private static class GroupState {
+
+        private final AtomicLong lag = new AtomicLong();
+
+        private final AtomicLong concurrency = new AtomicLong();
+
+        private final AtomicLong recommendedReplicas = new AtomicLong(1);
+
+        private long lastCommittedTotal = -1;
+
+        private long lastSampleNanos;
+
+        private long lastChangeMillis;
+
+        private double recordsPerSecond(long committedTotal, long nowNanos) {
+            double rate = 0;
+            if (lastCommittedTotal >= 0 && nowNanos > lastSampleNanos) {
+                rate = (committedTotal - lastCommittedTotal) / ((nowNanos - lastSampleNanos) / 1_000_000_000d);
+            }
+            lastCommittedTotal = committedTotal;
+            lastSampleNanos = nowNanos;
+            return Math.max(0, rate);
+        }
+    }
+}
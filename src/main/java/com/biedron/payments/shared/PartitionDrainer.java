@@ -0,0 +1,18 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Implemented by listeners that finish records after the listener method returns. Called on the consumer thread
+ * before the offsets of revoked partitions are committed, so their in-flight work can be completed and acknowledged.
+ */
+public interface PartitionDrainer {
+
+    /**
+     * Blocks until the work of the partitions is acknowledged; returns false if the timeout elapsed first.
+     */
+    boolean drain(Collection<TopicPartition> partitions, Duration timeout) throws InterruptedException;
+}
@@ -0,0 +1,70 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counts work started but not yet acknowledged per partition, so a rebalance can wait for the partitions it moves.
+ */
+public class PartitionInFlightTracker {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition finished = lock.newCondition();
+
+    private final Map<TopicPartition, Integer> inFlight = new HashMap<>();
+
+    public void begin(TopicPartition partition) {
+        lock.lock();
+        try {
+            inFlight.merge(partition, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void end(TopicPartition partition) {
+        lock.lock();
+        try {
+            inFlight.computeIfPresent(partition, (key, count) -> count == 1 ? null : count - 1);
+            finished.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns false when the partitions still had work in flight after the timeout.
+     */
+    public boolean awaitIdle(Collection<TopicPartition> partitions, Duration timeout) throws InterruptedException {
+        long remainingNanos = timeout.toNanos();
+        lock.lock();
+        try {
+            while (partitions.stream().anyMatch(inFlight::containsKey)) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = finished.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight(TopicPartition partition) {
+        lock.lock();
+        try {
+            return inFlight.getOrDefault(partition, 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
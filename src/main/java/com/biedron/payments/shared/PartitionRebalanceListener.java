@@ -0,0 +1,77 @@
+package com.biedron.payments.shared;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Drains in-flight work and parks partition state only for the partitions that are revoked. With the
+ * cooperative sticky assignor that is just the partitions that actually move, the rest keep processing.
+ */
+@Slf4j
+@Component
+public class PartitionRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final ObjectProvider<PartitionDrainer> partitionDrainers;
+
+    private final PartitionStateRegistry partitionStateRegistry;
+
+    private final Duration drainTimeout;
+
+    public PartitionRebalanceListener(
+            ObjectProvider<PartitionDrainer> partitionDrainers,
+            PartitionStateRegistry partitionStateRegistry,
+            @Value("${spring.application.app.rebalance.drain-timeout-ms:10000}") long drainTimeoutMs) {
+        this.partitionDrainers = partitionDrainers;
+        this.partitionStateRegistry = partitionStateRegistry;
+        this.drainTimeout = Duration.ofMillis(drainTimeoutMs);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        for (PartitionDrainer partitionDrainer : partitionDrainers) {
+            try {
+                if (!partitionDrainer.drain(partitions, drainTimeout)) {
+                    log.warn("In-flight work not drained before revoke, it will be redelivered",
+                            kv("partitions", partitions.toString()),
+                            kv("drainer", partitionDrainer.getClass().getSimpleName()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        partitionStateRegistry.park(partitions);
+        log.info("Partitions revoked", kv("partitions", partitions.toString()));
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitionStateRegistry.discard(partitions);
+        log.warn("Partitions lost", kv("partitions", partitions.toString()));
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        List<TopicPartition> warm = partitionStateRegistry.restore(partitions);
+        log.info("Partitions assigned",
+                kv("partitions", partitions.toString()),
+                kv("warm_count", warm.size()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory state scoped to a partition. Revoked partitions are parked rather than cleared and get their
+ * state back if they are assigned to this instance again within {@code state-retention-ms}, which with
+ * sticky assignment and static membership is the usual outcome of a rolling deploy. Lost partitions are cleared.
+ */
+@Component
+public class PartitionStateRegistry {
+
+    private final Map<TopicPartition, Map<String, Object>> states = new ConcurrentHashMap<>();
+
+    private final Map<TopicPartition, Long> parkedAt = new ConcurrentHashMap<>();
+
+    private final long retentionMs;
+
+    public PartitionStateRegistry(@Value("${spring.application.app.rebalance.state-retention-ms:300000}") long retentionMs) {
+        this.retentionMs = retentionMs;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <S> S get(TopicPartition partition, String name, Supplier<S> initialState) {
+        return (S) states.computeIfAbsent(partition, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(name, key -> initialState.get());
+    }
+
+    public void park(Collection<TopicPartition> partitions) {
+        long now = System.currentTimeMillis();
+        partitions.stream()
+                .filter(states::containsKey)
+                .forEach(partition -> parkedAt.put(partition, now));
+        evictExpired(now);
+    }
+
+    /**
+     * Returns the partitions whose state was retained.
+     */
+    public List<TopicPartition> restore(Collection<TopicPartition> partitions) {
+        evictExpired(System.currentTimeMillis());
+        partitions.forEach(parkedAt::remove);
+        return partitions.stream()
+                .filter(states::containsKey)
+                .toList();
+    }
+
+    public void discard(Collection<TopicPartition> partitions) {
+        partitions.forEach(partition -> {
+            parkedAt.remove(partition);
+            states.remove(partition);
+        });
+    }
+
+    private void evictExpired(long now) {
+        parkedAt.entrySet().removeIf(parked -> {
+            boolean expired = now - parked.getValue() >= retentionMs;
+            if (expired) {
+                states.remove(parked.getKey());
+            }
+            return expired;
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Partitions paused on the listener containers they are assigned to, shared by every component that pauses them.
+ * Pausing only takes effect on the container's next poll, so unlike blocking the listener thread it never delays
+ * {@code poll()} past {@code max.poll.interval.ms}. Each caller pauses and resumes under its own owner token, and a
+ * partition is only resumed on its container once no owner holds it paused any more, so one owner draining its
+ * budget never undoes the pause of another.
+ */
+@Component
+public class PausedPartitions {
+
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    private final Map<TopicPartition, Set<String>> owners = new HashMap<>();
+
+    public PausedPartitions(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry) {
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+    }
+
+    /**
+     * Returns false if the partition was already paused by this owner.
+     */
+    public synchronized boolean pause(String owner, TopicPartition partition) {
+        Set<String> partitionOwners = owners.computeIfAbsent(partition, key -> new HashSet<>());
+        if (!partitionOwners.add(owner)) {
+            return false;
+        }
+        if (partitionOwners.size() == 1) {
+            forEachAssigned(Set.of(partition), MessageListenerContainer::pausePartition);
+        }
+        return true;
+    }
+
+    /**
+     * Releases every partition paused by this owner and returns them. Partitions still paused by another owner
+     * stay paused on their container.
+     */
+    public synchronized Set<TopicPartition> resumeAll(String owner) {
+        Set<TopicPartition> released = new HashSet<>();
+        Set<TopicPartition> resumable = new HashSet<>();
+        owners.entrySet().removeIf(entry -> {
+            if (!entry.getValue().remove(owner)) {
+                return false;
+            }
+            released.add(entry.getKey());
+            if (entry.getValue().isEmpty()) {
+                resumable.add(entry.getKey());
+                return true;
+            }
+            return false;
+        });
+        forEachAssigned(resumable, MessageListenerContainer::resumePartition);
+        return released;
+    }
+
+    /**
+     * Releases one partition paused by this owner, returns false if it had not paused it.
+     */
+    public synchronized boolean resume(String owner, TopicPartition partition) {
+        Set<String> partitionOwners = owners.get(partition);
+        if (partitionOwners == null || !partitionOwners.remove(owner)) {
+            return false;
+        }
+        if (partitionOwners.isEmpty()) {
+            owners.remove(partition);
+            forEachAssigned(Set.of(partition), MessageListenerContainer::resumePartition);
+        }
+        return true;
+    }
+
+    /**
+     * Number of partitions paused by this owner.
+     */
+    public synchronized int size(String owner) {
+        return (int) owners.values().stream().filter(partitionOwners -> partitionOwners.contains(owner)).count();
+    }
+
+    /**
+     * Number of partitions paused by any owner.
+     */
+    public synchronized int size() {
+        return owners.size();
+    }
+
+    private void forEachAssigned(Set<TopicPartition> partitions, BiConsumer<MessageListenerContainer, TopicPartition> action) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getAllListenerContainers()) {
+            Collection<TopicPartition> assignedPartitions = container.getAssignedPartitions();
+            for (TopicPartition partition : partitions) {
+                if (assignedPartitions != null && assignedPartitions.contains(partition)) {
+                    action.accept(container, partition);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.biedron.payments.shared;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per topic parse time, parsed bytes and parse failure meters for the protobuf SerDes.
+ * The SerDes are instantiated by the Kafka clients rather than by Spring, so they
+ * register against the global registry by default.
+ */
+public class ProtobufParseMetrics {
+
+    private static final String UNKNOWN_TOPIC = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    private final String messageType;
+
+    private final Map<String, TopicMeters> metersByTopic = new ConcurrentHashMap<>();
+
+    public ProtobufParseMetrics(MeterRegistry meterRegistry, String messageType) {
+        this.meterRegistry = meterRegistry;
+        this.messageType = messageType;
+    }
+
+    public void recordParsed(String topic, int bytes, long elapsedNanos) {
+        TopicMeters meters = metersFor(topic);
+        meters.parseTime.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meters.bytesParsed.increment(bytes);
+    }
+
+    public void recordFailure(String topic) {
+        metersFor(topic).parseFailures.increment();
+    }
+
+    private TopicMeters metersFor(String topic) {
+        return metersByTopic.computeIfAbsent(topic == null ? UNKNOWN_TOPIC : topic, this::register);
+    }
+
+    private TopicMeters register(String topic) {
+        return new TopicMeters(
+                Timer.builder("payment.notifications.protobuf.parse.time")
+                        .tag("topic", topic)
+                        .tag("message", messageType)
+                        .register(meterRegistry),
+                Counter.builder("payment.notifications.protobuf.parse.bytes")
+                        .baseUnit("bytes")
+                        .tag("topic", topic)
+                        .tag("message", messageType)
+                        .register(meterRegistry),
+                Counter.builder("payment.notifications.protobuf.parse.failures")
+                        .tag("topic", topic)
+                        .tag("message", messageType)
+                        .register(meterRegistry));
+    }
+
+    private record TopicMeters(Timer parseTime, Counter bytesParsed, Counter parseFailures) {
+    }
+}
@@ -0,0 +1,170 @@
+package com.biedron.payments.shared;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer ring buffer. Every slot carries a sequence number telling
+ * whether it is free for the producer of a given position or holds the element for the consumer of that position,
+ * so producers and consumers only contend on their own cursor. The capacity is rounded up to a power of two.
+ * Threads blocked in {@link #put} or {@link #take} spin briefly and then wait on a condition until the other
+ * side signals them, which it only does when somebody is waiting, so the lock-free path never takes the lock.
+ */
+public class RingBuffer<T> {
+
+    private static final int SPINS_BEFORE_WAIT = 100;
+
+    private final Object[] elements;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong producerCursor = new AtomicLong();
+
+    private final AtomicLong consumerCursor = new AtomicLong();
+
+    // a lock rather than a monitor, waiting virtual threads then release their carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring buffer capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(T element) {
+        long position = producerCursor.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (producerCursor.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.set(index, position + 1);
+                    signalIfWaiting(waitingConsumers, notEmpty);
+                    return true;
+                }
+                position = producerCursor.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = producerCursor.get();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long position = consumerCursor.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (consumerCursor.compareAndSet(position, position + 1)) {
+                    T element = (T) elements[index];
+                    elements[index] = null;
+                    sequences.set(index, position + mask + 1);
+                    signalIfWaiting(waitingProducers, notFull);
+                    return element;
+                }
+                position = consumerCursor.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = consumerCursor.get();
+            }
+        }
+    }
+
+    /**
+     * Blocks while the buffer is full, spinning briefly before waiting for a consumer.
+     */
+    public void put(T element) throws InterruptedException {
+        for (int attempt = 0; attempt < SPINS_BEFORE_WAIT; attempt++) {
+            if (offer(element)) {
+                return;
+            }
+            spin();
+        }
+        lock.lockInterruptibly();
+        waitingProducers.incrementAndGet();
+        try {
+            // registered as waiting before the retry, so a poll in between signals instead of being missed
+            while (!offer(element)) {
+                notFull.await();
+            }
+        } finally {
+            waitingProducers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks while the buffer is empty, spinning briefly before waiting for a producer.
+     */
+    public T take() throws InterruptedException {
+        T element;
+        for (int attempt = 0; attempt < SPINS_BEFORE_WAIT; attempt++) {
+            if ((element = poll()) != null) {
+                return element;
+            }
+            spin();
+        }
+        lock.lockInterruptibly();
+        waitingConsumers.incrementAndGet();
+        try {
+            while ((element = poll()) == null) {
+                notEmpty.await();
+            }
+            return element;
+        } finally {
+            waitingConsumers.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    public int size() {
+        return (int) Math.max(0, producerCursor.get() - consumerCursor.get());
+    }
+
+    private void signalIfWaiting(AtomicInteger waiting, Condition condition) {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                condition.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static void spin() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        Thread.onSpinWait();
+    }
+}
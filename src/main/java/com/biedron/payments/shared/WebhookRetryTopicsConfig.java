@@ -0,0 +1,93 @@
+package com.biedron.payments.shared;
+
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsSerDe;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.webhook.WebhookRestService;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Moves failed webhook deliveries off the enriched events topic into a chain of delayed retry topics
+ * ({@code <topic>-retry-<delay>}) ending in the dead-letter topic of {@link DeadLetterConfig}, so a failing merchant
+ * no longer blocks the partition. Retry topic containers pause the partition until the record is due instead of
+ * polling it. Every forwarded record carries the {@link DeadLetterCategory} of its last failure, so deliveries that
+ * exhausted the chain can be replayed with {@link DeadLetterReplayEndpoint} like any other dead-lettered record.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.application.app.webhook.retry-topics.enabled", havingValue = "true")
+public class WebhookRetryTopicsConfig extends RetryTopicConfigurationSupport {
+
+    @Value("${spring.application.app.topics.enriched-payment-events}")
+    private String enrichedPaymentEventsTopic;
+
+    @Value("${spring.application.app.webhook.retry-topics.attempts:4}")
+    private int attempts;
+
+    @Value("${spring.application.app.webhook.retry-topics.initial-delay-ms:1000}")
+    private long initialDelayMs;
+
+    @Value("${spring.application.app.webhook.retry-topics.multiplier:5}")
+    private double multiplier;
+
+    @Value("${spring.application.app.webhook.retry-topics.max-delay-ms:300000}")
+    private long maxDelayMs;
+
+    @Value("${spring.application.app.dead-letter.topic-suffix:.dlq}")
+    private String deadLetterTopicSuffix;
+
+    @Bean("retryTopicsProducerFactory")
+    public ProducerFactory<Long, EnrichedPaymentEvent> retryTopicsProducerFactory(
+            KafkaProperties kafkaProperties,
+            SslBundles sslBundles) {
+        var config = new HashMap<>(kafkaProperties.buildProducerProperties(sslBundles));
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, LongSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, EnrichedPaymentEventsSerDe.class);
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    @Bean("retryTopicsKafkaTemplate")
+    public KafkaTemplate<Long, EnrichedPaymentEvent> retryTopicsKafkaTemplate(
+            @Qualifier("retryTopicsProducerFactory") ProducerFactory<Long, EnrichedPaymentEvent> producerFactory) {
+        return new KafkaTemplate<>(producerFactory);
+    }
+
+    @Bean
+    public RetryTopicConfiguration webhookRetryTopicConfiguration(
+            @Qualifier("retryTopicsKafkaTemplate") KafkaTemplate<Long, EnrichedPaymentEvent> retryTopicsKafkaTemplate) {
+        return RetryTopicConfigurationBuilder.newInstance()
+                .includeTopic(enrichedPaymentEventsTopic)
+                .maxAttempts(attempts)
+                .exponentialBackoff(initialDelayMs, multiplier, maxDelayMs)
+                .retryOn(WebhookRestService.RetryableException.class)
+                .traversingCauses()
+                .dltSuffix(deadLetterTopicSuffix)
+                .dltHandlerMethod("enrichedPaymentEventsDltHandler", "handle")
+                .create(retryTopicsKafkaTemplate);
+    }
+
+    @Override
+    protected Consumer<DeadLetterPublishingRecovererFactory> configureDeadLetterPublishingContainerFactory() {
+        return factory -> factory.setHeadersFunction((record, exception) ->
+                new RecordHeaders(List.of(DeadLetterCategory.classify(exception).toHeader())));
+    }
+}
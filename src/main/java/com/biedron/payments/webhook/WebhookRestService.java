@@ -59,7 +59,7 @@ public class WebhookRestService implements WebhookService {
                 kv("idempotencyKey", enrichedData.opt("idempotencyKey")));
     }
 
-    static class RetryableException extends RuntimeException {
+    public static class RetryableException extends RuntimeException {
         public RetryableException(String message) {
             super(message);
         }
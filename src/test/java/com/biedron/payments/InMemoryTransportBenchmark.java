@@ -0,0 +1,125 @@
+package com.biedron.payments;
+
+import com.biedron.payments.customer.CustomerDto;
+import com.biedron.payments.customer.CustomerService;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsConsumer;
+import com.biedron.payments.enrichedevents.InMemoryEnrichedPaymentEventsPublisher;
+import com.biedron.payments.paymentevents.InMemoryPaymentEventsSource;
+import com.biedron.payments.paymentevents.PaymentEnrichmentService;
+import com.biedron.payments.paymentevents.PaymentEventsConsumer;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Throughput of the enrichment and delivery stages without a broker, run with {@code ./gradlew benchmark}.
+ * The customer lookup and the webhook call are stubbed, so the numbers show the cost of the stages themselves;
+ * comparing them with the same load on the {@code kafka} transport shows the overhead added by Kafka.
+ */
+@Slf4j
+@Tag("benchmark")
+class InMemoryTransportBenchmark {
+
+    private static final int EVENTS = 200_000;
+
+    private static final int CUSTOMERS = 10_000;
+
+    private static final int WARM_UP_EVENTS = 20_000;
+
+    private final Map<Long, CustomerDto> customers = LongStream.range(0, CUSTOMERS).boxed()
+            .collect(Collectors.toMap(Function.identity(), TestDataBuilder::createCustomerDto));
+
+    private final CustomerService customerService = new CustomerService() {
+        @Override
+        public CustomerDto getCustomerData(Long customerId) {
+            return customers.get(customerId);
+        }
+
+        @Override
+        public Map<Long, CustomerDto> getCustomersData(Collection<Long> customerIds) {
+            return customerIds.stream().collect(Collectors.toMap(Function.identity(), customers::get));
+        }
+    };
+
+    @Test
+    void enrichmentStage() {
+        PaymentEnrichmentService paymentEnrichmentService = new PaymentEnrichmentService(customerService);
+        PaymentEvent[] paymentEvents = paymentEvents(EVENTS);
+
+        for (int i = 0; i < WARM_UP_EVENTS; i++) {
+            paymentEnrichmentService.enrich(paymentEvents[i]);
+        }
+        long start = System.nanoTime();
+        for (PaymentEvent paymentEvent : paymentEvents) {
+            paymentEnrichmentService.enrich(paymentEvent);
+        }
+        report("enrichment", EVENTS, System.nanoTime() - start);
+    }
+
+    @Test
+    void enrichmentAndDeliveryThroughInMemoryTransport() {
+        AtomicLong delivered = new AtomicLong();
+        var backOff = new FixedBackOff(0, 0);
+        var meterRegistry = new SimpleMeterRegistry();
+        var enrichedPaymentEventsConsumer = new EnrichedPaymentEventsConsumer(
+                merchantId -> "http://localhost/webhook/" + merchantId,
+                (webhookUrl, eventData) -> delivered.incrementAndGet());
+        var enrichedPaymentEventsPublisher = new InMemoryEnrichedPaymentEventsPublisher(
+                enrichedPaymentEventsConsumer, backOff, meterRegistry, "enriched.payment.events", 65536, 4);
+        var paymentEventsConsumer = new PaymentEventsConsumer(
+                new PaymentEnrichmentService(customerService), enrichedPaymentEventsPublisher);
+        var paymentEventsSource = new InMemoryPaymentEventsSource(
+                paymentEventsConsumer, backOff, meterRegistry, "payment.events", 65536, 1);
+        enrichedPaymentEventsPublisher.start();
+        paymentEventsSource.start();
+        try {
+            PaymentEvent[] paymentEvents = paymentEvents(EVENTS);
+            for (int i = 0; i < WARM_UP_EVENTS; i++) {
+                paymentEventsSource.send(paymentEvents[i]);
+            }
+            await().atMost(Duration.ofMinutes(1)).until(() -> delivered.get() == WARM_UP_EVENTS);
+
+            long start = System.nanoTime();
+            for (PaymentEvent paymentEvent : paymentEvents) {
+                paymentEventsSource.send(paymentEvent);
+            }
+            await().atMost(Duration.ofMinutes(5)).pollInterval(Duration.ofMillis(1))
+                    .until(() -> delivered.get() == WARM_UP_EVENTS + EVENTS);
+            report("in-memory enrichment and delivery", EVENTS, System.nanoTime() - start);
+        } finally {
+            paymentEventsSource.stop();
+            enrichedPaymentEventsPublisher.stop();
+        }
+    }
+
+    private static PaymentEvent[] paymentEvents(int count) {
+        PaymentEvent[] paymentEvents = new PaymentEvent[count];
+        for (int i = 0; i < count; i++) {
+            paymentEvents[i] = TestDataBuilder.createPaymentEvent("pay_" + i, (long) (i % CUSTOMERS), (long) (i % 100));
+        }
+        return paymentEvents;
+    }
+
+    private static void report(String stage, int events, long elapsedNanos) {
+        log.warn("Benchmark finished",
+                kv("stage", stage),
+                kv("events", events),
+                kv("elapsed_ms", elapsedNanos / 1_000_000),
+                kv("events_per_second", (long) (events / (elapsedNanos / 1_000_000_000d))));
+    }
+}
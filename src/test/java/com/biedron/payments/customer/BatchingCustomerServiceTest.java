@@ -0,0 +1,132 @@
+package com.biedron.payments.customer;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchingCustomerServiceTest {
+
+    @Mock
+    private CustomerService delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private BatchingCustomerService customerService;
+
+    @AfterEach
+    void tearDown() {
+        customerService.close();
+    }
+
+    @Test
+    void shouldResolveConcurrentLookupsWithOneBatch() {
+        // Given
+        customerService = new BatchingCustomerService(delegate, meterRegistry, 10, Duration.ofSeconds(1));
+        when(delegate.getCustomersData(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> customerIds = invocation.getArgument(0);
+            return customerIds.stream().collect(Collectors.toMap(id -> id, TestDataBuilder::createCustomerDto));
+        });
+
+        // When
+        List<CustomerDto> customers;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<CompletableFuture<CustomerDto>> lookups = List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L).stream()
+                    .map(id -> CompletableFuture.supplyAsync(() -> customerService.getCustomerData(id), executor))
+                    .toList();
+            customers = lookups.stream().map(CompletableFuture::join).toList();
+        }
+
+        // Then
+        assertThat(customers).extracting(CustomerDto::getCustomerId)
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+        verify(delegate, times(1)).getCustomersData(anyCollection());
+        assertThat(meterRegistry.get("payment.notifications.customer.batch.size").summary().max()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldDispatchPartialBatchAfterMaxWait() {
+        // Given
+        customerService = new BatchingCustomerService(delegate, meterRegistry, 100, Duration.ofMillis(5));
+        CustomerDto customer = TestDataBuilder.createCustomerDto(123L);
+        when(delegate.getCustomersData(Set.of(123L))).thenReturn(Map.of(123L, customer));
+
+        // When
+        CustomerDto result = customerService.getCustomerData(123L);
+
+        // Then
+        assertThat(result).isEqualTo(customer);
+    }
+
+    @Test
+    void shouldFailLookupOfUnknownCustomer() {
+        // Given
+        customerService = new BatchingCustomerService(delegate, meterRegistry, 100, Duration.ofMillis(5));
+        when(delegate.getCustomersData(Set.of(999L))).thenReturn(Map.of());
+
+        // When / Then
+        assertThatThrownBy(() -> customerService.getCustomerData(999L))
+                .isInstanceOf(CustomerNotFoundException.class)
+                .hasMessageContaining("999");
+    }
+
+    @Test
+    void shouldPassBatchLookupsStraightThrough() {
+        // Given
+        customerService = new BatchingCustomerService(delegate, meterRegistry, 100, Duration.ofMillis(5));
+        when(delegate.getCustomersData(List.of(1L, 2L))).thenReturn(Map.of());
+
+        // When
+        customerService.getCustomersData(List.of(1L, 2L));
+
+        // Then
+        verify(delegate).getCustomersData(List.of(1L, 2L));
+    }
+
+    @Test
+    void shouldFailBatchRejectedByLoaderAndKeepCollecting() {
+        // Given
+        ExecutorService loaders = Executors.newVirtualThreadPerTaskExecutor();
+        loaders.shutdown();
+        customerService = new BatchingCustomerService(delegate, meterRegistry, 100, Duration.ofMillis(5), loaders);
+
+        // When / Then
+        assertThatThrownBy(() -> customerService.getCustomerData(123L))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> customerService.getCustomerData(124L))
+                .isInstanceOf(RejectedExecutionException.class);
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void shouldRejectLookupsAfterClose() {
+        // Given
+        customerService = new BatchingCustomerService(delegate, meterRegistry, 100, Duration.ofMillis(5));
+
+        // When
+        customerService.close();
+
+        // Then
+        assertThatThrownBy(() -> customerService.getCustomerData(123L))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
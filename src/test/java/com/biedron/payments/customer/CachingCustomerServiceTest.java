@@ -0,0 +1,101 @@
+package com.biedron.payments.customer;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCustomerServiceTest {
+
+    @Mock
+    private CustomerService delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CachingCustomerService customerService;
+
+    @BeforeEach
+    void setUp() {
+        customerService = new CachingCustomerService(delegate, meterRegistry, 100,
+                Duration.ofMinutes(60), Duration.ofMinutes(5), nanos::get, Runnable::run);
+    }
+
+    @Test
+    void shouldServeRepeatedLookupFromCache() {
+        // Given
+        CustomerDto customer = TestDataBuilder.createCustomerDto(123L);
+        when(delegate.getCustomerData(123L)).thenReturn(customer);
+
+        // When
+        customerService.getCustomerData(123L);
+        CustomerDto result = customerService.getCustomerData(123L);
+
+        // Then
+        assertThat(result).isEqualTo(customer);
+        verify(delegate, times(1)).getCustomerData(123L);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "customers").tag("result", "hit").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void shouldServeStaleEntryWhileRefreshing() {
+        // Given
+        CustomerDto customer = TestDataBuilder.createCustomerDto(123L);
+        CustomerDto renamedCustomer = TestDataBuilder.createCustomerDto(123L, "jane.doe@example.com", "Jane Doe");
+        when(delegate.getCustomerData(123L)).thenReturn(customer, renamedCustomer);
+        customerService.getCustomerData(123L);
+        nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        // When
+        CustomerDto stale = customerService.getCustomerData(123L);
+        CustomerDto refreshed = customerService.getCustomerData(123L);
+
+        // Then
+        assertThat(stale).isEqualTo(customer);
+        assertThat(refreshed).isEqualTo(renamedCustomer);
+        verify(delegate, times(2)).getCustomerData(123L);
+    }
+
+    @Test
+    void shouldLoadOnlyMissingCustomersOfBatch() {
+        // Given
+        CustomerDto cached = TestDataBuilder.createCustomerDto(123L);
+        CustomerDto missing = TestDataBuilder.createCustomerDto(124L);
+        when(delegate.getCustomerData(123L)).thenReturn(cached);
+        when(delegate.getCustomersData(Set.of(124L, 125L))).thenReturn(Map.of(124L, missing));
+        customerService.getCustomerData(123L);
+
+        // When
+        Map<Long, CustomerDto> result = customerService.getCustomersData(List.of(123L, 124L, 125L));
+
+        // Then
+        assertThat(result).containsOnly(Map.entry(123L, cached), Map.entry(124L, missing));
+    }
+
+    @Test
+    void shouldNotCacheUnknownCustomer() {
+        // Given
+        when(delegate.getCustomerData(999L)).thenThrow(new CustomerNotFoundException(999L));
+
+        // When / Then
+        assertThatThrownBy(() -> customerService.getCustomerData(999L)).isInstanceOf(CustomerNotFoundException.class);
+        assertThatThrownBy(() -> customerService.getCustomerData(999L)).isInstanceOf(CustomerNotFoundException.class);
+        verify(delegate, times(2)).getCustomerData(999L);
+    }
+}
@@ -0,0 +1,57 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerIdBloomFilterTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Test
+    void shouldContainEveryLoadedIdWithFewFalsePositives() {
+        // Given
+        List<Long> customerIds = LongStream.range(0, 10_000).boxed().toList();
+        when(customerRepository.findIdsAfter(anyLong(), any())).thenReturn(customerIds);
+        CustomerIdBloomFilter filter = new CustomerIdBloomFilter(customerRepository, new SimpleMeterRegistry(),
+                10_000, 0.01);
+
+        // When
+        filter.build();
+
+        // Then
+        assertThat(customerIds).allMatch(filter::mightExist);
+        long falsePositives = LongStream.range(1_000_000, 1_100_000).filter(filter::mightExist).count();
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void shouldAddCustomersChangedSinceLastRefresh() {
+        // Given
+        when(customerRepository.findIdsAfter(anyLong(), any())).thenReturn(List.of());
+        when(customerRepository.findIdsUpdatedAfter(any(Instant.class))).thenReturn(List.of(123L));
+        CustomerIdBloomFilter filter = new CustomerIdBloomFilter(customerRepository, new SimpleMeterRegistry(),
+                1_000, 0.01);
+        filter.build();
+        assertThat(filter.mightExist(123L)).isFalse();
+
+        // When
+        filter.refresh();
+
+        // Then
+        assertThat(filter.mightExist(123L)).isTrue();
+    }
+}
@@ -0,0 +1,88 @@
+package com.biedron.payments.customer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.function.LongFunction;
+import java.util.stream.LongStream;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Customer lookups through {@code CustomerRepository.findById} (entity copied into {@link CustomerDto}, as
+ * {@link DatabaseCustomerService} does) against {@link JdbcCustomerService}, run with {@code ./gradlew benchmark}.
+ * Runs outside a test transaction so every JPA lookup opens its own persistence context, like in the service.
+ * Against H2 the numbers show the client side overhead only; point {@code DB_CONNECTION_URL} at PostgreSQL
+ * to include the round trips.
+ */
+@Slf4j
+@Tag("benchmark")
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerLookupBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+
+    private static final int LOOKUPS = 200_000;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        if (customerRepository.count() < CUSTOMERS) {
+            customerRepository.deleteAll();
+            customerRepository.saveAll(LongStream.range(0, CUSTOMERS)
+                    .mapToObj(id -> new Customer(id, "customer" + id + "@example.com", "Customer " + id,
+                            Instant.now(), Instant.now()))
+                    .toList());
+        }
+    }
+
+    @Test
+    void jpaFindById() {
+        run("jpa findById", customerId -> customerRepository.findById(customerId)
+                .map(customer -> CustomerDto.builder()
+                        .customerId(customer.getId())
+                        .customerEmail(customer.getEmail())
+                        .customerName(customer.getName())
+                        .build())
+                .orElseThrow());
+    }
+
+    @Test
+    void jdbcLookup() {
+        JdbcCustomerService customerService = new JdbcCustomerService(jdbcTemplate);
+        run("jdbc", customerService::getCustomerData);
+    }
+
+    private static void run(String path, LongFunction<CustomerDto> lookup) {
+        for (int i = 0; i < LOOKUPS / 10; i++) {
+            lookup.apply(i % CUSTOMERS);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookup.apply(i % CUSTOMERS);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        log.warn("Benchmark finished",
+                kv("path", path),
+                kv("lookups", LOOKUPS),
+                kv("elapsed_ms", elapsedNanos / 1_000_000),
+                kv("lookups_per_second", (long) (LOOKUPS / (elapsedNanos / 1_000_000_000d))),
+                kv("nanos_per_lookup", elapsedNanos / LOOKUPS));
+    }
+}
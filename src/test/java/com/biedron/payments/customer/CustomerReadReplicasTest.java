@@ -0,0 +1,100 @@
+package com.biedron.payments.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerReadReplicasTest {
+
+    @Mock
+    private DataSource firstDataSource;
+
+    @Mock
+    private DataSource secondDataSource;
+
+    private CustomerReadReplicas readReplicas;
+
+    private CustomerReadReplicas.Replica first;
+
+    private CustomerReadReplicas.Replica second;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        dataSources.put("first", firstDataSource);
+        dataSources.put("second", secondDataSource);
+        readReplicas = new CustomerReadReplicas(dataSources, new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        first = readReplicas.replicas().get(0);
+        second = readReplicas.replicas().get(1);
+    }
+
+    @Test
+    void shouldNotAcquireReplicaBeforeLagWasMeasured() {
+        assertThat(readReplicas.acquire()).isNull();
+    }
+
+    @Test
+    void shouldAcquireReplicaWithFewestOutstandingReads() {
+        // Given
+        first.measured(Duration.ZERO, true);
+        second.measured(Duration.ZERO, true);
+        CustomerReadReplicas.Replica busy = readReplicas.acquire();
+
+        // When
+        CustomerReadReplicas.Replica acquired = readReplicas.acquire();
+        CustomerReadReplicas.Replica third = readReplicas.acquire();
+        acquired.close();
+        CustomerReadReplicas.Replica afterRelease = readReplicas.acquire();
+
+        // Then
+        assertThat(acquired).isNotSameAs(busy);
+        assertThat(third).isSameAs(busy);
+        assertThat(third.outstanding()).isEqualTo(2);
+        assertThat(afterRelease).isSameAs(acquired);
+        assertThat(first.outstanding() + second.outstanding()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldSkipUnusableReplica() {
+        // Given
+        first.measured(Duration.ofSeconds(10), false);
+        second.measured(Duration.ZERO, true);
+
+        // When
+        CustomerReadReplicas.Replica acquired = readReplicas.acquire();
+        CustomerReadReplicas.Replica next = readReplicas.acquire();
+
+        // Then
+        assertThat(acquired).isSameAs(second);
+        assertThat(next).isSameAs(second);
+        assertThat(first.outstanding()).isZero();
+    }
+
+    @Test
+    void shouldMarkReplicaUnusableWhenLagCannotBeMeasured() throws SQLException {
+        // Given
+        first.measured(Duration.ZERO, true);
+        second.measured(Duration.ZERO, true);
+        when(firstDataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(secondDataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        // When
+        readReplicas.measureLag();
+
+        // Then
+        assertThat(readReplicas.acquire()).isNull();
+    }
+}
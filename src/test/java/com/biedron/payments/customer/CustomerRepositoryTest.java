@@ -51,5 +51,14 @@ class CustomerRepositoryTest {
         assertThat(customer.get().getName()).isEqualTo("John Doe");
     }
 
+    @Test
+    void testFindAllByIdAny() {
+        customerRepository.save(testCustomer);
+
+        List<Customer> customers = customerRepository.findAllByIdAny(new Long[]{123L, 999L});
+
+        assertThat(customers).extracting(Customer::getId).containsExactly(123L);
+    }
+
 }
 
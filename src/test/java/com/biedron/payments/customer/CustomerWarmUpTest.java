@@ -0,0 +1,67 @@
+package com.biedron.payments.customer;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerWarmUpTest {
+
+    @Mock
+    private CustomerService customerService;
+
+    @TempDir
+    private Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldWriteSnapshotOfHotCustomersOnStop() throws IOException {
+        // Given
+        HotCustomerTracker tracker = new HotCustomerTracker(10);
+        tracker.record(124L);
+        tracker.record(123L);
+        tracker.record(123L);
+        CustomerWarmUp warmUp = new CustomerWarmUp(customerService, tracker, meterRegistry, directory, 10, 100);
+        warmUp.start();
+
+        // When
+        warmUp.stop();
+
+        // Then
+        assertThat(Files.readAllLines(directory.resolve(CustomerWarmUp.SNAPSHOT_FILE))).containsExactly("123", "124");
+    }
+
+    @Test
+    void shouldPreloadSnapshotInBatchesOnStart() throws IOException {
+        // Given
+        Files.write(directory.resolve(CustomerWarmUp.SNAPSHOT_FILE), List.of("1", "2", "3"));
+        when(customerService.getCustomersData(List.of(1L, 2L)))
+                .thenReturn(Map.of(1L, TestDataBuilder.createCustomerDto(1L), 2L, TestDataBuilder.createCustomerDto(2L)));
+        when(customerService.getCustomersData(List.of(3L))).thenReturn(Map.of());
+        CustomerWarmUp warmUp = new CustomerWarmUp(customerService, new HotCustomerTracker(10), meterRegistry,
+                directory, 10, 2);
+
+        // When
+        warmUp.start();
+
+        // Then
+        assertThat(warmUp.isRunning()).isTrue();
+        assertThat(meterRegistry.get("payment.notifications.customer.warmup.customers").gauge().value()).isEqualTo(2);
+        assertThat(meterRegistry.get("payment.notifications.customer.warmup.coverage.percent").gauge().value()).isEqualTo(66);
+        assertThat(meterRegistry.get("payment.notifications.customer.warmup.duration").timer().count()).isEqualTo(1);
+    }
+}
@@ -8,7 +8,10 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -82,5 +85,21 @@ class DatabaseCustomerServiceTest {
 
         verify(customerRepository, times(1)).findById(123L);
     }
-}
 
+    @Test
+    void testGetCustomersData_ReturnsOnlyExistingCustomers() {
+        // Given
+        when(customerRepository.findAllByIdAny(any(Long[].class))).thenReturn(List.of(testCustomer));
+
+        // When
+        Map<Long, CustomerDto> result = customerService.getCustomersData(Set.of(123L, 999L));
+
+        // Then
+        assertThat(result).containsOnlyKeys(123L);
+        assertThat(result.get(123L).getCustomerEmail()).isEqualTo("john.doe@example.com");
+        assertThat(result.get(123L).getCustomerName()).isEqualTo("John Doe");
+
+        verify(customerRepository, times(1)).findAllByIdAny(argThat(ids -> Set.of(ids).equals(Set.of(123L, 999L))));
+        verify(customerRepository, never()).findById(anyLong());
+    }
+}
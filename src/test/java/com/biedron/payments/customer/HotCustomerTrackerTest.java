@@ -0,0 +1,43 @@
+package com.biedron.payments.customer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HotCustomerTrackerTest {
+
+    @Test
+    void shouldKeepHeavyHittersOrderedByCount() {
+        // Given
+        HotCustomerTracker tracker = new HotCustomerTracker(10);
+
+        // When
+        for (long i = 0; i < 10_000; i++) {
+            tracker.record(1L);
+            if (i % 2 == 0) {
+                tracker.record(2L);
+            }
+            if (i % 4 == 0) {
+                tracker.record(3L);
+            }
+            tracker.record(1_000 + i);
+        }
+
+        // Then
+        assertThat(tracker.top()).hasSize(10).startsWith(1L, 2L, 3L);
+    }
+
+    @Test
+    void shouldTrackEveryIdBelowCapacity() {
+        // Given
+        HotCustomerTracker tracker = new HotCustomerTracker(10);
+
+        // When
+        tracker.record(5L);
+        tracker.record(6L);
+        tracker.record(6L);
+
+        // Then
+        assertThat(tracker.top()).containsExactly(6L, 5L);
+    }
+}
@@ -0,0 +1,65 @@
+package com.biedron.payments.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class JdbcCustomerServiceTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcCustomerService customerService;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository.deleteAll();
+        customerRepository.saveAllAndFlush(List.of(
+                new Customer(123L, "john.doe@example.com", "John Doe", Instant.now(), Instant.now()),
+                new Customer(124L, "jane.doe@example.com", "Jane Doe", Instant.now(), Instant.now())));
+        customerService = new JdbcCustomerService(jdbcTemplate);
+    }
+
+    @Test
+    void shouldSelectCustomer() {
+        // When
+        CustomerDto customer = customerService.getCustomerData(123L);
+
+        // Then
+        assertThat(customer.getCustomerId()).isEqualTo(123L);
+        assertThat(customer.getCustomerEmail()).isEqualTo("john.doe@example.com");
+        assertThat(customer.getCustomerName()).isEqualTo("John Doe");
+    }
+
+    @Test
+    void shouldThrowWhenCustomerNotFound() {
+        assertThatThrownBy(() -> customerService.getCustomerData(999L))
+                .isInstanceOf(CustomerNotFoundException.class)
+                .hasMessageContaining("Customer not found: 999");
+    }
+
+    @Test
+    void shouldSelectExistingCustomersOfBatch() {
+        // When
+        Map<Long, CustomerDto> customers = customerService.getCustomersData(List.of(123L, 124L, 999L));
+
+        // Then
+        assertThat(customers).containsOnlyKeys(123L, 124L);
+        assertThat(customers.get(124L).getCustomerName()).isEqualTo("Jane Doe");
+    }
+}
@@ -0,0 +1,139 @@
+package com.biedron.payments.customer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedCustomerStoreTest {
+
+    private static final long DATA_CAPACITY = 1 << 20;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldStoreAndFindCustomers() throws IOException {
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, DATA_CAPACITY)) {
+            // Given
+            for (long customerId = 1; customerId <= 500; customerId++) {
+                store.put(customerId, "customer" + customerId + "@example.com", "Customer " + customerId);
+            }
+
+            // When
+            CustomerDto customer = store.get(321L);
+
+            // Then
+            assertThat(customer.getCustomerId()).isEqualTo(321L);
+            assertThat(customer.getCustomerEmail()).isEqualTo("customer321@example.com");
+            assertThat(customer.getCustomerName()).isEqualTo("Customer 321");
+            assertThat(store.get(501L)).isNull();
+            assertThat(store.size()).isEqualTo(500);
+        }
+    }
+
+    @Test
+    void shouldAlignEveryRecord() throws IOException {
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, DATA_CAPACITY)) {
+            // When
+            for (long customerId = 1; customerId <= 20; customerId++) {
+                store.put(customerId, "c" + customerId + "@example.com", "C".repeat((int) customerId));
+            }
+
+            // Then
+            for (long customerId = 1; customerId <= 20; customerId++) {
+                assertThat(store.find(customerId) % 8).isZero();
+            }
+        }
+    }
+
+    @Test
+    void shouldReplaceUpdatedCustomer() throws IOException {
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, DATA_CAPACITY)) {
+            // Given
+            store.put(123L, "john.doe@example.com", "John Doe");
+
+            // When
+            store.put(123L, "jóhn.doe@example.com", "Jóhn Doe");
+
+            // Then
+            assertThat(store.get(123L).getCustomerEmail()).isEqualTo("jóhn.doe@example.com");
+            assertThat(store.get(123L).getCustomerName()).isEqualTo("Jóhn Doe");
+            assertThat(store.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void shouldReopenStoredCustomersAndWatermark() throws IOException {
+        // Given
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, DATA_CAPACITY)) {
+            store.put(123L, "john.doe@example.com", "John Doe");
+            store.watermark(42L);
+        }
+
+        // When
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, DATA_CAPACITY)) {
+
+            // Then
+            assertThat(store.reopened()).isTrue();
+            assertThat(store.watermark()).isEqualTo(42L);
+            assertThat(store.get(123L).getCustomerName()).isEqualTo("John Doe");
+        }
+    }
+
+    @Test
+    void shouldRebuildWhenSizingChanged() throws IOException {
+        // Given
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, DATA_CAPACITY)) {
+            store.put(123L, "john.doe@example.com", "John Doe");
+        }
+
+        // When
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 100_000, DATA_CAPACITY)) {
+
+            // Then
+            assertThat(store.reopened()).isFalse();
+            assertThat(store.get(123L)).isNull();
+        }
+    }
+
+    @Test
+    void shouldRejectCustomersWhenFull() throws IOException {
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, 128)) {
+            // Given
+            assertThat(store.put(1L, "a@example.com", "A")).isTrue();
+
+            // When
+            boolean stored = store.put(2L, "customer-with-a-long-email@example.com", "Customer With A Long Name");
+
+            // Then
+            assertThat(stored).isFalse();
+            assertThat(store.get(2L)).isNull();
+            assertThat(store.get(1L).getCustomerEmail()).isEqualTo("a@example.com");
+        }
+    }
+
+    @Test
+    void shouldFallBackToDatabaseAndRebuildWhenUpdateDoesNotFit() throws IOException {
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, 128)) {
+            // Given
+            assertThat(store.put(1L, "a@example.com", "A")).isTrue();
+
+            // When
+            boolean stored = store.put(1L, "customer-with-a-long-email@example.com", "Customer With A Long Name");
+
+            // Then
+            assertThat(stored).isFalse();
+            assertThat(store.get(1L)).isNull();
+            assertThat(store.size()).isEqualTo(1);
+        }
+
+        try (MappedCustomerStore store = MappedCustomerStore.open(directory, 1000, 128)) {
+            assertThat(store.reopened()).isFalse();
+            assertThat(store.size()).isZero();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.biedron.payments.customer;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MappedReplicaCustomerServiceTest {
+
+    @Mock
+    private MappedCustomerReplica replica;
+
+    @Mock
+    private CustomerService fallback;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private MappedReplicaCustomerService customerService;
+
+    @BeforeEach
+    void setUp() {
+        customerService = new MappedReplicaCustomerService(replica, fallback, meterRegistry);
+    }
+
+    @Test
+    void shouldReadStoredCustomerFromReplica() {
+        // Given
+        CustomerDto customer = TestDataBuilder.createCustomerDto(123L);
+        when(replica.get(123L)).thenReturn(customer);
+
+        // When
+        CustomerDto result = customerService.getCustomerData(123L);
+
+        // Then
+        assertThat(result).isEqualTo(customer);
+        verifyNoInteractions(fallback);
+    }
+
+    @Test
+    void shouldReadMissingCustomersFromWrappedService() {
+        // Given
+        CustomerDto stored = TestDataBuilder.createCustomerDto(1L);
+        CustomerDto created = TestDataBuilder.createCustomerDto(2L);
+        when(replica.get(1L)).thenReturn(stored);
+        when(fallback.getCustomersData(List.of(2L))).thenReturn(Map.of(2L, created));
+
+        // When
+        Map<Long, CustomerDto> result = customerService.getCustomersData(List.of(1L, 2L));
+
+        // Then
+        assertThat(result).containsExactlyInAnyOrderEntriesOf(Map.of(1L, stored, 2L, created));
+        assertThat(meterRegistry.get("payment.notifications.customer.replica.misses").counter().count()).isEqualTo(1);
+    }
+}
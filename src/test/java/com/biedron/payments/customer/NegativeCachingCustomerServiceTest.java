@@ -0,0 +1,85 @@
+package com.biedron.payments.customer;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NegativeCachingCustomerServiceTest {
+
+    @Mock
+    private CustomerService delegate;
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRejectKnownMissingCustomerUntilExpired() {
+        // Given
+        NegativeCachingCustomerService customerService = createCustomerService(customerId -> true);
+        when(delegate.getCustomerData(999L))
+                .thenThrow(new CustomerNotFoundException(999L))
+                .thenReturn(TestDataBuilder.createCustomerDto(999L));
+        assertThatThrownBy(() -> customerService.getCustomerData(999L)).isInstanceOf(CustomerNotFoundException.class);
+
+        // When / Then
+        assertThatThrownBy(() -> customerService.getCustomerData(999L)).isInstanceOf(CustomerNotFoundException.class);
+        verify(delegate, times(1)).getCustomerData(999L);
+        assertThat(rejected("negative-cache")).isEqualTo(1);
+
+        nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertThat(customerService.getCustomerData(999L).getCustomerId()).isEqualTo(999L);
+    }
+
+    @Test
+    void shouldRejectCustomerAbsentFromFilterWithoutLookup() {
+        // Given
+        NegativeCachingCustomerService customerService = createCustomerService(customerId -> customerId != 999L);
+
+        // When / Then
+        assertThatThrownBy(() -> customerService.getCustomerData(999L)).isInstanceOf(CustomerNotFoundException.class);
+        verifyNoInteractions(delegate);
+        assertThat(rejected("bloom-filter")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRememberCustomersMissingFromBatch() {
+        // Given
+        NegativeCachingCustomerService customerService = createCustomerService(customerId -> true);
+        CustomerDto customer = TestDataBuilder.createCustomerDto(123L);
+        when(delegate.getCustomersData(List.of(123L, 999L))).thenReturn(Map.of(123L, customer));
+        when(delegate.getCustomersData(List.of(123L))).thenReturn(Map.of(123L, customer));
+        customerService.getCustomersData(List.of(123L, 999L));
+
+        // When
+        Map<Long, CustomerDto> result = customerService.getCustomersData(List.of(123L, 999L));
+
+        // Then
+        assertThat(result).containsOnlyKeys(123L);
+        verify(delegate).getCustomersData(List.of(123L));
+    }
+
+    private NegativeCachingCustomerService createCustomerService(LongPredicate mightExist) {
+        return new NegativeCachingCustomerService(delegate, meterRegistry, 100, Duration.ofSeconds(30),
+                mightExist, nanos::get);
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("payment.notifications.customer.unknown.rejected").tag("reason", reason)
+                .counter().count();
+    }
+}
@@ -0,0 +1,153 @@
+package com.biedron.payments.customer;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class ReadReplicaCustomerServiceTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final CustomerService primary = mock(CustomerService.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CustomerReadReplicas readReplicas;
+
+    private ReadReplicaCustomerService customerService;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository.deleteAll();
+        customerRepository.saveAllAndFlush(List.of(
+                new Customer(123L, "john.doe@example.com", "John Doe", Instant.now(), Instant.now()),
+                new Customer(124L, "jane.doe@example.com", "Jane Doe", Instant.now(), Instant.now())));
+        jdbcTemplate.update("UPDATE customers SET updated_at = ? WHERE id = 123",
+                Timestamp.from(Instant.now().minus(Duration.ofHours(1))));
+        // the test database stands in for a replica lagging one second behind
+        readReplicas = new CustomerReadReplicas(Map.of("replica", dataSource), meterRegistry, Duration.ofSeconds(5));
+        readReplicas.replicas().getFirst().measured(Duration.ofSeconds(1), true);
+        customerService = new ReadReplicaCustomerService(readReplicas, primary, meterRegistry, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldReadCustomerFromReplica() {
+        // When
+        CustomerDto customer = customerService.getCustomerData(123L);
+
+        // Then
+        assertThat(customer.getCustomerName()).isEqualTo("John Doe");
+        assertThat(readReplicas.replicas().getFirst().outstanding()).isZero();
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void shouldReadRecentlyChangedCustomerFromPrimary() {
+        // Given
+        CustomerDto current = TestDataBuilder.createCustomerDto(124L, "jane.smith@example.com", "Jane Smith");
+        when(primary.getCustomerData(124L)).thenReturn(current);
+
+        // When
+        CustomerDto customer = customerService.getCustomerData(124L);
+
+        // Then
+        assertThat(customer).isEqualTo(current);
+        assertThat(meterRegistry.get("payment.notifications.customer.read.replica.reads")
+                .tag("reason", "recent").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReadCustomerUnknownToReplicaFromPrimary() {
+        // Given
+        CustomerDto created = TestDataBuilder.createCustomerDto(125L);
+        when(primary.getCustomerData(125L)).thenReturn(created);
+
+        // When
+        CustomerDto customer = customerService.getCustomerData(125L);
+
+        // Then
+        assertThat(customer).isEqualTo(created);
+    }
+
+    @Test
+    void shouldReadFromPrimaryWhenNoReplicaIsUsable() {
+        // Given
+        readReplicas.replicas().getFirst().measured(Duration.ofSeconds(10), false);
+        when(primary.getCustomersData(List.of(123L))).thenReturn(Map.of());
+
+        // When
+        Map<Long, CustomerDto> customers = customerService.getCustomersData(List.of(123L));
+
+        // Then
+        assertThat(customers).isEmpty();
+        verify(primary).getCustomersData(List.of(123L));
+    }
+
+    @Test
+    void shouldSplitBatchBetweenReplicaAndPrimary() {
+        // Given
+        when(primary.getCustomersData(anyCollection()))
+                .thenReturn(Map.of(124L, TestDataBuilder.createCustomerDto(124L)));
+
+        // When
+        Map<Long, CustomerDto> customers = customerService.getCustomersData(List.of(123L, 124L, 999L));
+
+        // Then
+        assertThat(customers).containsOnlyKeys(123L, 124L);
+        assertThat(customers.get(123L).getCustomerName()).isEqualTo("John Doe");
+        verify(primary).getCustomersData(List.of(124L, 999L));
+    }
+
+    @Test
+    void shouldReadEachMissingCustomerFromPrimaryOnce() {
+        // Given
+        when(primary.getCustomersData(anyCollection())).thenReturn(Map.of());
+
+        // When
+        customerService.getCustomersData(List.of(999L, 123L, 999L));
+
+        // Then
+        verify(primary).getCustomersData(List.of(999L));
+        assertThat(meterRegistry.get("payment.notifications.customer.read.replica.reads")
+                .tag("reason", "missing").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldJudgeRecentChangesByReplicaClock() {
+        // Given
+        jdbcTemplate.update("UPDATE customers SET updated_at = LOCALTIMESTAMP WHERE id = 123");
+        CustomerDto current = TestDataBuilder.createCustomerDto(123L);
+        when(primary.getCustomerData(123L)).thenReturn(current);
+
+        // When
+        CustomerDto customer = customerService.getCustomerData(123L);
+
+        // Then
+        assertThat(customer).isEqualTo(current);
+    }
+}
@@ -0,0 +1,123 @@
+package com.biedron.payments.customer;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SingleFlightCustomerServiceTest {
+
+    @Mock
+    private CustomerService delegate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private SingleFlightCustomerService customerService;
+
+    @BeforeEach
+    void setUp() {
+        customerService = new SingleFlightCustomerService(delegate, meterRegistry);
+    }
+
+    @Test
+    void shouldCoalesceConcurrentLookups() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        CustomerDto customer = TestDataBuilder.createCustomerDto(123L);
+        when(delegate.getCustomerData(123L)).thenAnswer(invocation -> {
+            release.await();
+            return customer;
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // When
+            List<CompletableFuture<CustomerDto>> lookups = List.of(
+                    CompletableFuture.supplyAsync(() -> customerService.getCustomerData(123L), executor),
+                    CompletableFuture.supplyAsync(() -> customerService.getCustomerData(123L), executor),
+                    CompletableFuture.supplyAsync(() -> customerService.getCustomerData(123L), executor));
+            await().atMost(Duration.ofSeconds(5)).until(() -> loads("coalesced") == 2);
+            release.countDown();
+
+            // Then
+            for (CompletableFuture<CustomerDto> lookup : lookups) {
+                assertThat(lookup.get()).isEqualTo(customer);
+            }
+        }
+        verify(delegate, times(1)).getCustomerData(123L);
+        assertThat(loads("issued")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldShareExceptionWithWaiters() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getCustomerData(999L)).thenAnswer(invocation -> {
+            release.await();
+            throw new CustomerNotFoundException(999L);
+        });
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // When
+            var first = CompletableFuture.supplyAsync(() -> customerService.getCustomerData(999L), executor);
+            var second = CompletableFuture.supplyAsync(() -> customerService.getCustomerData(999L), executor);
+            await().atMost(Duration.ofSeconds(5)).until(() -> loads("coalesced") == 1);
+            release.countDown();
+
+            // Then
+            assertThatThrownBy(first::join).hasCauseInstanceOf(CustomerNotFoundException.class);
+            assertThatThrownBy(second::join).hasCauseInstanceOf(CustomerNotFoundException.class);
+        }
+        verify(delegate, times(1)).getCustomerData(999L);
+    }
+
+    @Test
+    void shouldLoadAgainOnceFlightFinished() {
+        // Given
+        CustomerDto customer = TestDataBuilder.createCustomerDto(123L);
+        when(delegate.getCustomerData(123L)).thenReturn(customer);
+
+        // When
+        customerService.getCustomerData(123L);
+        customerService.getCustomerData(123L);
+
+        // Then
+        verify(delegate, times(2)).getCustomerData(123L);
+        assertThat(loads("coalesced")).isZero();
+    }
+
+    @Test
+    void shouldBatchLoadCustomersNotInFlight() {
+        // Given
+        CustomerDto first = TestDataBuilder.createCustomerDto(123L);
+        when(delegate.getCustomersData(Set.of(123L, 124L))).thenReturn(Map.of(123L, first));
+
+        // When
+        Map<Long, CustomerDto> result = customerService.getCustomersData(List.of(123L, 124L, 123L));
+
+        // Then
+        assertThat(result).containsOnly(Map.entry(123L, first));
+        assertThat(loads("issued")).isEqualTo(2);
+    }
+
+    private double loads(String result) {
+        return meterRegistry.get("payment.notifications.customer.loads").tag("result", result).counter().count();
+    }
+}
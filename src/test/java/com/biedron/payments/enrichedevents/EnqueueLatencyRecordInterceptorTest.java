@@ -0,0 +1,58 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnqueueLatencyRecordInterceptorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private EnqueueLatencyRecordInterceptor<Long, byte[]> interceptor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new EnqueueLatencyRecordInterceptor<>(meterRegistry, Clock.fixed(Instant.ofEpochMilli(1_500), ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldRecordLatencyFromEnqueueHeader() {
+        // Given
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        ConsumerRecord<Long, byte[]> record = new ConsumerRecord<>("enriched", 0, 0L, 123L, new byte[0]);
+        EnrichedPaymentEventHeaders.of(enrichedPaymentEvent, 1_000).forEach(record.headers()::add);
+
+        // When
+        ConsumerRecord<Long, byte[]> result = interceptor.intercept(record, null);
+
+        // Then
+        Timer timer = meterRegistry.get("payment.notifications.enriched.enqueue.latency").timer();
+        assertThat(result).isSameAs(record);
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(500);
+    }
+
+    @Test
+    void shouldSkipRecordsWithoutEnqueueHeader() {
+        // Given
+        ConsumerRecord<Long, byte[]> record = new ConsumerRecord<>("enriched", 0, 0L, 123L, new byte[0]);
+
+        // When
+        interceptor.intercept(record, null);
+
+        // Then
+        assertThat(meterRegistry.get("payment.notifications.enriched.enqueue.latency").timer().count()).isZero();
+    }
+}
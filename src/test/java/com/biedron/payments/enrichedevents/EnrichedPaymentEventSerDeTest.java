@@ -4,15 +4,19 @@ import com.biedron.payments.testutils.TestDataBuilder;
 import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
 import com.biedron.payments.schema.v1.PaymentEvent;
 import com.biedron.payments.schema.v1.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class EnrichedPaymentEventSerDeTest {
 
-    private final EnrichedPaymentEventsSerDe enrichedPaymentEventsSerDe = new EnrichedPaymentEventsSerDe();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final EnrichedPaymentEventsSerDe enrichedPaymentEventsSerDe = new EnrichedPaymentEventsSerDe(meterRegistry);
 
     @Test
     public void testSerializationAndDeserialization() {
@@ -62,5 +66,17 @@ public class EnrichedPaymentEventSerDeTest {
         EnrichedPaymentEvent enrichedPaymentEvent = enrichedPaymentEventsSerDe.deserialize("topic", invalidData);
         assertThat(enrichedPaymentEvent).isNull();
     }
-}
 
+    @Test
+    public void testDeserializeFromByteBuffer() {
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        byte[] serialized = enrichedPaymentEventsSerDe.serialize("topic", enrichedPaymentEvent);
+        ByteBuffer recordValue = ByteBuffer.allocateDirect(serialized.length).put(serialized).flip();
+
+        EnrichedPaymentEvent deserialized = enrichedPaymentEventsSerDe.deserialize("topic", null, recordValue);
+
+        assertThat(deserialized).isEqualTo(enrichedPaymentEvent);
+        assertThat(meterRegistry.get("payment.notifications.protobuf.parse.bytes").tag("topic", "topic").counter().count())
+                .isEqualTo(serialized.length);
+    }
+}
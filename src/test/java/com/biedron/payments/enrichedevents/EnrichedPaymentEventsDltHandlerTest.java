@@ -0,0 +1,23 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnrichedPaymentEventsDltHandlerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final EnrichedPaymentEventsDltHandler dltHandler = new EnrichedPaymentEventsDltHandler(meterRegistry);
+
+    @Test
+    void shouldCountDeadLetteredEvents() {
+        // When
+        dltHandler.handle(TestDataBuilder.createEnrichedPaymentEvent(123L, 456L), "enriched.payment.events-dlt", "503");
+
+        // Then
+        assertThat(meterRegistry.get("payment.notifications.webhook.dead.lettered").counter().count()).isEqualTo(1);
+    }
+}
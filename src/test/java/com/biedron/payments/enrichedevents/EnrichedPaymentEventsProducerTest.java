@@ -2,6 +2,8 @@ package com.biedron.payments.enrichedevents;
 
 import com.biedron.payments.testutils.TestDataBuilder;
 import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,11 +11,19 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class EnrichedPaymentEventsProducerTest {
@@ -22,13 +32,7 @@ class EnrichedPaymentEventsProducerTest {
     private KafkaTemplate<Long, EnrichedPaymentEvent> kafkaTemplate;
 
     @Captor
-    private ArgumentCaptor<String> topicCaptor;
-
-    @Captor
-    private ArgumentCaptor<Long> keyCaptor;
-
-    @Captor
-    private ArgumentCaptor<EnrichedPaymentEvent> eventCaptor;
+    private ArgumentCaptor<ProducerRecord<Long, EnrichedPaymentEvent>> recordCaptor;
 
     private EnrichedPaymentEventsProducer producer;
 
@@ -50,11 +54,102 @@ class EnrichedPaymentEventsProducerTest {
         producer.produce(enrichedPaymentEvent);
 
         // Then
-        verify(kafkaTemplate).send(topicCaptor.capture(), keyCaptor.capture(), eventCaptor.capture());
+        verify(kafkaTemplate).send(recordCaptor.capture());
 
-        assertThat(topicCaptor.getValue()).isEqualTo(TEST_TOPIC);
-        assertThat(keyCaptor.getValue()).isEqualTo(expectedCustomerId);
-        assertThat(eventCaptor.getValue()).isEqualTo(enrichedPaymentEvent);
+        assertThat(recordCaptor.getValue().topic()).isEqualTo(TEST_TOPIC);
+        assertThat(recordCaptor.getValue().key()).isEqualTo(expectedCustomerId);
+        assertThat(recordCaptor.getValue().value()).isEqualTo(enrichedPaymentEvent);
+    }
+
+    @Test
+    void shouldKeyByMerchantWhenConfigured() {
+        // Given
+        ReflectionTestUtils.setField(producer, "keyStrategy", EnrichedPaymentEventsKeyStrategy.MERCHANT);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+
+        // When
+        producer.produce(enrichedPaymentEvent);
+
+        // Then
+        verify(kafkaTemplate).send(recordCaptor.capture());
+
+        assertThat(recordCaptor.getValue().key()).isEqualTo(456L);
+    }
+
+    @Test
+    void shouldStampRoutingMetadataHeaders() {
+        // Given
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        long before = System.currentTimeMillis();
+
+        // When
+        producer.produce(enrichedPaymentEvent);
+
+        // Then
+        verify(kafkaTemplate).send(recordCaptor.capture());
+
+        Headers headers = recordCaptor.getValue().headers();
+        assertThat(EnrichedPaymentEventHeaders.merchantId(headers)).isEqualTo(456L);
+        assertThat(EnrichedPaymentEventHeaders.paymentId(headers)).isEqualTo(enrichedPaymentEvent.getPaymentId());
+        assertThat(EnrichedPaymentEventHeaders.paymentStatus(headers))
+                .isEqualTo(enrichedPaymentEvent.getPaymentData().getPaymentStatus());
+        assertThat(EnrichedPaymentEventHeaders.idempotencyKey(headers)).isEqualTo(enrichedPaymentEvent.getIdempotencyKey());
+        assertThat(EnrichedPaymentEventHeaders.enqueuedAt(headers)).isBetween(before, System.currentTimeMillis());
     }
-}
 
+    @Test
+    void shouldProduceWholeBatchKeyedByCustomerId() {
+        // Given
+        EnrichedPaymentEvent firstEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent secondEvent = TestDataBuilder.createEnrichedPaymentEvent(124L, 456L);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        producer.produceAll(List.of(firstEvent, secondEvent));
+
+        // Then
+        verify(kafkaTemplate, times(2)).send(recordCaptor.capture());
+
+        assertThat(recordCaptor.getAllValues()).extracting(ProducerRecord::topic).containsOnly(TEST_TOPIC);
+        assertThat(recordCaptor.getAllValues()).extracting(ProducerRecord::key).containsExactly(123L, 124L);
+        assertThat(recordCaptor.getAllValues()).extracting(ProducerRecord::value).containsExactly(firstEvent, secondEvent);
+    }
+
+    @Test
+    void shouldSendReplayBatchInLocalTransactionWhenTemplateIsTransactional() {
+        // Given
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        when(kafkaTemplate.isTransactional()).thenReturn(true);
+        when(kafkaTemplate.inTransaction()).thenReturn(false);
+        when(kafkaTemplate.executeInTransaction(any())).thenAnswer(invocation ->
+                invocation.<KafkaOperations.OperationsCallback<Long, EnrichedPaymentEvent, Object>>getArgument(0)
+                        .doInOperations(kafkaTemplate));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        producer.produceAllInLocalTransaction(List.of(enrichedPaymentEvent));
+
+        // Then
+        verify(kafkaTemplate).executeInTransaction(any());
+        verify(kafkaTemplate).send(recordCaptor.capture());
+        assertThat(recordCaptor.getValue().value()).isEqualTo(enrichedPaymentEvent);
+    }
+
+    @Test
+    void shouldSendReplayBatchWithoutTransactionWhenTemplateIsNotTransactional() {
+        // Given
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        when(kafkaTemplate.isTransactional()).thenReturn(false);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        // When
+        producer.produceAllInLocalTransaction(List.of(enrichedPaymentEvent));
+
+        // Then
+        verify(kafkaTemplate, never()).executeInTransaction(any());
+        verify(kafkaTemplate).send(any(ProducerRecord.class));
+    }
+}
@@ -0,0 +1,188 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.paymentevents.PaymentEventsListenerMode;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FusedEnrichedPaymentEventsPublisherTest {
+
+    private static final String TOPIC = "enriched.payment.events.test";
+
+    @Mock
+    private EnrichedPaymentEventsConsumer enrichedPaymentEventsConsumer;
+
+    @Mock
+    private EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private FusedEnrichedPaymentEventsPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        publisher.stop();
+    }
+
+    @Test
+    void shouldDeliverInProcessAndWriteAuditTopic() {
+        publisher = createPublisher(true);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+
+        publisher.produce(enrichedPaymentEvent);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                verify(enrichedPaymentEventsConsumer).consume(enrichedPaymentEvent));
+        verify(enrichedPaymentEventsProducer).produce(enrichedPaymentEvent);
+    }
+
+    @Test
+    void shouldSkipAuditTopicWhenDisabled() {
+        publisher = createPublisher(false);
+        EnrichedPaymentEvent firstEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent secondEvent = TestDataBuilder.createEnrichedPaymentEvent(124L, 456L);
+
+        publisher.produceAll(List.of(firstEvent, secondEvent));
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            verify(enrichedPaymentEventsConsumer).consume(firstEvent);
+            verify(enrichedPaymentEventsConsumer).consume(secondEvent);
+        });
+        verifyNoInteractions(enrichedPaymentEventsProducer);
+    }
+
+    @Test
+    void shouldRetryFailedDelivery() {
+        publisher = createPublisher(false);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        doThrow(new RuntimeException("webhook down"))
+                .doNothing()
+                .when(enrichedPaymentEventsConsumer).consume(enrichedPaymentEvent);
+
+        publisher.produce(enrichedPaymentEvent);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                verify(enrichedPaymentEventsConsumer, times(2)).consume(enrichedPaymentEvent));
+    }
+
+    @Test
+    void shouldDeadLetterWhenRetriesExhausted() {
+        publisher = createPublisher(false, deadLetterPublishingRecoverer);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        RuntimeException webhookDown = new RuntimeException("webhook down");
+        doThrow(webhookDown).when(enrichedPaymentEventsConsumer).consume(enrichedPaymentEvent);
+
+        publisher.produce(enrichedPaymentEvent);
+
+        ArgumentCaptor<ConsumerRecord<?, ?>> recordCaptor = ArgumentCaptor.forClass(ConsumerRecord.class);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                verify(deadLetterPublishingRecoverer).accept(recordCaptor.capture(), eq(webhookDown)));
+        assertThat(recordCaptor.getValue().topic()).isEqualTo(TOPIC);
+        assertThat(recordCaptor.getValue().value()).isEqualTo(enrichedPaymentEvent);
+        verify(enrichedPaymentEventsConsumer, times(4)).consume(enrichedPaymentEvent);
+    }
+
+    @Test
+    void shouldCountDroppedEventWithoutDeadLetterTopic() {
+        publisher = createPublisher(false);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        doThrow(new RuntimeException("webhook down")).when(enrichedPaymentEventsConsumer).consume(enrichedPaymentEvent);
+
+        publisher.produce(enrichedPaymentEvent);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(meterRegistry.get("payment.notifications.fused.dropped").counter().count()).isEqualTo(1));
+    }
+
+    @Test
+    void shouldRejectInMemoryTransport() {
+        publisher = createPublisher(false);
+
+        assertThatThrownBy(() -> new FusedEnrichedPaymentEventsPublisher(enrichedPaymentEventsConsumer,
+                enrichedPaymentEventsProducer, new ExponentialBackOffWithMaxRetries(3), recovererProvider(null),
+                meterRegistry, "in-memory", PaymentEventsListenerMode.RECORD, TOPIC, 10, 2, false))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void shouldRejectListenerModesBypassingThePublisher() {
+        publisher = createPublisher(false);
+
+        assertThatThrownBy(() -> new FusedEnrichedPaymentEventsPublisher(enrichedPaymentEventsConsumer,
+                enrichedPaymentEventsProducer, new ExponentialBackOffWithMaxRetries(3), recovererProvider(null),
+                meterRegistry, "kafka", PaymentEventsListenerMode.PIPELINED, TOPIC, 10, 2, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("pipelined");
+        assertThatThrownBy(() -> new FusedEnrichedPaymentEventsPublisher(enrichedPaymentEventsConsumer,
+                enrichedPaymentEventsProducer, new ExponentialBackOffWithMaxRetries(3), recovererProvider(null),
+                meterRegistry, "kafka", PaymentEventsListenerMode.SPLICE, TOPIC, 10, 2, false))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("splice");
+    }
+
+    @Test
+    void shouldKeepCustomerOrderAcrossWorkers() {
+        // Given
+        publisher = createPublisher(false);
+        EnrichedPaymentEvent firstEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent secondEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 457L);
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return null;
+        }).when(enrichedPaymentEventsConsumer).consume(firstEvent);
+
+        // When
+        publisher.produceAll(List.of(firstEvent, secondEvent));
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                verify(enrichedPaymentEventsConsumer).consume(secondEvent));
+        InOrder inOrder = inOrder(enrichedPaymentEventsConsumer);
+        inOrder.verify(enrichedPaymentEventsConsumer).consume(firstEvent);
+        inOrder.verify(enrichedPaymentEventsConsumer).consume(secondEvent);
+    }
+
+    private FusedEnrichedPaymentEventsPublisher createPublisher(boolean auditEnabled) {
+        return createPublisher(auditEnabled, null);
+    }
+
+    private FusedEnrichedPaymentEventsPublisher createPublisher(boolean auditEnabled,
+                                                                DeadLetterPublishingRecoverer recoverer) {
+        var backOff = new ExponentialBackOffWithMaxRetries(3);
+        backOff.setInitialInterval(1);
+        var fusedPublisher = new FusedEnrichedPaymentEventsPublisher(enrichedPaymentEventsConsumer, enrichedPaymentEventsProducer,
+                backOff, recovererProvider(recoverer), meterRegistry, "kafka", PaymentEventsListenerMode.RECORD, TOPIC, 10, 2, auditEnabled);
+        fusedPublisher.start();
+        return fusedPublisher;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<DeadLetterPublishingRecoverer> recovererProvider(DeadLetterPublishingRecoverer recoverer) {
+        ObjectProvider<DeadLetterPublishingRecoverer> provider = mock(ObjectProvider.class);
+        lenient().when(provider.getIfAvailable()).thenReturn(recoverer);
+        return provider;
+    }
+}
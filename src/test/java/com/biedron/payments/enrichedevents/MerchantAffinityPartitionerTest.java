@@ -0,0 +1,90 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.testutils.TestDataBuilder;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MerchantAffinityPartitionerTest {
+
+    private static final String TOPIC = "enriched.payment.events.test";
+
+    private static final int PARTITIONS = 12;
+
+    private final LongSerializer keySerializer = new LongSerializer();
+
+    private final Cluster cluster = cluster(TOPIC, "payment.events.test");
+
+    private MerchantAffinityPartitioner partitioner;
+
+    @BeforeEach
+    void setUp() {
+        partitioner = new MerchantAffinityPartitioner();
+        partitioner.configure(Map.of(
+                MerchantAffinityPartitioner.TOPIC_CONFIG, TOPIC,
+                MerchantAffinityPartitioner.HOT_MERCHANTS_CONFIG, "456, 789",
+                MerchantAffinityPartitioner.HOT_MERCHANT_SPREAD_CONFIG, 3));
+    }
+
+    @Test
+    void shouldKeepRegularMerchantOnOnePartition() {
+        // When
+        Set<Integer> partitions = LongStream.range(0, 100)
+                .mapToObj(customerId -> partition(TOPIC, 111L, TestDataBuilder.createEnrichedPaymentEvent(customerId, 111L)))
+                .collect(Collectors.toSet());
+
+        // Then
+        assertThat(partitions).hasSize(1);
+    }
+
+    @Test
+    void shouldSpreadHotMerchantOverBoundedPartitionsByCustomer() {
+        // When
+        Set<Integer> partitions = LongStream.range(0, 100)
+                .mapToObj(customerId -> partition(TOPIC, 456L, TestDataBuilder.createEnrichedPaymentEvent(customerId, 456L)))
+                .collect(Collectors.toSet());
+
+        // Then
+        assertThat(partitions).hasSize(3);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        assertThat(partition(TOPIC, 456L, enrichedPaymentEvent)).isEqualTo(partition(TOPIC, 456L, enrichedPaymentEvent));
+    }
+
+    @Test
+    void shouldNotSpreadOtherTopics() {
+        // When
+        Set<Integer> partitions = LongStream.range(0, 100)
+                .mapToObj(customerId -> partition("payment.events.test", 456L, TestDataBuilder.createEnrichedPaymentEvent(customerId, 456L)))
+                .collect(Collectors.toSet());
+
+        // Then
+        assertThat(partitions).hasSize(1);
+    }
+
+    private int partition(String topic, long key, EnrichedPaymentEvent value) {
+        return partitioner.partition(topic, key, keySerializer.serialize(topic, key), value, value.toByteArray(), cluster);
+    }
+
+    private static Cluster cluster(String... topics) {
+        Node node = new Node(0, "localhost", 9092);
+        var partitionInfos = Arrays.stream(topics)
+                .flatMap(topic -> IntStream.range(0, PARTITIONS)
+                        .mapToObj(partition -> new PartitionInfo(topic, partition, node, new Node[]{node}, new Node[]{node})))
+                .toList();
+        return new Cluster("cluster", List.of(node), partitionInfos, Set.of(), Set.of());
+    }
+}
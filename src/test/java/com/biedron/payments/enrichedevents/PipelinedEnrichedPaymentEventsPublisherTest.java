@@ -0,0 +1,189 @@
+package com.biedron.payments.enrichedevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.shared.PartitionStateRegistry;
+import com.biedron.payments.shared.PausedPartitions;
+import com.biedron.payments.testutils.TestDataBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.NetworkException;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PipelinedEnrichedPaymentEventsPublisherTest {
+
+    private static final TopicPartition SOURCE = new TopicPartition("payment.events.test", 0);
+
+    private static final String TOPIC = "enriched.payment.events.test";
+
+    @Mock
+    private EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    @Mock
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private PipelinedEnrichedPaymentEventsPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        publisher = createPublisher(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void shouldAcknowledgeSourceOnlyAfterAllDerivedEventsAreAcknowledged() {
+        EnrichedPaymentEvent firstEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent secondEvent = TestDataBuilder.createEnrichedPaymentEvent(124L, 456L);
+        CompletableFuture<SendResult<Long, EnrichedPaymentEvent>> firstSend = new CompletableFuture<>();
+        CompletableFuture<SendResult<Long, EnrichedPaymentEvent>> secondSend = new CompletableFuture<>();
+        when(enrichedPaymentEventsProducer.send(firstEvent)).thenReturn(firstSend);
+        when(enrichedPaymentEventsProducer.send(secondEvent)).thenReturn(secondSend);
+        AtomicBoolean acknowledged = new AtomicBoolean();
+
+        publisher.publish(SOURCE, List.of(firstEvent, secondEvent), () -> acknowledged.set(true));
+
+        assertThat(publisher.inFlight()).isEqualTo(2);
+        firstSend.complete(null);
+        assertThat(acknowledged).isFalse();
+        secondSend.complete(null);
+        assertThat(acknowledged).isTrue();
+        assertThat(publisher.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldRetryRetriableSendFailureInsteadOfAcknowledging() {
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        when(enrichedPaymentEventsProducer.send(enrichedPaymentEvent))
+                .thenReturn(CompletableFuture.failedFuture(new NetworkException("broker unavailable")))
+                .thenThrow(new KafkaException("Send failed", new TimeoutException("metadata not available")))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        AtomicBoolean acknowledged = new AtomicBoolean();
+
+        publisher.publish(SOURCE, List.of(enrichedPaymentEvent), () -> acknowledged.set(true));
+
+        await().atMost(Duration.ofSeconds(5)).untilTrue(acknowledged);
+        verify(enrichedPaymentEventsProducer, times(3)).send(enrichedPaymentEvent);
+        verifyNoInteractions(deadLetterPublishingRecoverer);
+    }
+
+    @Test
+    void shouldDeadLetterNonRetriableSendFailureWithoutRetrying() {
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        RecordTooLargeException tooLarge = new RecordTooLargeException("record too large");
+        when(enrichedPaymentEventsProducer.send(enrichedPaymentEvent)).thenReturn(CompletableFuture.failedFuture(tooLarge));
+        AtomicBoolean acknowledged = new AtomicBoolean();
+
+        publisher.publish(SOURCE, List.of(enrichedPaymentEvent), () -> acknowledged.set(true));
+
+        await().atMost(Duration.ofSeconds(5)).untilTrue(acknowledged);
+        ArgumentCaptor<ConsumerRecord<?, ?>> recordCaptor = ArgumentCaptor.forClass(ConsumerRecord.class);
+        verify(deadLetterPublishingRecoverer).accept(recordCaptor.capture(), eq(tooLarge));
+        assertThat(recordCaptor.getValue().topic()).isEqualTo(TOPIC);
+        assertThat(recordCaptor.getValue().value()).isEqualTo(enrichedPaymentEvent);
+        verify(enrichedPaymentEventsProducer).send(enrichedPaymentEvent);
+        assertThat(publisher.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldDeadLetterAfterRetryAttemptsExhausted() {
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        when(enrichedPaymentEventsProducer.send(enrichedPaymentEvent))
+                .thenReturn(CompletableFuture.failedFuture(new NetworkException("broker unavailable")));
+        AtomicBoolean acknowledged = new AtomicBoolean();
+
+        publisher.publish(SOURCE, List.of(enrichedPaymentEvent), () -> acknowledged.set(true));
+
+        await().atMost(Duration.ofSeconds(5)).untilTrue(acknowledged);
+        verify(enrichedPaymentEventsProducer, times(3)).send(enrichedPaymentEvent);
+        verify(deadLetterPublishingRecoverer).accept(any(), any(NetworkException.class));
+    }
+
+    @Test
+    void shouldPauseSourcePartitionInsteadOfBlockingWhenWindowIsFull() {
+        when(kafkaListenerEndpointRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.getAssignedPartitions()).thenReturn(List.of(SOURCE));
+        EnrichedPaymentEvent firstEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent secondEvent = TestDataBuilder.createEnrichedPaymentEvent(124L, 456L);
+        EnrichedPaymentEvent thirdEvent = TestDataBuilder.createEnrichedPaymentEvent(125L, 456L);
+        CompletableFuture<SendResult<Long, EnrichedPaymentEvent>> firstSend = new CompletableFuture<>();
+        CompletableFuture<SendResult<Long, EnrichedPaymentEvent>> secondSend = new CompletableFuture<>();
+        CompletableFuture<SendResult<Long, EnrichedPaymentEvent>> thirdSend = new CompletableFuture<>();
+        when(enrichedPaymentEventsProducer.send(firstEvent)).thenReturn(firstSend);
+        when(enrichedPaymentEventsProducer.send(secondEvent)).thenReturn(secondSend);
+        when(enrichedPaymentEventsProducer.send(thirdEvent)).thenReturn(thirdSend);
+
+        publisher.publish(SOURCE, List.of(firstEvent, secondEvent), () -> { });
+        publisher.publish(SOURCE, List.of(thirdEvent), () -> { });
+
+        assertThat(publisher.inFlight()).isEqualTo(3);
+        verify(container, times(1)).pausePartition(SOURCE);
+        firstSend.complete(null);
+        verify(container, never()).resumePartition(SOURCE);
+        secondSend.complete(null);
+        verify(container).resumePartition(SOURCE);
+        thirdSend.complete(null);
+        assertThat(publisher.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldRejectMissingDeadLetterTopic() {
+        assertThatThrownBy(() -> createPublisher(null))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("dead-letter");
+    }
+
+    @Test
+    void shouldNotAcknowledgeButReleaseWindowWhenDeadLetteringFails() {
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent();
+        when(enrichedPaymentEventsProducer.send(enrichedPaymentEvent))
+                .thenReturn(CompletableFuture.failedFuture(new RecordTooLargeException("record too large")));
+        doThrow(new KafkaException("dead-letter topic unavailable"))
+                .when(deadLetterPublishingRecoverer).accept(any(), any());
+        AtomicBoolean acknowledged = new AtomicBoolean();
+
+        CompletableFuture<Void> published = publisher.publish(SOURCE, List.of(enrichedPaymentEvent),
+                () -> acknowledged.set(true));
+
+        await().atMost(Duration.ofSeconds(5)).until(published::isDone);
+        assertThat(published).isCompletedExceptionally();
+        assertThat(acknowledged).isFalse();
+        assertThat(publisher.inFlight()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private PipelinedEnrichedPaymentEventsPublisher createPublisher(DeadLetterPublishingRecoverer recoverer) {
+        ObjectProvider<DeadLetterPublishingRecoverer> recovererProvider = mock(ObjectProvider.class);
+        when(recovererProvider.getIfAvailable()).thenReturn(recoverer);
+        return new PipelinedEnrichedPaymentEventsPublisher(enrichedPaymentEventsProducer,
+                new PartitionStateRegistry(60_000), new PausedPartitions(kafkaListenerEndpointRegistry), recovererProvider, new SimpleMeterRegistry(), TOPIC, 2, 1, 10, 3);
+    }
+}
@@ -0,0 +1,57 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.customer.CustomerService;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.testutils.TestDataBuilder;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EnrichedPaymentEventSplicerTest {
+
+    @Mock
+    private CustomerService customerService;
+
+    private EnrichedPaymentEventSplicer splicer;
+
+    @BeforeEach
+    void setUp() {
+        splicer = new EnrichedPaymentEventSplicer(customerService, 100, 60_000);
+    }
+
+    @Test
+    void shouldProduceSameBytesAsBuilderEnrichment() throws InvalidProtocolBufferException {
+        // Given
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent("pay_456", 123L, 456L);
+        when(customerService.getCustomerData(123L)).thenReturn(TestDataBuilder.createCustomerDto(123L));
+        EnrichedPaymentEvent expected = new PaymentEnrichmentService(customerService).enrich(paymentEvent);
+
+        // When
+        byte[] result = splicer.splice(PaymentEventView.parse(paymentEvent.toByteArray()));
+
+        // Then
+        assertThat(result).isEqualTo(expected.toByteArray());
+        assertThat(EnrichedPaymentEvent.parseFrom(result)).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldEncodeCustomerOncePerCustomerId() throws InvalidProtocolBufferException {
+        // Given
+        when(customerService.getCustomerData(123L)).thenReturn(TestDataBuilder.createCustomerDto(123L));
+
+        // When
+        splicer.splice(PaymentEventView.parse(TestDataBuilder.createPaymentEvent("pay_1", 123L, 456L).toByteArray()));
+        splicer.splice(PaymentEventView.parse(TestDataBuilder.createPaymentEvent("pay_2", 123L, 456L).toByteArray()));
+
+        // Then
+        verify(customerService, times(1)).getCustomerData(123L);
+    }
+}
@@ -0,0 +1,66 @@
+package com.biedron.payments.paymentevents;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class KeyOrderedExecutorTest {
+
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(Executors.newVirtualThreadPerTaskExecutor());
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void shouldRunTasksForSameKeyInSubmissionOrder() {
+        List<Integer> executed = new CopyOnWriteArrayList<>();
+
+        IntStream.range(0, 50).forEach(i -> executor.submit(123L, () -> executed.add(i)));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> executed.size() == 50);
+        assertThat(executed).isEqualTo(IntStream.range(0, 50).boxed().toList());
+    }
+
+    @Test
+    void shouldNotBlockOtherKeysWhileOneKeyIsSlow() throws InterruptedException {
+        CountDownLatch slowTaskRelease = new CountDownLatch(1);
+        CountDownLatch otherKeyDone = new CountDownLatch(1);
+
+        executor.submit(123L, () -> {
+            try {
+                slowTaskRelease.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.submit(456L, otherKeyDone::countDown);
+
+        assertThat(otherKeyDone.await(5, TimeUnit.SECONDS)).isTrue();
+        slowTaskRelease.countDown();
+    }
+
+    @Test
+    void shouldContinueChainAfterFailedTask() {
+        List<String> executed = new CopyOnWriteArrayList<>();
+
+        executor.submit(123L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        executor.submit(123L, () -> executed.add("after failure"));
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> executed.size() == 1);
+        await().atMost(Duration.ofSeconds(5)).until(() -> executor.activeKeys() == 0);
+    }
+}
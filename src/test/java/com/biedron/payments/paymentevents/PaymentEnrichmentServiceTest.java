@@ -13,6 +13,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
@@ -70,5 +74,43 @@ class PaymentEnrichmentServiceTest {
 
         verify(customerService).getCustomerData(999L);
     }
-}
 
+    @Test
+    void shouldEnrichBatchWithSingleBulkCustomerLookup() {
+        // Given
+        PaymentEvent firstEvent = TestDataBuilder.createPaymentEvent("pay_1", 123L, 456L);
+        PaymentEvent secondEvent = TestDataBuilder.createPaymentEvent("pay_2", 123L, 456L);
+        PaymentEvent thirdEvent = TestDataBuilder.createPaymentEvent("pay_3", 124L, 456L);
+
+        when(customerService.getCustomersData(Set.of(123L, 124L))).thenReturn(Map.of(
+                123L, TestDataBuilder.createCustomerDto(123L),
+                124L, TestDataBuilder.createCustomerDto(124L, "jane.doe@example.com", "Jane Doe")));
+
+        // When
+        List<EnrichedPaymentEvent> result = paymentEnrichmentService.enrichAll(List.of(firstEvent, secondEvent, thirdEvent));
+
+        // Then
+        assertThat(result).extracting(EnrichedPaymentEvent::getPaymentId).containsExactly("pay_1", "pay_2", "pay_3");
+        assertThat(result.get(0).getCustomer().getId()).isEqualTo(123L);
+        assertThat(result.get(2).getCustomer().getEmail()).isEqualTo("jane.doe@example.com");
+        assertThat(result.get(2).getCustomer().getName()).isEqualTo("Jane Doe");
+
+        verify(customerService).getCustomersData(Set.of(123L, 124L));
+        verify(customerService, never()).getCustomerData(anyLong());
+    }
+
+    @Test
+    void shouldFailBatchWhenAnyCustomerDoesNotExist() {
+        // Given
+        PaymentEvent knownCustomerEvent = TestDataBuilder.createPaymentEvent("pay_1", 123L, 456L);
+        PaymentEvent unknownCustomerEvent = TestDataBuilder.createPaymentEvent("pay_2", 999L, 456L);
+
+        when(customerService.getCustomersData(Set.of(123L, 999L)))
+                .thenReturn(Map.of(123L, TestDataBuilder.createCustomerDto(123L)));
+
+        // When & Then
+        assertThatThrownBy(() -> paymentEnrichmentService.enrichAll(List.of(knownCustomerEvent, unknownCustomerEvent)))
+                .isInstanceOf(CustomerNotFoundException.class)
+                .hasMessageContaining("Customer not found: 999");
+    }
+}
@@ -3,15 +3,23 @@ package com.biedron.payments.paymentevents;
 import com.biedron.payments.testutils.TestDataBuilder;
 import com.biedron.payments.schema.v1.PaymentEvent;
 import com.biedron.payments.schema.v1.PaymentStatus;
+import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.errors.SerializationException;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class PaymentEventSerDeTest {
 
-    private final PaymentEventsSerDe paymentEventsSerDe = new PaymentEventsSerDe();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final PaymentEventsSerDe paymentEventsSerDe = new PaymentEventsSerDe(meterRegistry);
 
     @Test
     public void testSerializationAndDeserialization() {
@@ -39,5 +47,71 @@ public class PaymentEventSerDeTest {
         PaymentEvent paymentEvent = paymentEventsSerDe.deserialize("topic", invalidData);
         assertThat(paymentEvent).isNull();
     }
-}
 
+    @Test
+    public void testDeserializeWhenInvalidMessageAndFailOnInvalidConfigured() {
+        PaymentEventsSerDe strictSerDe = new PaymentEventsSerDe(meterRegistry);
+        strictSerDe.configure(Map.of(PaymentEventsSerDe.FAIL_ON_INVALID_CONFIG, true), false);
+
+        assertThatThrownBy(() -> strictSerDe.deserialize("topic", "invalid data".getBytes()))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    public void testDeserializeViewWhenInvalidOrMissingMessage() {
+        assertThatThrownBy(() -> paymentEventsSerDe.deserializeView("topic", "invalid data".getBytes()))
+                .isInstanceOf(InvalidProtocolBufferException.class);
+        assertThatThrownBy(() -> paymentEventsSerDe.deserializeView("topic", null))
+                .isInstanceOf(InvalidProtocolBufferException.class);
+    }
+
+    @Test
+    public void testDeserializeFromHeapByteBufferSlice() {
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent("pay_456", 123L, 456L);
+        byte[] serialized = paymentEventsSerDe.serialize("topic", paymentEvent);
+
+        // the record sits in the middle of a larger fetch buffer
+        ByteBuffer fetchBuffer = ByteBuffer.allocate(serialized.length + 20);
+        fetchBuffer.position(10);
+        fetchBuffer.put(serialized);
+        ByteBuffer recordValue = fetchBuffer.position(10).slice().limit(serialized.length);
+
+        PaymentEvent deserialized = paymentEventsSerDe.deserialize("topic", null, recordValue);
+
+        assertThat(deserialized).isEqualTo(paymentEvent);
+        assertThat(recordValue.position()).isZero();
+    }
+
+    @Test
+    public void testDeserializeFromDirectByteBuffer() {
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent("pay_456", 123L, 456L);
+        byte[] serialized = paymentEventsSerDe.serialize("topic", paymentEvent);
+        ByteBuffer recordValue = ByteBuffer.allocateDirect(serialized.length).put(serialized).flip();
+
+        PaymentEvent deserialized = paymentEventsSerDe.deserialize("topic", null, recordValue);
+
+        assertThat(deserialized).isEqualTo(paymentEvent);
+    }
+
+    @Test
+    public void testDeserializeInvalidByteBuffer() {
+        PaymentEvent paymentEvent = paymentEventsSerDe.deserialize("topic", null, ByteBuffer.wrap("invalid data".getBytes()));
+
+        assertThat(paymentEvent).isNull();
+        assertThat(meterRegistry.get("payment.notifications.protobuf.parse.failures").tag("topic", "topic").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testRecordsParsedBytesPerTopic() {
+        byte[] serialized = paymentEventsSerDe.serialize("topic", TestDataBuilder.createPaymentEvent(123L, 456L));
+
+        paymentEventsSerDe.deserialize("payment.events", serialized);
+        paymentEventsSerDe.deserialize("payment.events", null, ByteBuffer.wrap(serialized));
+
+        assertThat(meterRegistry.get("payment.notifications.protobuf.parse.bytes").tag("topic", "payment.events").counter().count())
+                .isEqualTo(2.0 * serialized.length);
+        assertThat(meterRegistry.get("payment.notifications.protobuf.parse.time").tag("topic", "payment.events").timer().count())
+                .isEqualTo(2);
+    }
+}
@@ -0,0 +1,65 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.schema.v1.PaymentStatus;
+import com.biedron.payments.testutils.TestDataBuilder;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PaymentEventViewTest {
+
+    @Test
+    void shouldExposeRoutingFieldsOfPaymentEvent() throws InvalidProtocolBufferException {
+        // Given
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent("pay_456", 123L, 456L);
+
+        // When
+        PaymentEventView view = PaymentEventView.parse(paymentEvent.toByteArray());
+
+        // Then
+        assertThat(view.customerId()).isEqualTo(123L);
+        assertThat(view.merchantId()).isEqualTo(456L);
+        assertThat(view.paymentId()).isEqualTo("pay_456");
+        assertThat(view.idempotencyKey()).isEqualTo("pay_456-2025-02-22T10:15:30Z");
+        assertThat(view.paymentStatus()).isEqualTo(PaymentStatus.PAYMENT_COMPLETED);
+        assertThat(view.toPaymentEvent()).isEqualTo(paymentEvent);
+    }
+
+    @Test
+    void shouldExposeRoutingFieldsOfEnrichedPaymentEvent() throws InvalidProtocolBufferException {
+        // Given
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+
+        // When
+        PaymentEventView view = PaymentEventView.parse(enrichedPaymentEvent.toByteArray());
+
+        // Then
+        assertThat(view.customerId()).isEqualTo(123L);
+        assertThat(view.merchantId()).isEqualTo(456L);
+        assertThat(view.paymentId()).isEqualTo(enrichedPaymentEvent.getPaymentId());
+        assertThat(view.paymentStatus()).isEqualTo(enrichedPaymentEvent.getPaymentData().getPaymentStatus());
+        assertThat(view.toEnrichedPaymentEvent()).isEqualTo(enrichedPaymentEvent);
+    }
+
+    @Test
+    void shouldReturnDefaultsForMissingFields() throws InvalidProtocolBufferException {
+        // When
+        PaymentEventView view = PaymentEventView.parse(PaymentEvent.getDefaultInstance().toByteArray());
+
+        // Then
+        assertThat(view.customerId()).isZero();
+        assertThat(view.paymentId()).isEmpty();
+        assertThat(view.paymentStatus()).isEqualTo(PaymentStatus.PAYMENT_UNSPECIFIED);
+    }
+
+    @Test
+    void shouldRejectInvalidMessage() {
+        // When & Then
+        assertThatThrownBy(() -> PaymentEventView.parse("invalid data".getBytes()))
+                .isInstanceOf(InvalidProtocolBufferException.class);
+    }
+}
@@ -0,0 +1,119 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.customer.CustomerNotFoundException;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsProducer;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.testutils.TestDataBuilder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PaymentEventsBatchConsumerTest {
+
+    private static final String TOPIC = "payment.events.test";
+
+    @Mock
+    private PaymentEnrichmentService paymentEnrichmentService;
+
+    @Mock
+    private EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    private PaymentEventsBatchConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new PaymentEventsBatchConsumer(paymentEnrichmentService, enrichedPaymentEventsProducer);
+    }
+
+    @Test
+    void shouldEnrichAndProduceWholeBatch() {
+        PaymentEvent firstEvent = TestDataBuilder.createPaymentEvent("pay_1", 123L, 456L);
+        PaymentEvent secondEvent = TestDataBuilder.createPaymentEvent("pay_2", 124L, 456L);
+        List<EnrichedPaymentEvent> enrichedPaymentEvents = List.of(
+                TestDataBuilder.createEnrichedPaymentEvent(firstEvent),
+                TestDataBuilder.createEnrichedPaymentEvent(secondEvent));
+
+        when(paymentEnrichmentService.enrichAll(List.of(firstEvent, secondEvent))).thenReturn(enrichedPaymentEvents);
+
+        consumer.consume(List.of(
+                new ConsumerRecord<>(TOPIC, 0, 0L, 123L, firstEvent),
+                new ConsumerRecord<>(TOPIC, 0, 1L, 124L, secondEvent)));
+
+        verify(paymentEnrichmentService).enrichAll(List.of(firstEvent, secondEvent));
+        verify(enrichedPaymentEventsProducer).produceAll(enrichedPaymentEvents);
+    }
+
+    @Test
+    void shouldSkipRecordsThatFailedDeserialization() {
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(123L, 456L);
+        List<EnrichedPaymentEvent> enrichedPaymentEvents = List.of(TestDataBuilder.createEnrichedPaymentEvent(paymentEvent));
+
+        when(paymentEnrichmentService.enrichAll(List.of(paymentEvent))).thenReturn(enrichedPaymentEvents);
+
+        consumer.consume(List.of(
+                new ConsumerRecord<>(TOPIC, 0, 0L, 123L, (PaymentEvent) null),
+                new ConsumerRecord<>(TOPIC, 0, 1L, 123L, paymentEvent)));
+
+        verify(enrichedPaymentEventsProducer).produceAll(enrichedPaymentEvents);
+    }
+
+    @Test
+    void shouldDoNothingWhenBatchHasNoValidRecords() {
+        consumer.consume(List.of(new ConsumerRecord<>(TOPIC, 0, 0L, 123L, (PaymentEvent) null)));
+
+        verifyNoInteractions(paymentEnrichmentService);
+        verifyNoInteractions(enrichedPaymentEventsProducer);
+    }
+
+    @Test
+    void shouldProduceRecordsBeforeMissingCustomerAndFailAtItsIndex() {
+        PaymentEvent firstEvent = TestDataBuilder.createPaymentEvent("pay_1", 123L, 456L);
+        PaymentEvent secondEvent = TestDataBuilder.createPaymentEvent("pay_2", 999L, 456L);
+        List<EnrichedPaymentEvent> enrichedPaymentEvents = List.of(TestDataBuilder.createEnrichedPaymentEvent(firstEvent));
+
+        when(paymentEnrichmentService.enrichAll(List.of(firstEvent, secondEvent)))
+                .thenThrow(new CustomerNotFoundException(999L));
+        when(paymentEnrichmentService.enrichAll(List.of(firstEvent))).thenReturn(enrichedPaymentEvents);
+
+        assertThatThrownBy(() -> consumer.consume(List.of(
+                new ConsumerRecord<>(TOPIC, 0, 0L, 123L, firstEvent),
+                new ConsumerRecord<>(TOPIC, 0, 1L, 999L, secondEvent))))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class, e -> {
+                    assertThat(e.getIndex()).isEqualTo(1);
+                    assertThat(e.getCause()).isInstanceOf(CustomerNotFoundException.class);
+                });
+
+        verify(enrichedPaymentEventsProducer).produceAll(enrichedPaymentEvents);
+    }
+
+    @Test
+    void shouldFailAtFirstRecordCaughtByErrorHandlingDeserializer() {
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(123L, 456L);
+        List<EnrichedPaymentEvent> enrichedPaymentEvents = List.of(TestDataBuilder.createEnrichedPaymentEvent(paymentEvent));
+        ConsumerRecord<Long, PaymentEvent> undeserializable = new ConsumerRecord<>(TOPIC, 0, 1L, 123L, (PaymentEvent) null);
+        undeserializable.headers().add(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, new byte[0]);
+
+        when(paymentEnrichmentService.enrichAll(List.of(paymentEvent))).thenReturn(enrichedPaymentEvents);
+
+        assertThatThrownBy(() -> consumer.consume(List.of(
+                new ConsumerRecord<>(TOPIC, 0, 0L, 123L, paymentEvent),
+                undeserializable,
+                new ConsumerRecord<>(TOPIC, 0, 2L, 123L, paymentEvent))))
+                .isInstanceOfSatisfying(BatchListenerFailedException.class, e -> assertThat(e.getIndex()).isEqualTo(1));
+
+        verify(enrichedPaymentEventsProducer).produceAll(enrichedPaymentEvents);
+    }
+}
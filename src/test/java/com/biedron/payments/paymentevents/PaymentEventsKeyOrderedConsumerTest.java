@@ -0,0 +1,186 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.customer.CustomerNotFoundException;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsProducer;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.shared.AdmissionController;
+import com.biedron.payments.shared.PausedPartitions;
+import com.biedron.payments.testutils.TestDataBuilder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PaymentEventsKeyOrderedConsumerTest {
+
+    private static final String TOPIC = "payment.events.test";
+
+    @Mock
+    private PaymentEnrichmentService paymentEnrichmentService;
+
+    @Mock
+    private EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Mock
+    private AdmissionController admissionController;
+
+    @Mock
+    private DeadLetterPublishingRecoverer deadLetterPublishingRecoverer;
+
+    @Mock
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private PaymentEventsKeyOrderedConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = createConsumer(null, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void shouldProcessAndAcknowledgeEvent() {
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(paymentEvent);
+        when(paymentEnrichmentService.enrich(paymentEvent)).thenReturn(enrichedPaymentEvent);
+
+        consumer.consume(new ConsumerRecord<>(TOPIC, 0, 0L, 123L, paymentEvent), acknowledgment);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(acknowledgment).acknowledge());
+        verify(enrichedPaymentEventsProducer).produce(enrichedPaymentEvent);
+    }
+
+    @Test
+    void shouldRetryAndAcknowledgeWhenRetriesExhausted() {
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(999L, 456L);
+        when(paymentEnrichmentService.enrich(paymentEvent))
+                .thenThrow(new CustomerNotFoundException("Customer not found: 999"));
+
+        consumer.consume(new ConsumerRecord<>(TOPIC, 0, 0L, 999L, paymentEvent), acknowledgment);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(acknowledgment).acknowledge());
+        verify(paymentEnrichmentService, times(3)).enrich(paymentEvent);
+        verifyNoInteractions(enrichedPaymentEventsProducer);
+    }
+
+    @Test
+    void shouldDeadLetterNotRetryableFailureWithoutRetries() {
+        consumer.close();
+        consumer = createConsumer(deadLetterPublishingRecoverer, 10);
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(999L, 456L);
+        CustomerNotFoundException notFound = new CustomerNotFoundException("Customer not found: 999");
+        when(paymentEnrichmentService.enrich(paymentEvent)).thenThrow(notFound);
+        ConsumerRecord<Long, PaymentEvent> record = new ConsumerRecord<>(TOPIC, 0, 0L, 999L, paymentEvent);
+
+        consumer.consume(record, acknowledgment);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(acknowledgment).acknowledge());
+        verify(deadLetterPublishingRecoverer).accept(record, notFound);
+        verify(paymentEnrichmentService, times(1)).enrich(paymentEvent);
+    }
+
+    @Test
+    void shouldDeadLetterWhenRetriesExhausted() {
+        consumer.close();
+        consumer = createConsumer(deadLetterPublishingRecoverer, 10);
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(123L, 456L);
+        when(paymentEnrichmentService.enrich(paymentEvent)).thenThrow(new IllegalStateException("database down"));
+        ConsumerRecord<Long, PaymentEvent> record = new ConsumerRecord<>(TOPIC, 0, 0L, 123L, paymentEvent);
+
+        consumer.consume(record, acknowledgment);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(acknowledgment).acknowledge());
+        verify(paymentEnrichmentService, times(3)).enrich(paymentEvent);
+        verify(deadLetterPublishingRecoverer).accept(eq(record), any(IllegalStateException.class));
+    }
+
+    @Test
+    void shouldNotAcknowledgeWhenDeadLetteringFails() {
+        consumer.close();
+        consumer = createConsumer(deadLetterPublishingRecoverer, 10);
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(999L, 456L);
+        when(paymentEnrichmentService.enrich(paymentEvent))
+                .thenThrow(new CustomerNotFoundException("Customer not found: 999"));
+        doThrow(new KafkaException("dead-letter topic unavailable"))
+                .when(deadLetterPublishingRecoverer).accept(any(), any());
+
+        consumer.consume(new ConsumerRecord<>(TOPIC, 0, 0L, 999L, paymentEvent), acknowledgment);
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(deadLetterPublishingRecoverer).accept(any(), any()));
+        verify(acknowledgment, after(100).never()).acknowledge();
+    }
+
+    @Test
+    void shouldPausePartitionInsteadOfBlockingWhenExecutorIsFull() throws InterruptedException {
+        consumer.close();
+        consumer = createConsumer(null, 2);
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        when(kafkaListenerEndpointRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.getAssignedPartitions()).thenReturn(List.of(partition));
+        CountDownLatch release = new CountDownLatch(1);
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(123L, 456L);
+        when(paymentEnrichmentService.enrich(paymentEvent)).thenAnswer(invocation -> {
+            release.await();
+            return TestDataBuilder.createEnrichedPaymentEvent(paymentEvent);
+        });
+
+        for (long offset = 0; offset < 3; offset++) {
+            consumer.consume(new ConsumerRecord<>(TOPIC, 0, offset, 123L, paymentEvent), acknowledgment);
+        }
+
+        verify(container).pausePartition(partition);
+        release.countDown();
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(container).resumePartition(partition));
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> verify(acknowledgment, times(3)).acknowledge());
+    }
+
+    @Test
+    void shouldAcknowledgeRecordThatFailedDeserialization() {
+        consumer.consume(new ConsumerRecord<>(TOPIC, 0, 0L, 123L, (PaymentEvent) null), acknowledgment);
+
+        verify(acknowledgment).acknowledge();
+        verifyNoInteractions(paymentEnrichmentService);
+    }
+
+    private PaymentEventsKeyOrderedConsumer createConsumer(DeadLetterPublishingRecoverer recoverer, int maxInFlight) {
+        var backOff = new ExponentialBackOffWithMaxRetries(2);
+        backOff.setInitialInterval(1);
+        ObjectProvider<DeadLetterPublishingRecoverer> recovererProvider = mock(ObjectProvider.class);
+        when(recovererProvider.getIfAvailable()).thenReturn(recoverer);
+        return new PaymentEventsKeyOrderedConsumer(paymentEnrichmentService, enrichedPaymentEventsProducer, backOff,
+                admissionController, recovererProvider, new PausedPartitions(kafkaListenerEndpointRegistry),
+                PaymentEventsKeyOrderedConsumer.OrderingKey.CUSTOMER, maxInFlight);
+    }
+}
@@ -0,0 +1,87 @@
+package com.biedron.payments.paymentevents;
+
+import com.biedron.payments.enrichedevents.PipelinedEnrichedPaymentEventsPublisher;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.shared.AdmissionController;
+import com.biedron.payments.testutils.TestDataBuilder;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentEventsPipelinedConsumerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("payment.events.test", 0);
+
+    @Mock
+    private PaymentEnrichmentService paymentEnrichmentService;
+
+    @Mock
+    private PipelinedEnrichedPaymentEventsPublisher pipelinedEnrichedPaymentEventsPublisher;
+
+    @Mock
+    private AdmissionController admissionController;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private PaymentEventsPipelinedConsumer consumer;
+
+    private PaymentEvent paymentEvent;
+
+    private EnrichedPaymentEvent enrichedPaymentEvent;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new PaymentEventsPipelinedConsumer(paymentEnrichmentService, pipelinedEnrichedPaymentEventsPublisher,
+                admissionController);
+        paymentEvent = TestDataBuilder.createPaymentEvent(123L, 456L);
+        enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(paymentEvent);
+        when(paymentEnrichmentService.enrich(paymentEvent)).thenReturn(enrichedPaymentEvent);
+    }
+
+    @Test
+    void shouldReleaseAdmissionOnceAcknowledged() {
+        // Given
+        CompletableFuture<Void> published = new CompletableFuture<>();
+        when(pipelinedEnrichedPaymentEventsPublisher.publish(eq(PARTITION), eq(List.of(enrichedPaymentEvent)), any()))
+                .thenReturn(published);
+
+        // When
+        consumer.consume(new ConsumerRecord<>(PARTITION.topic(), 0, 0L, 123L, paymentEvent), acknowledgment);
+
+        // Then
+        verify(admissionController).admit(eq(PARTITION), anyLong());
+        verify(admissionController, never()).release(anyLong());
+        published.complete(null);
+        verify(admissionController).release(anyLong());
+    }
+
+    @Test
+    void shouldReleaseAdmissionWhenPublishingFails() {
+        // Given
+        when(pipelinedEnrichedPaymentEventsPublisher.publish(eq(PARTITION), eq(List.of(enrichedPaymentEvent)), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Sending EnrichedPaymentEvent failed")));
+
+        // When
+        consumer.consume(new ConsumerRecord<>(PARTITION.topic(), 0, 0L, 123L, paymentEvent), acknowledgment);
+
+        // Then
+        verify(admissionController).release(anyLong());
+        verifyNoInteractions(acknowledgment);
+    }
+}
@@ -0,0 +1,63 @@
+package com.biedron.payments.replay;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MerchantRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+
+    @Test
+    void shouldSpaceRecordsOfSameMerchant() {
+        // Given
+        MerchantRateLimiter rateLimiter = new MerchantRateLimiter(10, now::get);
+
+        // When
+        long first = rateLimiter.reserve(456L);
+        long second = rateLimiter.reserve(456L);
+        long third = rateLimiter.reserve(456L);
+
+        // Then
+        assertThat(first).isZero();
+        assertThat(second).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(third).isEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    void shouldLimitMerchantsIndependently() {
+        // Given
+        MerchantRateLimiter rateLimiter = new MerchantRateLimiter(10, now::get);
+        rateLimiter.reserve(456L);
+
+        // When & Then
+        assertThat(rateLimiter.reserve(789L)).isZero();
+    }
+
+    @Test
+    void shouldNotAccumulateBurstWhileIdle() {
+        // Given
+        MerchantRateLimiter rateLimiter = new MerchantRateLimiter(10, now::get);
+        rateLimiter.reserve(456L);
+
+        // When
+        now.addAndGet(TimeUnit.SECONDS.toNanos(5));
+
+        // Then
+        assertThat(rateLimiter.reserve(456L)).isZero();
+        assertThat(rateLimiter.reserve(456L)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void shouldNotWaitWhenRateIsDisabled() {
+        // Given
+        MerchantRateLimiter rateLimiter = new MerchantRateLimiter(0, now::get);
+
+        // When & Then
+        assertThat(rateLimiter.reserve(456L)).isZero();
+        assertThat(rateLimiter.reserve(456L)).isZero();
+    }
+}
@@ -0,0 +1,250 @@
+package com.biedron.payments.replay;
+
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsConsumer;
+import com.biedron.payments.enrichedevents.EnrichedPaymentEventsProducer;
+import com.biedron.payments.paymentevents.PaymentEnrichmentService;
+import com.biedron.payments.replay.ReplayProgress.ReplayState;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import com.biedron.payments.schema.v1.PaymentEvent;
+import com.biedron.payments.testutils.TestDataBuilder;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReplayServiceTest {
+
+    private static final String PAYMENT_EVENTS_TOPIC = "payment.events.test";
+
+    private static final String ENRICHED_TOPIC = "enriched.payment.events.test";
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition(ENRICHED_TOPIC, 0);
+
+    private static final TopicPartition PARTITION_1 = new TopicPartition(ENRICHED_TOPIC, 1);
+
+    private static final Instant FROM = Instant.parse("2025-03-17T10:00:00Z");
+
+    private static final Instant TO = Instant.parse("2025-03-17T11:00:00Z");
+
+    @Mock
+    private PaymentEnrichmentService paymentEnrichmentService;
+
+    @Mock
+    private EnrichedPaymentEventsProducer enrichedPaymentEventsProducer;
+
+    @Mock
+    private EnrichedPaymentEventsConsumer enrichedPaymentEventsConsumer;
+
+    @Mock
+    private Consumer<Long, Object> consumer;
+
+    private final Map<TopicPartition, Long> positions = new ConcurrentHashMap<>();
+
+    private ReplayService replayService;
+
+    @BeforeEach
+    void setUp() {
+        ReplayService service = new ReplayService(new KafkaProperties(), mock(SslBundles.class),
+                paymentEnrichmentService, enrichedPaymentEventsProducer, enrichedPaymentEventsConsumer);
+        ReflectionTestUtils.setField(service, "paymentEventsTopic", PAYMENT_EVENTS_TOPIC);
+        ReflectionTestUtils.setField(service, "enrichedPaymentEventsTopic", ENRICHED_TOPIC);
+        ReflectionTestUtils.setField(service, "parallelism", 4);
+        ReflectionTestUtils.setField(service, "merchantRatePerSecond", 0.0);
+        replayService = spy(service);
+        doReturn(consumer).when(replayService).createConsumer(any());
+
+        when(consumer.partitionsFor(ENRICHED_TOPIC)).thenReturn(List.of(
+                new PartitionInfo(ENRICHED_TOPIC, 0, null, null, null),
+                new PartitionInfo(ENRICHED_TOPIC, 1, null, null, null)));
+        when(consumer.endOffsets(anyList())).thenReturn(Map.of(PARTITION_0, 10L, PARTITION_1, 6L));
+        doAnswer(invocation -> positions.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(consumer).seek(any(TopicPartition.class), anyLong());
+        when(consumer.position(any(TopicPartition.class)))
+                .thenAnswer(invocation -> positions.getOrDefault(invocation.getArgument(0), 0L));
+    }
+
+    @Test
+    void shouldReplayRecordsBetweenOffsetsOfTimestamps() {
+        // Given
+        when(consumer.offsetsForTimes(Map.of(PARTITION_0, FROM.toEpochMilli(), PARTITION_1, FROM.toEpochMilli())))
+                .thenReturn(offsets(new OffsetAndTimestamp(2, FROM.toEpochMilli()), null));
+        when(consumer.offsetsForTimes(Map.of(PARTITION_0, TO.toEpochMilli(), PARTITION_1, TO.toEpochMilli())))
+                .thenReturn(offsets(new OffsetAndTimestamp(5, TO.toEpochMilli()), null));
+        when(consumer.poll(any(Duration.class)))
+                .thenAnswer(invocation -> poll(PARTITION_0, 2, 7))
+                .thenReturn(ConsumerRecords.empty());
+
+        // When
+        replayService.start(ReplayTarget.ENRICHED_PAYMENT_EVENTS, FROM, TO);
+
+        // Then
+        awaitState(ReplayState.COMPLETED);
+        verify(consumer).seek(PARTITION_0, 2);
+        verify(consumer, never()).seek(eq(PARTITION_1), anyLong());
+        verify(consumer).pause(Set.of(PARTITION_1));
+        // offsets 2, 3 and 4 are in range, 5 and 6 are at or after the end timestamp
+        verify(enrichedPaymentEventsConsumer, times(3)).consume(any(EnrichedPaymentEvent.class));
+        assertThat(replayService.progress()).hasValueSatisfying(progress -> {
+            assertThat(progress.total()).isEqualTo(3);
+            assertThat(progress.processed()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void shouldCompletePartitionEndingWithTransactionMarker() {
+        // Given
+        when(consumer.offsetsForTimes(anyMap()))
+                .thenReturn(offsets(new OffsetAndTimestamp(8, FROM.toEpochMilli()), new OffsetAndTimestamp(0, FROM.toEpochMilli())));
+        // partition 1 holds records 0 to 4 followed by a commit marker at offset 5, which no poll returns
+        when(consumer.poll(any(Duration.class)))
+                .thenAnswer(invocation -> poll(PARTITION_0, 8, 10, PARTITION_1, 0, 5))
+                .thenAnswer(invocation -> {
+                    positions.put(PARTITION_1, 6L);
+                    return ConsumerRecords.empty();
+                })
+                .thenReturn(ConsumerRecords.empty());
+
+        // When
+        replayService.start(ReplayTarget.ENRICHED_PAYMENT_EVENTS, FROM, null);
+
+        // Then
+        awaitState(ReplayState.COMPLETED);
+        verify(enrichedPaymentEventsConsumer, times(7)).consume(any(EnrichedPaymentEvent.class));
+        verify(consumer).pause(List.of(PARTITION_1));
+    }
+
+    @Test
+    void shouldReenrichPaymentEventsInLocalTransaction() {
+        // Given
+        TopicPartition partition = new TopicPartition(PAYMENT_EVENTS_TOPIC, 0);
+        PaymentEvent paymentEvent = TestDataBuilder.createPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent enrichedPaymentEvent = TestDataBuilder.createEnrichedPaymentEvent(paymentEvent);
+        when(consumer.partitionsFor(PAYMENT_EVENTS_TOPIC))
+                .thenReturn(List.of(new PartitionInfo(PAYMENT_EVENTS_TOPIC, 0, null, null, null)));
+        when(consumer.endOffsets(anyList())).thenReturn(Map.of(partition, 1L));
+        when(consumer.offsetsForTimes(anyMap()))
+                .thenReturn(Map.of(partition, new OffsetAndTimestamp(0, FROM.toEpochMilli())));
+        when(consumer.poll(any(Duration.class))).thenAnswer(invocation -> {
+            positions.put(partition, 1L);
+            return new ConsumerRecords<>(Map.of(partition,
+                    List.of(new ConsumerRecord<Long, Object>(PAYMENT_EVENTS_TOPIC, 0, 0, 123L, paymentEvent))));
+        });
+        when(paymentEnrichmentService.enrichAll(List.of(paymentEvent))).thenReturn(List.of(enrichedPaymentEvent));
+
+        // When
+        replayService.start(ReplayTarget.PAYMENT_EVENTS, FROM, null);
+
+        // Then
+        awaitState(ReplayState.COMPLETED);
+        verify(enrichedPaymentEventsProducer).produceAllInLocalTransaction(List.of(enrichedPaymentEvent));
+        verify(enrichedPaymentEventsProducer, never()).produceAll(anyList());
+    }
+
+    @Test
+    void shouldNotHoldUpOtherMerchantsWhileOneIsThrottled() {
+        // Given
+        ReflectionTestUtils.setField(replayService, "merchantRatePerSecond", 1.0);
+        EnrichedPaymentEvent throttledFirst = TestDataBuilder.createEnrichedPaymentEvent(123L, 456L);
+        EnrichedPaymentEvent throttledSecond = TestDataBuilder.createEnrichedPaymentEvent(124L, 456L);
+        EnrichedPaymentEvent otherMerchant = TestDataBuilder.createEnrichedPaymentEvent(125L, 789L);
+        when(consumer.offsetsForTimes(anyMap()))
+                .thenReturn(offsets(new OffsetAndTimestamp(0, FROM.toEpochMilli()), null));
+        when(consumer.poll(any(Duration.class)))
+                .thenAnswer(invocation -> {
+                    positions.put(PARTITION_0, 10L);
+                    return new ConsumerRecords<>(Map.of(PARTITION_0, List.of(
+                            new ConsumerRecord<Long, Object>(ENRICHED_TOPIC, 0, 0, 123L, throttledFirst),
+                            new ConsumerRecord<Long, Object>(ENRICHED_TOPIC, 0, 1, 124L, throttledSecond),
+                            new ConsumerRecord<Long, Object>(ENRICHED_TOPIC, 0, 2, 125L, otherMerchant))));
+                })
+                .thenReturn(ConsumerRecords.empty());
+
+        // When
+        replayService.start(ReplayTarget.ENRICHED_PAYMENT_EVENTS, FROM, null);
+
+        // Then
+        await().atMost(Duration.ofMillis(500)).untilAsserted(() ->
+                verify(enrichedPaymentEventsConsumer).consume(otherMerchant));
+        verify(enrichedPaymentEventsConsumer, never()).consume(throttledSecond);
+        awaitState(ReplayState.COMPLETED);
+        verify(enrichedPaymentEventsConsumer).consume(throttledSecond);
+    }
+
+    @Test
+    void shouldRejectSecondReplayWhileRunning() {
+        // Given
+        when(consumer.offsetsForTimes(anyMap()))
+                .thenReturn(offsets(new OffsetAndTimestamp(0, FROM.toEpochMilli()), null));
+        when(consumer.poll(any(Duration.class))).thenReturn(ConsumerRecords.empty());
+        replayService.start(ReplayTarget.ENRICHED_PAYMENT_EVENTS, FROM, null);
+
+        // When / Then
+        assertThatThrownBy(() -> replayService.start(ReplayTarget.ENRICHED_PAYMENT_EVENTS, FROM, null))
+                .isInstanceOf(IllegalStateException.class);
+        replayService.cancel();
+        awaitState(ReplayState.CANCELLED);
+    }
+
+    private Map<TopicPartition, OffsetAndTimestamp> offsets(OffsetAndTimestamp partition0, OffsetAndTimestamp partition1) {
+        Map<TopicPartition, OffsetAndTimestamp> offsets = new HashMap<>();
+        offsets.put(PARTITION_0, partition0);
+        offsets.put(PARTITION_1, partition1);
+        return offsets;
+    }
+
+    /**
+     * Records of the given offset ranges (end exclusive), moving each position past its range.
+     */
+    private ConsumerRecords<Long, Object> poll(Object... ranges) {
+        Map<TopicPartition, List<ConsumerRecord<Long, Object>>> records = new HashMap<>();
+        for (int i = 0; i < ranges.length; i += 3) {
+            TopicPartition partition = (TopicPartition) ranges[i];
+            long start = ((Number) ranges[i + 1]).longValue();
+            long end = ((Number) ranges[i + 2]).longValue();
+            List<ConsumerRecord<Long, Object>> partitionRecords = new ArrayList<>();
+            LongStream.range(start, end).forEach(offset -> partitionRecords.add(new ConsumerRecord<>(
+                    partition.topic(), partition.partition(), offset, 123L,
+                    TestDataBuilder.createEnrichedPaymentEvent(123L, 456L))));
+            records.put(partition, partitionRecords);
+            positions.put(partition, end);
+        }
+        return new ConsumerRecords<>(records);
+    }
+
+    private void awaitState(ReplayState state) {
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThat(replayService.progress()).hasValueSatisfying(progress ->
+                        assertThat(progress.state()).isEqualTo(state)));
+    }
+}
@@ -0,0 +1,105 @@
+package com.biedron.payments.shared;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AdmissionControllerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("payment.events.test", 0);
+
+    @Mock
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private AdmissionController admissionController;
+
+    @BeforeEach
+    void setUp() {
+        admissionController = new AdmissionController(new PausedPartitions(kafkaListenerEndpointRegistry), new SimpleMeterRegistry(),
+                true, 2, 1000, 0.5);
+    }
+
+    @Test
+    void shouldPausePartitionWhenEventBudgetExceeded() {
+        // Given
+        when(kafkaListenerEndpointRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.getAssignedPartitions()).thenReturn(List.of(PARTITION));
+
+        // When
+        admissionController.admit(PARTITION, 10);
+        admissionController.admit(PARTITION, 10);
+        admissionController.admit(PARTITION, 10);
+
+        // Then
+        verify(container, times(1)).pausePartition(PARTITION);
+        assertThat(admissionController.pausedPartitions()).isEqualTo(1);
+        assertThat(admissionController.inFlightBytes()).isEqualTo(30);
+    }
+
+    @Test
+    void shouldPausePartitionWhenByteBudgetExceeded() {
+        // Given
+        when(kafkaListenerEndpointRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.getAssignedPartitions()).thenReturn(List.of(PARTITION));
+
+        // When
+        admissionController.admit(PARTITION, 1500);
+
+        // Then
+        verify(container).pausePartition(PARTITION);
+    }
+
+    @Test
+    void shouldResumeOnlyAfterDrainingBelowResumeRatio() {
+        // Given
+        when(kafkaListenerEndpointRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.getAssignedPartitions()).thenReturn(List.of(PARTITION));
+        admissionController.admit(PARTITION, 10);
+        admissionController.admit(PARTITION, 10);
+        admissionController.admit(PARTITION, 10);
+
+        // When
+        admissionController.release(10);
+
+        // Then
+        verify(container, never()).resumePartition(PARTITION);
+
+        // When
+        admissionController.release(10);
+
+        // Then
+        verify(container).resumePartition(PARTITION);
+        assertThat(admissionController.pausedPartitions()).isZero();
+        assertThat(admissionController.inFlightEvents()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldOnlyCountWhenDisabled() {
+        // Given
+        admissionController = new AdmissionController(new PausedPartitions(kafkaListenerEndpointRegistry), new SimpleMeterRegistry(),
+                false, 1, 1, 0.5);
+
+        // When
+        admissionController.admit(PARTITION, 10);
+        admissionController.admit(PARTITION, 10);
+
+        // Then
+        verifyNoInteractions(kafkaListenerEndpointRegistry);
+        assertThat(admissionController.inFlightEvents()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,39 @@
+package com.biedron.payments.shared;
+
+import com.biedron.payments.customer.CustomerNotFoundException;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeadLetterCategoryTest {
+
+    @Test
+    void shouldClassifyByCauseChain() {
+        assertThat(DeadLetterCategory.classify(new ListenerExecutionFailedException("failed",
+                new CustomerNotFoundException(123L)))).isEqualTo(DeadLetterCategory.CUSTOMER_NOT_FOUND);
+        assertThat(DeadLetterCategory.classify(new DeserializationException("bad bytes", new byte[0], false, null)))
+                .isEqualTo(DeadLetterCategory.DESERIALIZATION);
+        assertThat(DeadLetterCategory.classify(new RuntimeException(new InvalidProtocolBufferException("bad json"))))
+                .isEqualTo(DeadLetterCategory.INVALID_PAYLOAD);
+    }
+
+    @Test
+    void shouldTreatEverythingElseAsExhaustedRetries() {
+        assertThat(DeadLetterCategory.classify(new IllegalStateException("webhook down")))
+                .isEqualTo(DeadLetterCategory.RETRIES_EXHAUSTED);
+        assertThat(DeadLetterCategory.RETRIES_EXHAUSTED.tag()).isEqualTo("retries_exhausted");
+    }
+
+    @Test
+    void shouldWriteCategoryNameAsHeader() {
+        var header = DeadLetterCategory.CUSTOMER_NOT_FOUND.toHeader();
+
+        assertThat(header.key()).isEqualTo(DeadLetterCategory.HEADER);
+        assertThat(new String(header.value(), StandardCharsets.UTF_8)).isEqualTo("CUSTOMER_NOT_FOUND");
+    }
+}
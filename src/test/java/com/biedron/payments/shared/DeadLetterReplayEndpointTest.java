@@ -0,0 +1,152 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DeadLetterReplayEndpointTest {
+
+    private static final String DEAD_LETTER_TOPIC = "payment.events.dlq";
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition(DEAD_LETTER_TOPIC, 0);
+
+    private static final TopicPartition PARTITION_1 = new TopicPartition(DEAD_LETTER_TOPIC, 1);
+
+    @Mock
+    private KafkaTemplate<Long, byte[]> rawKafkaTemplate;
+
+    @Mock
+    private Consumer<Long, byte[]> consumer;
+
+    @Captor
+    private ArgumentCaptor<ProducerRecord<Long, byte[]>> recordCaptor;
+
+    private final Map<TopicPartition, Long> positions = new HashMap<>();
+
+    private DeadLetterReplayEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        DeadLetterReplayEndpoint replayEndpoint = new DeadLetterReplayEndpoint(new KafkaProperties(),
+                mock(SslBundles.class), rawKafkaTemplate);
+        ReflectionTestUtils.setField(replayEndpoint, "topicSuffix", ".dlq");
+        endpoint = spy(replayEndpoint);
+        doReturn(consumer).when(endpoint).createConsumer(anyInt());
+
+        when(consumer.partitionsFor(DEAD_LETTER_TOPIC)).thenReturn(List.of(
+                new PartitionInfo(DEAD_LETTER_TOPIC, 0, null, null, null),
+                new PartitionInfo(DEAD_LETTER_TOPIC, 1, null, null, null)));
+        Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+        committed.put(PARTITION_0, new OffsetAndMetadata(2));
+        committed.put(PARTITION_1, null);
+        when(consumer.committed(anySet())).thenReturn(committed);
+        when(consumer.beginningOffsets(anyList())).thenReturn(Map.of(PARTITION_0, 0L, PARTITION_1, 0L));
+        when(consumer.endOffsets(anyList())).thenReturn(Map.of(PARTITION_0, 5L, PARTITION_1, 2L));
+        doAnswer(invocation -> positions.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(consumer).seek(any(TopicPartition.class), anyLong());
+        when(consumer.position(any(TopicPartition.class)))
+                .thenAnswer(invocation -> positions.getOrDefault(invocation.getArgument(0), 0L));
+        when(rawKafkaTemplate.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void shouldReplayFromCommittedOffsetsUpToEndOffsets() {
+        // Given
+        when(consumer.poll(any(Duration.class)))
+                .thenAnswer(invocation -> poll(PARTITION_0, 2, 6, PARTITION_1, 0, 2));
+
+        // When
+        Map<String, Object> result = endpoint.replay("payment.events", null);
+
+        // Then
+        assertThat(result).containsEntry("replayed", 5);
+        verify(consumer).assign(List.of(PARTITION_0, PARTITION_1));
+        verify(consumer, never()).subscribe(anyCollection());
+        verify(consumer).seek(PARTITION_0, 2);
+        verify(consumer).seek(PARTITION_1, 0);
+        verify(consumer).commitSync(Map.of(
+                PARTITION_0, new OffsetAndMetadata(5),
+                PARTITION_1, new OffsetAndMetadata(2)));
+        verify(rawKafkaTemplate, times(5)).send(recordCaptor.capture());
+        assertThat(recordCaptor.getAllValues()).allSatisfy(record -> assertThat(record.topic()).isEqualTo("payment.events"));
+    }
+
+    @Test
+    void shouldKeepPollingWhileFirstPollsAreEmpty() {
+        // Given
+        when(consumer.poll(any(Duration.class)))
+                .thenReturn(ConsumerRecords.empty())
+                .thenAnswer(invocation -> poll(PARTITION_0, 2, 5, PARTITION_1, 0, 2));
+
+        // When
+        Map<String, Object> result = endpoint.replay("payment.events", null);
+
+        // Then
+        assertThat(result).containsEntry("replayed", 5);
+    }
+
+    @Test
+    void shouldStopAtMaxRecordsWithinPoll() {
+        // Given
+        when(consumer.poll(any(Duration.class)))
+                .thenAnswer(invocation -> poll(PARTITION_0, 2, 5, PARTITION_1, 0, 2));
+
+        // When
+        Map<String, Object> result = endpoint.replay("payment.events", 2);
+
+        // Then
+        assertThat(result).containsEntry("replayed", 2);
+        verify(rawKafkaTemplate, times(2)).send(any(ProducerRecord.class));
+        verify(consumer).commitSync(argThat((Map<TopicPartition, OffsetAndMetadata> offsets) ->
+                offsets.values().stream().mapToLong(OffsetAndMetadata::offset).sum() <= 4));
+    }
+
+    /**
+     * Records of the given offset ranges (end exclusive), moving each position past its range.
+     */
+    private ConsumerRecords<Long, byte[]> poll(Object... ranges) {
+        Map<TopicPartition, List<ConsumerRecord<Long, byte[]>>> records = new HashMap<>();
+        for (int i = 0; i < ranges.length; i += 3) {
+            TopicPartition partition = (TopicPartition) ranges[i];
+            long start = ((Number) ranges[i + 1]).longValue();
+            long end = ((Number) ranges[i + 2]).longValue();
+            List<ConsumerRecord<Long, byte[]>> partitionRecords = new ArrayList<>();
+            for (long offset = start; offset < end; offset++) {
+                partitionRecords.add(new ConsumerRecord<>(DEAD_LETTER_TOPIC, partition.partition(), offset, 123L, new byte[]{1}));
+            }
+            records.put(partition, partitionRecords);
+            positions.put(partition, end);
+        }
+        return new ConsumerRecords<>(records);
+    }
+}
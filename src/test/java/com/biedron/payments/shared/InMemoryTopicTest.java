@@ -0,0 +1,70 @@
+package com.biedron.payments.shared;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class InMemoryTopicTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private InMemoryTopic<String> topic;
+
+    @AfterEach
+    void tearDown() {
+        topic.stop();
+    }
+
+    @Test
+    void shouldRetryFailedEvent() {
+        // Given
+        AtomicInteger attempts = new AtomicInteger();
+        List<String> handled = new CopyOnWriteArrayList<>();
+        topic = new InMemoryTopic<>("payment.events", 8, 1, event -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("webhook down");
+            }
+            handled.add(event);
+        }, new FixedBackOff(1, 2), meterRegistry);
+        topic.start();
+
+        // When
+        topic.send("event");
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(handled).containsExactly("event"));
+        assertThat(topic.dropped()).isZero();
+    }
+
+    @Test
+    void shouldCountEventDroppedAfterRetries() {
+        // Given
+        List<String> handled = new CopyOnWriteArrayList<>();
+        topic = new InMemoryTopic<>("payment.events", 8, 1, event -> {
+            if (event.equals("poison")) {
+                throw new IllegalStateException("webhook down");
+            }
+            handled.add(event);
+        }, new FixedBackOff(1, 2), meterRegistry);
+        topic.start();
+
+        // When
+        topic.send("poison");
+        topic.send("event");
+
+        // Then
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(handled).containsExactly("event"));
+        assertThat(topic.dropped()).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.notifications.transport.in.memory.dropped")
+                .tag("topic", "payment.events").counter().count()).isEqualTo(1);
+    }
+}
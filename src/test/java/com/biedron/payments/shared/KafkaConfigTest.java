@@ -0,0 +1,129 @@
+package com.biedron.payments.shared;
+
+import com.biedron.payments.paymentevents.PaymentEventsListenerMode;
+import com.biedron.payments.schema.v1.EnrichedPaymentEvent;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class KafkaConfigTest {
+
+    private static final String TRANSACTION_ID_PREFIX = "payment-notifications-tx-";
+
+    @Mock
+    private SslBundles sslBundles;
+
+    @Mock
+    private ConsumerFactory<String, byte[]> consumerFactory;
+
+    @Mock
+    private ObjectProvider<DeadLetterPublishingRecoverer> deadLetterPublishingRecoverer;
+
+    @Mock
+    private PartitionRebalanceListener partitionRebalanceListener;
+
+    private KafkaConfig kafkaConfig;
+
+    @BeforeEach
+    void setUp() {
+        kafkaConfig = new KafkaConfig();
+        ReflectionTestUtils.setField(kafkaConfig, "paymentEventsConsumerGroup", "payment-notifications");
+        ReflectionTestUtils.setField(kafkaConfig, "enrichedEventsConsumerGroup", "payment-notifications-enriched");
+        ReflectionTestUtils.setField(kafkaConfig, "paymentEventsConcurrency", 1);
+        ReflectionTestUtils.setField(kafkaConfig, "transactionIdPrefix", TRANSACTION_ID_PREFIX);
+        ReflectionTestUtils.setField(kafkaConfig, "groupInstanceId", "");
+        when(deadLetterPublishingRecoverer.getIfAvailable()).thenReturn(null);
+    }
+
+    @Test
+    void shouldRunBatchListenerInKafkaTransactions() {
+        // Given
+        configure(PaymentEventsListenerMode.BATCH, true);
+        ProducerFactory<Long, EnrichedPaymentEvent> producerFactory = producerFactory();
+
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = containerFactory(producerFactory);
+
+        // Then
+        assertThat(producerFactory.transactionCapable()).isTrue();
+        assertThat(producerFactory.getTransactionIdPrefix()).isEqualTo(TRANSACTION_ID_PREFIX);
+        assertThat(factory.getContainerProperties().getKafkaAwareTransactionManager())
+                .isInstanceOfSatisfying(KafkaTransactionManager.class, transactionManager ->
+                        assertThat(transactionManager.getProducerFactory()).isSameAs(producerFactory));
+        assertThat(kafkaConfig.enrichedPaymentEventsConsumerFactory(new KafkaProperties(), sslBundles)
+                .getConfigurationProperties())
+                .containsEntry(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+    }
+
+    @Test
+    void shouldNotUseTransactionsWhenDisabled() {
+        // Given
+        configure(PaymentEventsListenerMode.BATCH, false);
+        ProducerFactory<Long, EnrichedPaymentEvent> producerFactory = producerFactory();
+
+        // When
+        ConcurrentKafkaListenerContainerFactory<String, byte[]> factory = containerFactory(producerFactory);
+
+        // Then
+        assertThat(producerFactory.transactionCapable()).isFalse();
+        assertThat(factory.getContainerProperties().getKafkaAwareTransactionManager()).isNull();
+        assertThat(kafkaConfig.enrichedPaymentEventsConsumerFactory(new KafkaProperties(), sslBundles)
+                .getConfigurationProperties())
+                .doesNotContainKey(ConsumerConfig.ISOLATION_LEVEL_CONFIG);
+    }
+
+    @Test
+    void shouldRejectTransactionsOutsideBatchListenerMode() {
+        Arrays.stream(PaymentEventsListenerMode.values())
+                .filter(mode -> mode != PaymentEventsListenerMode.BATCH)
+                .forEach(mode -> {
+                    // Given
+                    configure(mode, true);
+                    ProducerFactory<Long, EnrichedPaymentEvent> producerFactory = producerFactory();
+
+                    // When / Then
+                    assertThatThrownBy(() -> containerFactory(producerFactory))
+                            .as("listener mode %s", mode)
+                            .isInstanceOf(IllegalStateException.class)
+                            .hasMessageContaining("listener-mode batch");
+                });
+    }
+
+    private void configure(PaymentEventsListenerMode listenerMode, boolean transactionsEnabled) {
+        ReflectionTestUtils.setField(kafkaConfig, "paymentEventsListenerMode", listenerMode);
+        ReflectionTestUtils.setField(kafkaConfig, "transactionsEnabled", transactionsEnabled);
+    }
+
+    private ProducerFactory<Long, EnrichedPaymentEvent> producerFactory() {
+        return kafkaConfig.producerFactory(new KafkaProperties(), sslBundles);
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<String, byte[]> containerFactory(
+            ProducerFactory<Long, EnrichedPaymentEvent> producerFactory) {
+        return kafkaConfig.paymentEventsKafkaListenerContainerFactory(consumerFactory, producerFactory,
+                new FixedBackOff(0, 0), deadLetterPublishingRecoverer, partitionRebalanceListener);
+    }
+}
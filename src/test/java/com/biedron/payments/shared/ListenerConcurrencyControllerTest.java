@@ -0,0 +1,61 @@
+package com.biedron.payments.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ListenerConcurrencyControllerTest {
+
+    private static final Duration TARGET_DRAIN_TIME = Duration.ofSeconds(60);
+
+    @Test
+    void shouldScaleUpWhenBacklogDrainsSlowerThanTarget() {
+        // 12000 records at 100 records/s drain in 120s, twice the target
+        int desired = ListenerConcurrencyController.desiredConcurrency(12_000, 100, 2, 1, 12, TARGET_DRAIN_TIME);
+
+        assertThat(desired).isEqualTo(4);
+    }
+
+    @Test
+    void shouldNotScaleAbovePartitionCount() {
+        int desired = ListenerConcurrencyController.desiredConcurrency(1_000_000, 10, 2, 1, 6, TARGET_DRAIN_TIME);
+
+        assertThat(desired).isEqualTo(6);
+    }
+
+    @Test
+    void shouldScaleDownWhenThereIsNoLag() {
+        int desired = ListenerConcurrencyController.desiredConcurrency(0, 500, 4, 1, 12, TARGET_DRAIN_TIME);
+
+        assertThat(desired).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotScaleBelowMinimum() {
+        int desired = ListenerConcurrencyController.desiredConcurrency(0, 500, 1, 1, 12, TARGET_DRAIN_TIME);
+
+        assertThat(desired).isEqualTo(1);
+    }
+
+    @Test
+    void shouldScaleUpWhenLaggingConsumersMakeNoProgress() {
+        int desired = ListenerConcurrencyController.desiredConcurrency(500, 0, 2, 1, 12, TARGET_DRAIN_TIME);
+
+        assertThat(desired).isEqualTo(3);
+    }
+
+    @Test
+    void shouldKeepConcurrencyWhenDrainTimeIsWithinTarget() {
+        int desired = ListenerConcurrencyController.desiredConcurrency(3_000, 100, 3, 1, 12, TARGET_DRAIN_TIME);
+
+        assertThat(desired).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRecommendReplicasFromRequiredConsumers() {
+        assertThat(ListenerConcurrencyController.recommendedReplicas(17, 8)).isEqualTo(3);
+        assertThat(ListenerConcurrencyController.recommendedReplicas(0, 8)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,47 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionInFlightTrackerTest {
+
+    private static final TopicPartition MOVING = new TopicPartition("payment.events.test", 0);
+
+    private static final TopicPartition STAYING = new TopicPartition("payment.events.test", 1);
+
+    private final PartitionInFlightTracker tracker = new PartitionInFlightTracker();
+
+    @Test
+    void shouldWaitOnlyForRevokedPartitions() throws InterruptedException {
+        // Given
+        tracker.begin(MOVING);
+        tracker.begin(STAYING);
+        CompletableFuture.delayedExecutor(50, TimeUnit.MILLISECONDS).execute(() -> tracker.end(MOVING));
+
+        // When
+        boolean drained = tracker.awaitIdle(List.of(MOVING), Duration.ofSeconds(5));
+
+        // Then
+        assertThat(drained).isTrue();
+        assertThat(tracker.inFlight(STAYING)).isEqualTo(1);
+    }
+
+    @Test
+    void shouldGiveUpAfterTimeout() throws InterruptedException {
+        // Given
+        tracker.begin(MOVING);
+
+        // When
+        boolean drained = tracker.awaitIdle(List.of(MOVING), Duration.ofMillis(20));
+
+        // Then
+        assertThat(drained).isFalse();
+    }
+}
@@ -0,0 +1,58 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionStateRegistryTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("payment.events.test", 0);
+
+    @Test
+    void shouldKeepStateOfPartitionReassignedWithinRetention() {
+        // Given
+        PartitionStateRegistry registry = new PartitionStateRegistry(60_000);
+        AtomicInteger state = registry.get(PARTITION, "counter", AtomicInteger::new);
+        state.incrementAndGet();
+
+        // When
+        registry.park(List.of(PARTITION));
+        List<TopicPartition> warm = registry.restore(List.of(PARTITION));
+
+        // Then
+        assertThat(warm).containsExactly(PARTITION);
+        assertThat(registry.get(PARTITION, "counter", AtomicInteger::new)).isSameAs(state);
+    }
+
+    @Test
+    void shouldDropStateOfPartitionParkedLongerThanRetention() {
+        // Given
+        PartitionStateRegistry registry = new PartitionStateRegistry(0);
+        registry.get(PARTITION, "counter", AtomicInteger::new).incrementAndGet();
+
+        // When
+        registry.park(List.of(PARTITION));
+        List<TopicPartition> warm = registry.restore(List.of(PARTITION));
+
+        // Then
+        assertThat(warm).isEmpty();
+        assertThat(registry.get(PARTITION, "counter", AtomicInteger::new).get()).isZero();
+    }
+
+    @Test
+    void shouldDropStateOfLostPartition() {
+        // Given
+        PartitionStateRegistry registry = new PartitionStateRegistry(60_000);
+        registry.get(PARTITION, "counter", AtomicInteger::new).incrementAndGet();
+
+        // When
+        registry.discard(List.of(PARTITION));
+
+        // Then
+        assertThat(registry.restore(List.of(PARTITION))).isEmpty();
+    }
+}
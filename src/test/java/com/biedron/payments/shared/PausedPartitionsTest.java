@@ -0,0 +1,86 @@
+package com.biedron.payments.shared;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PausedPartitionsTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("payment.events.test", 0);
+
+    @Mock
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private PausedPartitions pausedPartitions;
+
+    @BeforeEach
+    void setUp() {
+        pausedPartitions = new PausedPartitions(kafkaListenerEndpointRegistry);
+        when(kafkaListenerEndpointRegistry.getAllListenerContainers()).thenReturn(List.of(container));
+        when(container.getAssignedPartitions()).thenReturn(List.of(PARTITION));
+    }
+
+    @Test
+    void shouldPauseOnceAndReportRepeatedPauseOfSameOwner() {
+        // When
+        boolean first = pausedPartitions.pause("admission", PARTITION);
+        boolean second = pausedPartitions.pause("admission", PARTITION);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        verify(container, times(1)).pausePartition(PARTITION);
+        assertThat(pausedPartitions.size("admission")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepPartitionPausedWhileAnotherOwnerHoldsIt() {
+        // Given
+        pausedPartitions.pause("admission", PARTITION);
+        pausedPartitions.pause("key-ordered", PARTITION);
+
+        // When
+        var released = pausedPartitions.resumeAll("admission");
+
+        // Then
+        assertThat(released).containsExactly(PARTITION);
+        verify(container, times(1)).pausePartition(PARTITION);
+        verify(container, never()).resumePartition(PARTITION);
+        assertThat(pausedPartitions.size("admission")).isZero();
+        assertThat(pausedPartitions.size()).isEqualTo(1);
+
+        // When
+        pausedPartitions.resumeAll("key-ordered");
+
+        // Then
+        verify(container).resumePartition(PARTITION);
+        assertThat(pausedPartitions.size()).isZero();
+    }
+
+    @Test
+    void shouldIgnoreResumeOfOwnerWithoutPausedPartitions() {
+        // Given
+        pausedPartitions.pause("key-ordered", PARTITION);
+
+        // When
+        var released = pausedPartitions.resumeAll("admission");
+
+        // Then
+        assertThat(released).isEmpty();
+        verify(container, never()).resumePartition(PARTITION);
+    }
+}
@@ -0,0 +1,143 @@
+package com.biedron.payments.shared;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RingBufferTest {
+
+    @Test
+    void shouldRoundCapacityUpToPowerOfTwo() {
+        assertThat(new RingBuffer<>(1).capacity()).isEqualTo(1);
+        assertThat(new RingBuffer<>(5).capacity()).isEqualTo(8);
+        assertThat(new RingBuffer<>(8).capacity()).isEqualTo(8);
+        assertThatThrownBy(() -> new RingBuffer<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldKeepFifoOrderAcrossWrapAround() {
+        // Given
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4);
+        List<Integer> polled = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            assertThat(ringBuffer.offer(i)).isTrue();
+            polled.add(ringBuffer.poll());
+        }
+
+        // Then
+        assertThat(polled).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(ringBuffer.poll()).isNull();
+    }
+
+    @Test
+    void shouldRejectOfferWhenFull() {
+        // Given
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(2);
+        ringBuffer.offer(1);
+        ringBuffer.offer(2);
+
+        // When
+        boolean offered = ringBuffer.offer(3);
+
+        // Then
+        assertThat(offered).isFalse();
+        assertThat(ringBuffer.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDeliverEveryElementOnceWithConcurrentProducersAndConsumers() throws Exception {
+        // Given
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(64);
+        int producers = 4;
+        int perProducer = 10_000;
+        Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+        AtomicInteger remaining = new AtomicInteger(producers * perProducer);
+
+        // When
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers + 2)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int offset = p * perProducer;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        ringBuffer.put(offset + i);
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < 2; c++) {
+                futures.add(executor.submit(() -> {
+                    while (remaining.get() > 0) {
+                        Integer element = ringBuffer.poll();
+                        if (element != null) {
+                            assertThat(consumed.add(element)).isTrue();
+                            remaining.decrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        // Then
+        assertThat(consumed).hasSize(producers * perProducer);
+        assertThat(ringBuffer.size()).isZero();
+    }
+
+    @Test
+    void shouldWakeWaitingConsumerWhenElementIsOffered() throws Exception {
+        // Given
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(4);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<Integer> taken = executor.submit(ringBuffer::take);
+            Thread.sleep(50);
+
+            // When
+            ringBuffer.offer(42);
+
+            // Then
+            assertThat(taken.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+        }
+    }
+
+    @Test
+    void shouldWakeWaitingProducerWhenElementIsPolled() throws Exception {
+        // Given
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(1);
+        ringBuffer.offer(1);
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<?> put = executor.submit(() -> {
+                ringBuffer.put(2);
+                return null;
+            });
+            Thread.sleep(50);
+            assertThat(put.isDone()).isFalse();
+
+            // When
+            Integer polled = ringBuffer.poll();
+
+            // Then
+            put.get(5, TimeUnit.SECONDS);
+            assertThat(polled).isEqualTo(1);
+            assertThat(ringBuffer.poll()).isEqualTo(2);
+        }
+    }
+}